@@ -0,0 +1,61 @@
+package com.cascade.smppmls.smpp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Receipt text parsing: the previous per-message regex + upper-case scan against DeliveryReceiptParser.
+ * Run with {@code ./gradlew jmh}; add {@code -prof gc} through jmh.profilers to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeliveryReceiptParserBenchmark {
+
+    private final byte[] receipt = ("id:c7d3a9f2-41b6-4f0e-9a7e-1f2d3c4b5a69 sub:001 dlvrd:001 submit date:2410161530 "
+        + "done date:2410161531 stat:DELIVRD err:000 text:Your verification code is 482913")
+        .getBytes(StandardCharsets.US_ASCII);
+
+    private final DeliveryReceiptFields fields = new DeliveryReceiptFields();
+
+    @Benchmark
+    public void regex(Blackhole bh) {
+        String text = new String(receipt, StandardCharsets.UTF_8);
+        Matcher m = Pattern.compile("id:([A-Za-z0-9-]+)").matcher(text);
+        bh.consume(m.find() ? m.group(1) : null);
+        String upperText = text.toUpperCase();
+        bh.consume(upperText.contains("DELIVRD") ? "DELIVERED"
+            : upperText.contains("EXPIRED") ? "EXPIRED"
+            : upperText.contains("UNDELIV") ? "UNDELIVERABLE" : "DLR_UNKNOWN");
+    }
+
+    @Benchmark
+    public void parser(Blackhole bh) {
+        DeliveryReceiptParser.parse(receipt, 0, receipt.length, fields);
+        bh.consume(fields.state());
+        bh.consume(fields.error());
+    }
+
+    @Benchmark
+    public void parserWithStrings(Blackhole bh) {
+        DeliveryReceiptParser.parse(receipt, 0, receipt.length, fields);
+        bh.consume(fields.id());
+        bh.consume(fields.statusText());
+    }
+}
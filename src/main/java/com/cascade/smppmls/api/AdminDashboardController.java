@@ -13,7 +13,6 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import com.cascade.smppmls.smpp.SmppSessionManager;
-import com.cascade.smppmls.repository.SmsOutboundRepository;
 import com.cascade.smppmls.repository.SmsDlrRepository;
 
 @RestController
@@ -24,9 +23,6 @@ public class AdminDashboardController {
     @Qualifier("jsmppSessionManager")
     private SmppSessionManager sessionManager;
     
-    @Autowired
-    private SmsOutboundRepository outboundRepository;
-    
     @Autowired
     private SmsDlrRepository dlrRepository;
     
@@ -36,6 +32,9 @@ public class AdminDashboardController {
     // Track metrics in memory (in production, use Redis or metrics DB)
     private static final Map<String, SessionMetrics> sessionMetrics = new ConcurrentHashMap<>();
     
+    // hot and archived messages created since a point in time (served by the created_at index of each table)
+    private static final String COUNT_SINCE_SQL = "SELECT COUNT(*) FROM sms_outbound_all WHERE created_at >= ?";
+    
     /**
      * GET /api/admin/dashboard
      * Get complete dashboard data
@@ -84,12 +83,12 @@ public class AdminDashboardController {
     public ResponseEntity<Map<String, Object>> getOverviewStats() {
         Map<String, Object> overview = new LinkedHashMap<>();
         
-        // Total messages
-        long totalMessages = outboundRepository.count();
+        // Total messages; sms_outbound_all spans the live table and the archived history
+        long totalMessages = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sms_outbound_all", Long.class);
         overview.put("totalMessages", totalMessages);
         
         // Messages by status
-        String statusSql = "SELECT status, COUNT(*) as count FROM sms_outbound GROUP BY status";
+        String statusSql = "SELECT status, COUNT(*) as count FROM sms_outbound_all GROUP BY status";
         List<Map<String, Object>> statusCounts = jdbcTemplate.queryForList(statusSql);
         
         Map<String, Long> byStatus = new HashMap<>();
@@ -119,14 +118,12 @@ public class AdminDashboardController {
         
         // Messages today
         Instant startOfToday = Instant.now().truncatedTo(ChronoUnit.DAYS);
-        String todaySql = "SELECT COUNT(*) FROM sms_outbound WHERE created_at >= ?";
-        Long messagesToday = jdbcTemplate.queryForObject(todaySql, Long.class, startOfToday);
+        Long messagesToday = jdbcTemplate.queryForObject(COUNT_SINCE_SQL, Long.class, startOfToday);
         overview.put("messagesToday", messagesToday);
         
         // Messages last hour
         Instant oneHourAgo = Instant.now().minus(1, ChronoUnit.HOURS);
-        String hourSql = "SELECT COUNT(*) FROM sms_outbound WHERE created_at >= ?";
-        Long messagesLastHour = jdbcTemplate.queryForObject(hourSql, Long.class, oneHourAgo);
+        Long messagesLastHour = jdbcTemplate.queryForObject(COUNT_SINCE_SQL, Long.class, oneHourAgo);
         overview.put("messagesLastHour", messagesLastHour);
         
         return ResponseEntity.ok(overview);
@@ -182,13 +179,35 @@ public class AdminDashboardController {
                         "SUM(CASE WHEN status = 'SENT' THEN 1 ELSE 0 END) as sent, " +
                         "SUM(CASE WHEN status = 'QUEUED' THEN 1 ELSE 0 END) as queued, " +
                         "SUM(CASE WHEN status = 'FAILED' THEN 1 ELSE 0 END) as failed " +
-                        "FROM sms_outbound WHERE session_id = ?";
+                        "FROM sms_outbound_all WHERE session_id = ?";
             
             Map<String, Object> metrics = jdbcTemplate.queryForMap(sql, sessionKey);
             sessionInfo.put("metrics", metrics);
             
+            // Submit window occupancy (outstanding submit_sm awaiting response)
+            if (sessionManager instanceof com.cascade.smppmls.smpp.JsmppSessionManager jsmppManager) {
+                com.cascade.smppmls.smpp.SubmitWindow window = jsmppManager.getSubmitWindow(sessionKey);
+                if (window != null) {
+                    Map<String, Object> windowInfo = new LinkedHashMap<>();
+                    windowInfo.put("size", window.size());
+                    windowInfo.put("inFlight", window.occupancy());
+                    windowInfo.put("available", window.available());
+                    windowInfo.put("expiredSlots", window.expiredCount());
+                    sessionInfo.put("window", windowInfo);
+                }
+                com.cascade.smppmls.smpp.AdaptiveRateController rateController = jsmppManager.getRateController(sessionKey);
+                if (rateController != null) {
+                    Map<String, Object> rateInfo = new LinkedHashMap<>();
+                    rateInfo.put("configuredTps", rateController.getCeilingTps());
+                    rateInfo.put("effectiveTps", Math.round(rateController.getEffectiveTps() * 10.0) / 10.0);
+                    rateInfo.put("avgResponseTimeMs", Math.round(rateController.getLatencyEwmaMs()));
+                    rateInfo.put("throttled", rateController.getThrottleCount());
+                    sessionInfo.put("rate", rateInfo);
+                }
+            }
+            
             // Get last activity
-            String lastActivitySql = "SELECT MAX(created_at) FROM sms_outbound WHERE session_id = ?";
+            String lastActivitySql = "SELECT MAX(created_at) FROM sms_outbound_all WHERE session_id = ?";
             try {
                 Instant lastActivity = jdbcTemplate.queryForObject(lastActivitySql, Instant.class, sessionKey);
                 sessionInfo.put("lastActivity", lastActivity);
@@ -215,7 +234,7 @@ public class AdminDashboardController {
         String minuteSql = 
             "SELECT FLOOR(UNIX_TIMESTAMP(created_at) / 60) as minute_bucket, " +
             "COUNT(*) as message_count " +
-            "FROM sms_outbound " +
+            "FROM sms_outbound_all " +
             "WHERE created_at >= ? " +
             "GROUP BY FLOOR(UNIX_TIMESTAMP(created_at) / 60) " +
             "ORDER BY minute_bucket DESC " +
@@ -236,7 +255,7 @@ public class AdminDashboardController {
         
         // Current TPS (messages in last minute / 60)
         Instant sixtySecondsAgo = Instant.now().minus(60, ChronoUnit.SECONDS);
-        String tpsSql = "SELECT COUNT(*) FROM sms_outbound WHERE created_at >= ?";
+        String tpsSql = "SELECT COUNT(*) FROM sms_outbound_all WHERE created_at >= ?";
         Long messagesLastMinute = jdbcTemplate.queryForObject(tpsSql, Long.class, sixtySecondsAgo);
         double currentTps = messagesLastMinute != null ? messagesLastMinute / 60.0 : 0;
         throughput.put("currentTps", Math.round(currentTps * 100.0) / 100.0);
@@ -246,7 +265,7 @@ public class AdminDashboardController {
         String peakSql = 
             "SELECT MAX(cnt) as peak FROM (" +
             "  SELECT COUNT(*) as cnt " +
-            "  FROM sms_outbound " +
+            "  FROM sms_outbound_all " +
             "  WHERE created_at >= ? " +
             "  GROUP BY FLOOR(UNIX_TIMESTAMP(created_at) / 60)" +
             ") subquery";
@@ -263,7 +282,7 @@ public class AdminDashboardController {
         Instant oneHourAgo3 = Instant.now().minus(1, ChronoUnit.HOURS);
         String operatorSql = 
             "SELECT operator, COUNT(*) as count " +
-            "FROM sms_outbound " +
+            "FROM sms_outbound_all " +
             "WHERE created_at >= ? " +
             "GROUP BY operator";
         
@@ -282,7 +301,7 @@ public class AdminDashboardController {
         Map<String, Object> result = new LinkedHashMap<>();
         
         // Get list of operators
-        String operatorsSql = "SELECT DISTINCT operator FROM sms_outbound WHERE operator IS NOT NULL";
+        String operatorsSql = "SELECT DISTINCT operator FROM sms_outbound_all WHERE operator IS NOT NULL";
         List<String> operators = jdbcTemplate.queryForList(operatorsSql, String.class);
         
         List<Map<String, Object>> operatorMetrics = new ArrayList<>();
@@ -296,7 +315,7 @@ public class AdminDashboardController {
             String successRate1hSql = 
                 "SELECT " +
                 "SUM(CASE WHEN status = 'SENT' OR status LIKE '%DELIVR%' THEN 1 ELSE 0 END) * 100.0 / NULLIF(COUNT(*), 0) as rate " +
-                "FROM sms_outbound " +
+                "FROM sms_outbound_all " +
                 "WHERE operator = ? AND created_at >= ?";
             Double successRate1h = jdbcTemplate.queryForObject(successRate1hSql, Double.class, operator, oneHourAgo);
             metrics.put("successRate1h", successRate1h != null ? Math.round(successRate1h * 100.0) / 100.0 : 0);
@@ -306,7 +325,7 @@ public class AdminDashboardController {
             String successRate5mSql = 
                 "SELECT " +
                 "SUM(CASE WHEN status = 'SENT' OR status LIKE '%DELIVR%' THEN 1 ELSE 0 END) * 100.0 / NULLIF(COUNT(*), 0) as rate " +
-                "FROM sms_outbound " +
+                "FROM sms_outbound_all " +
                 "WHERE operator = ? AND created_at >= ?";
             Double successRate5m = jdbcTemplate.queryForObject(successRate5mSql, Double.class, operator, fiveMinutesAgo);
             metrics.put("successRate5m", successRate5m != null ? Math.round(successRate5m * 100.0) / 100.0 : 0);
@@ -315,7 +334,7 @@ public class AdminDashboardController {
             String retryRate1hSql = 
                 "SELECT " +
                 "SUM(CASE WHEN retry_count > 0 THEN 1 ELSE 0 END) * 100.0 / NULLIF(COUNT(*), 0) as rate " +
-                "FROM sms_outbound " +
+                "FROM sms_outbound_all " +
                 "WHERE operator = ? AND created_at >= ?";
             Double retryRate1h = jdbcTemplate.queryForObject(retryRate1hSql, Double.class, operator, oneHourAgo);
             metrics.put("retryRate1h", retryRate1h != null ? Math.round(retryRate1h * 100.0) / 100.0 : 0);
@@ -324,7 +343,7 @@ public class AdminDashboardController {
             String retryRate5mSql = 
                 "SELECT " +
                 "SUM(CASE WHEN retry_count > 0 THEN 1 ELSE 0 END) * 100.0 / NULLIF(COUNT(*), 0) as rate " +
-                "FROM sms_outbound " +
+                "FROM sms_outbound_all " +
                 "WHERE operator = ? AND created_at >= ?";
             Double retryRate5m = jdbcTemplate.queryForObject(retryRate5mSql, Double.class, operator, fiveMinutesAgo);
             metrics.put("retryRate5m", retryRate5m != null ? Math.round(retryRate5m * 100.0) / 100.0 : 0);
@@ -332,7 +351,7 @@ public class AdminDashboardController {
             // Submit Delay - Last 1 hour (time from created to sent)
             String submitDelay1hSql = 
                 "SELECT AVG(TIMESTAMPDIFF(MICROSECOND, created_at, updated_at) / 1000.0) as avg_delay " +
-                "FROM sms_outbound " +
+                "FROM sms_outbound_all " +
                 "WHERE operator = ? AND status = 'SENT' AND created_at >= ?";
             Double submitDelay1h = jdbcTemplate.queryForObject(submitDelay1hSql, Double.class, operator, oneHourAgo);
             metrics.put("submitDelay1h", submitDelay1h != null ? Math.round(submitDelay1h) : 0);
@@ -340,7 +359,7 @@ public class AdminDashboardController {
             // Submit Delay - Last 5 minutes
             String submitDelay5mSql = 
                 "SELECT AVG(TIMESTAMPDIFF(MICROSECOND, created_at, updated_at) / 1000.0) as avg_delay " +
-                "FROM sms_outbound " +
+                "FROM sms_outbound_all " +
                 "WHERE operator = ? AND status = 'SENT' AND created_at >= ?";
             Double submitDelay5m = jdbcTemplate.queryForObject(submitDelay5mSql, Double.class, operator, fiveMinutesAgo);
             metrics.put("submitDelay5m", submitDelay5m != null ? Math.round(submitDelay5m) : 0);
@@ -349,7 +368,7 @@ public class AdminDashboardController {
             String drDelay1hSql = 
                 "SELECT AVG(TIMESTAMPDIFF(MICROSECOND, o.updated_at, d.received_at) / 1000.0) as avg_delay " +
                 "FROM sms_dlr d " +
-                "JOIN sms_outbound o ON d.sms_outbound_id = o.id " +
+                "JOIN sms_outbound_all o ON d.sms_outbound_id = o.id " +
                 "WHERE o.operator = ? AND d.received_at >= ?";
             Double drDelay1h = jdbcTemplate.queryForObject(drDelay1hSql, Double.class, operator, oneHourAgo);
             metrics.put("drDelay1h", drDelay1h != null ? Math.round(drDelay1h) : 0);
@@ -358,7 +377,7 @@ public class AdminDashboardController {
             String drDelay5mSql = 
                 "SELECT AVG(TIMESTAMPDIFF(MICROSECOND, o.updated_at, d.received_at) / 1000.0) as avg_delay " +
                 "FROM sms_dlr d " +
-                "JOIN sms_outbound o ON d.sms_outbound_id = o.id " +
+                "JOIN sms_outbound_all o ON d.sms_outbound_id = o.id " +
                 "WHERE o.operator = ? AND d.received_at >= ?";
             Double drDelay5m = jdbcTemplate.queryForObject(drDelay5mSql, Double.class, operator, fiveMinutesAgo);
             metrics.put("drDelay5m", drDelay5m != null ? Math.round(drDelay5m) : 0);
@@ -382,7 +401,7 @@ public class AdminDashboardController {
         Instant oneHourAgo = Instant.now().minus(1, ChronoUnit.HOURS);
         String avgDelaySql = 
             "SELECT AVG(TIMESTAMPDIFF(MICROSECOND, created_at, updated_at) / 1000.0) as avg_delay " +
-            "FROM sms_outbound " +
+            "FROM sms_outbound_all " +
             "WHERE status = 'SENT' AND created_at >= ?";
         
         Double avgDelay = jdbcTemplate.queryForObject(avgDelaySql, Double.class, oneHourAgo);
@@ -412,7 +431,7 @@ public class AdminDashboardController {
         String avgDeliveryTimeSql = 
             "SELECT AVG(TIMESTAMPDIFF(MICROSECOND, o.created_at, d.received_at) / 1000.0) as avg_time " +
             "FROM sms_dlr d " +
-            "JOIN sms_outbound o ON d.sms_outbound_id = o.id " +
+            "JOIN sms_outbound_all o ON d.sms_outbound_id = o.id " +
             "WHERE d.received_at >= ?";
         
         Double avgDeliveryTime = jdbcTemplate.queryForObject(avgDeliveryTimeSql, Double.class, oneHourAgo);
@@ -423,7 +442,7 @@ public class AdminDashboardController {
             "SELECT " +
             "SUM(CASE WHEN retry_count > 0 THEN 1 ELSE 0 END) as retried, " +
             "COUNT(*) as total " +
-            "FROM sms_outbound " +
+            "FROM sms_outbound_all " +
             "WHERE created_at >= ?";
         
         try {
@@ -449,7 +468,7 @@ public class AdminDashboardController {
     public ResponseEntity<List<Map<String, Object>>> getRecentActivity() {
         String sql = 
             "SELECT id, msisdn, priority, status, operator, session_id, created_at, updated_at " +
-            "FROM sms_outbound " +
+            "FROM sms_outbound_all " +
             "ORDER BY created_at DESC " +
             "LIMIT 50";
         
@@ -498,7 +517,7 @@ public class AdminDashboardController {
         String retryRateSql = 
             "SELECT " +
             "SUM(CASE WHEN retry_count > 0 THEN 1 ELSE 0 END) * 100.0 / NULLIF(COUNT(*), 0) as retry_rate " +
-            "FROM sms_outbound " +
+            "FROM sms_outbound_all " +
             "WHERE created_at >= ?";
         
         Double retryRate = jdbcTemplate.queryForObject(retryRateSql, Double.class, fiveMinutesAgo);
@@ -0,0 +1,38 @@
+package com.cascade.smppmls.api;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSubmitResponse {
+    private int total;
+    private int accepted;
+    private int rejected;
+    private List<Item> results;
+
+    /**
+     * Outcome of one message, in request order. Rejected items carry an error and no ids.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private int index;
+        private String clientMsgId;
+        private String requestId;
+        private String messageId;
+        private String status;
+        private String operator;
+        private String sessionId;
+        private String error;
+
+        public static Item rejected(int index, String clientMsgId, String error) {
+            return new Item(index, clientMsgId, null, null, "REJECTED", null, null, error);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cascade.smppmls.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.cascade.smppmls.campaign.CampaignFormat;
+import com.cascade.smppmls.campaign.CampaignIngestionService;
+import com.cascade.smppmls.campaign.IngestionJob;
+
+@RestController
+@RequestMapping("/api/v1/campaigns")
+public class CampaignController {
+
+    private final CampaignIngestionService ingestionService;
+
+    public CampaignController(CampaignIngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    /**
+     * Stream a campaign as the request body (text/csv or application/x-ndjson, chunked transfer is fine).
+     * POST /api/v1/campaigns -> 202 with the job; poll GET /api/v1/campaigns/{jobId}
+     */
+    @PostMapping(consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<IngestionJob> uploadStream(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                     InputStream body) throws IOException {
+        return accepted(ingestionService.ingest(body, CampaignFormat.fromContentType(contentType, null)));
+    }
+
+    /**
+     * Upload a campaign file (multipart field "file", .csv or .ndjson)
+     */
+    @PostMapping(consumes = "multipart/form-data")
+    public ResponseEntity<IngestionJob> uploadFile(@RequestParam("file") MultipartFile file) throws IOException {
+        CampaignFormat format = CampaignFormat.fromContentType(file.getContentType(), file.getOriginalFilename());
+        return accepted(ingestionService.ingest(file.getInputStream(), format));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        return ingestionService.getJob(jobId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Job not found", "jobId", jobId)));
+    }
+
+    @GetMapping
+    public ResponseEntity<Collection<IngestionJob>> listJobs() {
+        return ResponseEntity.ok(ingestionService.getJobs());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    private static ResponseEntity<IngestionJob> accepted(IngestionJob job) {
+        return ResponseEntity.accepted().location(URI.create("/api/v1/campaigns/" + job.getId())).body(job);
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.*;
 
 import com.cascade.smppmls.entity.SmsOutboundEntity;
 import com.cascade.smppmls.entity.SmsDlrEntity;
+import com.cascade.smppmls.repository.SmsOutboundHistoryRepository;
 import com.cascade.smppmls.repository.SmsOutboundRepository;
 import com.cascade.smppmls.repository.SmsDlrRepository;
 
@@ -19,6 +20,9 @@ public class MessageTrackingController {
     @Autowired
     private SmsOutboundRepository outboundRepository;
     
+    @Autowired
+    private SmsOutboundHistoryRepository historyRepository; // finished messages moved out of sms_outbound
+
     @Autowired
     private SmsDlrRepository dlrRepository;
 
@@ -29,6 +33,7 @@ public class MessageTrackingController {
     @GetMapping("/message/{id}")
     public ResponseEntity<?> trackByMessageId(@PathVariable Long id) {
         Optional<SmsOutboundEntity> outbound = outboundRepository.findById(id);
+        if (outbound.isEmpty()) outbound = historyRepository.findById(id);
         
         if (outbound.isEmpty()) {
             return ResponseEntity.status(404).body(Map.of(
@@ -47,6 +52,7 @@ public class MessageTrackingController {
     @GetMapping("/request/{requestId}")
     public ResponseEntity<?> trackByRequestId(@PathVariable String requestId) {
         SmsOutboundEntity outbound = outboundRepository.findByRequestId(requestId);
+        if (outbound == null) outbound = historyRepository.findByRequestId(requestId);
         
         if (outbound == null) {
             return ResponseEntity.status(404).body(Map.of(
@@ -65,6 +71,7 @@ public class MessageTrackingController {
     @GetMapping("/smsc/{smscMsgId}")
     public ResponseEntity<?> trackBySmscMsgId(@PathVariable String smscMsgId) {
         SmsOutboundEntity outbound = outboundRepository.findBySmscMsgId(smscMsgId);
+        if (outbound == null) outbound = historyRepository.findBySmscMsgId(smscMsgId);
         
         if (outbound == null) {
             return ResponseEntity.status(404).body(Map.of(
@@ -85,7 +92,8 @@ public class MessageTrackingController {
         // Normalize phone number (add + if missing)
         String normalizedMsisdn = msisdn.startsWith("+") ? msisdn : "+" + msisdn;
         
-        List<SmsOutboundEntity> messages = outboundRepository.findByMsisdn(normalizedMsisdn);
+        List<SmsOutboundEntity> messages = new ArrayList<>(historyRepository.findByMsisdn(normalizedMsisdn));
+        messages.addAll(outboundRepository.findByMsisdn(normalizedMsisdn));
         
         if (messages.isEmpty()) {
             return ResponseEntity.status(404).body(Map.of(
@@ -113,6 +121,7 @@ public class MessageTrackingController {
     @GetMapping("/client/{clientMsgId}")
     public ResponseEntity<?> trackByClientMsgId(@PathVariable String clientMsgId) {
         SmsOutboundEntity outbound = outboundRepository.findByClientMsgId(clientMsgId);
+        if (outbound == null) outbound = historyRepository.findByClientMsgId(clientMsgId);
         
         if (outbound == null) {
             return ResponseEntity.status(404).body(Map.of(
@@ -149,6 +158,9 @@ public class MessageTrackingController {
         status.put("currentStatus", msg.getStatus());
         status.put("receivedAt", msg.getCreatedAt());
         status.put("lastUpdatedAt", msg.getUpdatedAt());
+        if (msg.getArchivedAt() != null) {
+            status.put("archivedAt", msg.getArchivedAt());
+        }
         
         // Calculate time in system
         if (msg.getCreatedAt() != null) {
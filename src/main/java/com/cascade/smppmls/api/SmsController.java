@@ -1,10 +1,19 @@
 package com.cascade.smppmls.api;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 import jakarta.validation.Valid;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,6 +22,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.cascade.smppmls.service.SubmissionService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api")
@@ -20,10 +33,14 @@ public class SmsController {
 
     private static final Logger logger = LoggerFactory.getLogger(SmsController.class);
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final SubmissionService submissionService;
+    private final ObjectMapper objectMapper;
 
-    public SmsController(SubmissionService submissionService) {
+    public SmsController(SubmissionService submissionService, ObjectMapper objectMapper) {
         this.submissionService = submissionService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/v1/sms/submit")
@@ -32,6 +49,67 @@ public class SmsController {
         return ResponseEntity.ok(resp);
     }
 
+    /**
+     * Bulk submit, JSON array body. Items are validated individually: 200 when all were accepted,
+     * 207 with per-item errors when some were rejected.
+     */
+    @PostMapping(value = "/v1/sms/submit/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchSubmitResponse> submitBatch(InputStream body) throws IOException {
+        // streamed item by item, so an oversized batch is refused before it is all in memory
+        int max = submissionService.getMaxBatchSize();
+        List<SubmitRequest> requests = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Batch body must be a JSON array");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) throw new IllegalArgumentException("Unterminated JSON array");
+                if (requests.size() == max) {
+                    throw new IllegalArgumentException("Batch size exceeds maximum " + max);
+                }
+                requests.add(objectMapper.readValue(parser, SubmitRequest.class));
+            }
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Malformed JSON batch: " + ex.getOriginalMessage());
+        }
+        return batchResponse(submissionService.submitBatch(requests));
+    }
+
+    /**
+     * Bulk submit, NDJSON body (one SubmitRequest per line). A malformed line rejects only that item.
+     */
+    @PostMapping(value = "/v1/sms/submit/batch", consumes = APPLICATION_NDJSON)
+    public ResponseEntity<BatchSubmitResponse> submitBatchNdjson(InputStream body) throws IOException {
+        int max = submissionService.getMaxBatchSize();
+        List<SubmitRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (requests.size() == max) {
+                    throw new IllegalArgumentException("Batch size exceeds maximum " + max);
+                }
+                requests.add(parseLine(line));
+            }
+        }
+        return batchResponse(submissionService.submitBatch(requests));
+    }
+
+    private SubmitRequest parseLine(String line) {
+        try {
+            return objectMapper.readValue(line, SubmitRequest.class);
+        } catch (IOException ex) {
+            logger.debug("Malformed NDJSON line: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private static ResponseEntity<BatchSubmitResponse> batchResponse(BatchSubmitResponse resp) {
+        HttpStatus status = resp.getRejected() == 0 ? HttpStatus.OK : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(resp);
+    }
+
     @PostMapping("/sms/send")
     public ResponseEntity<SubmitResponse> sendSms(@Valid @RequestBody SubmitRequest req) {
         SubmitResponse resp = submissionService.submit(req);
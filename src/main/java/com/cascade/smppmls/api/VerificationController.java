@@ -25,7 +25,7 @@ public class VerificationController {
         Map<String, Object> result = new LinkedHashMap<>();
         
         // 1. Overall status by priority
-        String sql = "SELECT priority, status, COUNT(*) as count FROM sms_outbound GROUP BY priority, status ORDER BY priority DESC, status";
+        String sql = "SELECT priority, status, COUNT(*) as count FROM sms_outbound_all GROUP BY priority, status ORDER BY priority DESC, status";
         List<Map<String, Object>> statusBreakdown = jdbcTemplate.queryForList(sql);
         result.put("statusBreakdown", statusBreakdown);
         
@@ -51,7 +51,7 @@ public class VerificationController {
     public Map<String, Object> getSessionDistribution() {
         Map<String, Object> result = new LinkedHashMap<>();
         
-        String sql = "SELECT session_id, priority, COUNT(*) as count FROM sms_outbound WHERE session_id IS NOT NULL GROUP BY session_id, priority ORDER BY session_id, priority DESC";
+        String sql = "SELECT session_id, priority, COUNT(*) as count FROM sms_outbound_all WHERE session_id IS NOT NULL GROUP BY session_id, priority ORDER BY session_id, priority DESC";
         List<Map<String, Object>> distribution = jdbcTemplate.queryForList(sql);
         result.put("sessionDistribution", distribution);
         
@@ -64,8 +64,8 @@ public class VerificationController {
         
         // HP vs NP percentage
         String sql = "SELECT priority, COUNT(*) as count, " +
-                     "ROUND(COUNT(*) * 100.0 / (SELECT COUNT(*) FROM sms_outbound WHERE status = 'SENT'), 2) as percentage " +
-                     "FROM sms_outbound WHERE status = 'SENT' GROUP BY priority";
+                     "ROUND(COUNT(*) * 100.0 / (SELECT COUNT(*) FROM sms_outbound_all WHERE status = 'SENT'), 2) as percentage " +
+                     "FROM sms_outbound_all WHERE status = 'SENT' GROUP BY priority";
         
         try {
             List<Map<String, Object>> priorityStats = jdbcTemplate.queryForList(sql);
@@ -89,7 +89,7 @@ public class VerificationController {
         
         // First 20 sent messages to verify HP sent first
         String timelineSql = "SELECT id, msisdn, LEFT(message, 30) as message, priority, status, created_at " +
-                            "FROM sms_outbound WHERE status IN ('SENT', 'DELIVERED') ORDER BY created_at ASC LIMIT 20";
+                            "FROM sms_outbound_all WHERE status IN ('SENT', 'DELIVERED') ORDER BY created_at ASC LIMIT 20";
         List<Map<String, Object>> timeline = jdbcTemplate.queryForList(timelineSql);
         result.put("firstSentMessages", timeline);
         
@@ -113,7 +113,7 @@ public class VerificationController {
                      "SUM(CASE WHEN status = 'SENT' THEN 1 ELSE 0 END) as sent, " +
                      "SUM(CASE WHEN priority = 'HIGH' THEN 1 ELSE 0 END) as hp_count, " +
                      "SUM(CASE WHEN priority = 'NORMAL' THEN 1 ELSE 0 END) as np_count " +
-                     "FROM sms_outbound " +
+                     "FROM sms_outbound_all " +
                      "GROUP BY CASE " +
                      "  WHEN msisdn LIKE '%9320%' OR msisdn LIKE '%9325%' THEN 'AFTEL' " +
                      "  WHEN msisdn LIKE '%9379%' OR msisdn LIKE '%9377%' OR msisdn LIKE '%9372%' THEN 'Roshan' " +
@@ -140,7 +140,7 @@ public class VerificationController {
         result.put("routing", getRoutingAnalysis());
         
         // Add retry analysis
-        String retrySql = "SELECT retry_count, COUNT(*) as count FROM sms_outbound WHERE retry_count > 0 GROUP BY retry_count ORDER BY retry_count";
+        String retrySql = "SELECT retry_count, COUNT(*) as count FROM sms_outbound_all WHERE retry_count > 0 GROUP BY retry_count ORDER BY retry_count";
         List<Map<String, Object>> retries = jdbcTemplate.queryForList(retrySql);
         result.put("retries", retries.isEmpty() ? "No retries - all successful" : retries);
         
@@ -0,0 +1,64 @@
+package com.cascade.smppmls.campaign;
+
+import java.util.List;
+
+import com.cascade.smppmls.api.SubmitRequest;
+
+/**
+ * Line formats accepted for campaign uploads
+ */
+public enum CampaignFormat {
+
+    /** One SubmitRequest JSON object per line */
+    NDJSON,
+
+    /** Header line with msisdn,message[,priority][,clientMsgId] columns, one recipient per line */
+    CSV;
+
+    public static CampaignFormat fromContentType(String contentType, String filename) {
+        String type = contentType != null ? contentType.toLowerCase() : "";
+        String name = filename != null ? filename.toLowerCase() : "";
+        if (type.contains("csv") || name.endsWith(".csv")) return CSV;
+        if (type.contains("ndjson") || type.contains("x-jsonlines") || name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+        throw new IllegalArgumentException("Unsupported campaign format: " + (contentType != null ? contentType : filename));
+    }
+
+    /**
+     * Column positions of a CSV upload, taken from its header line
+     */
+    record CsvColumns(int msisdn, int message, int priority, int clientMsgId) {
+
+        static CsvColumns fromHeader(String headerLine) {
+            List<String> names = CsvLineParser.parse(headerLine);
+            int msisdn = -1, message = -1, priority = -1, clientMsgId = -1;
+            for (int i = 0; i < names.size(); i++) {
+                switch (names.get(i).trim().toLowerCase()) {
+                    case "msisdn" -> msisdn = i;
+                    case "message" -> message = i;
+                    case "priority" -> priority = i;
+                    case "clientmsgid", "client_msg_id" -> clientMsgId = i;
+                    default -> { }
+                }
+            }
+            if (msisdn < 0 || message < 0) {
+                throw new IllegalArgumentException("CSV header must contain msisdn and message columns");
+            }
+            return new CsvColumns(msisdn, message, priority, clientMsgId);
+        }
+
+        SubmitRequest toRequest(String line) {
+            List<String> fields = CsvLineParser.parse(line);
+            SubmitRequest req = new SubmitRequest();
+            req.setMsisdn(field(fields, msisdn));
+            req.setMessage(field(fields, message));
+            String p = field(fields, priority);
+            if (p != null && !p.isBlank()) req.setPriority(p.trim().toUpperCase());
+            req.setClientMsgId(field(fields, clientMsgId));
+            return req;
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index >= 0 && index < fields.size() ? fields.get(index) : null;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.cascade.smppmls.campaign;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.cascade.smppmls.api.BatchSubmitResponse;
+import com.cascade.smppmls.api.SubmitRequest;
+import com.cascade.smppmls.service.SubmissionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streaming campaign ingestion.
+ *
+ * The upload is spooled to a temp file as it arrives (the request body is never held in memory),
+ * then a worker reads it line by line and feeds fixed-size chunks through
+ * {@link SubmissionService#submitBatch}, which validates, routes and batch-inserts them. Heap use
+ * is bounded by one chunk regardless of the file size; progress is exposed on the job.
+ */
+@Slf4j
+@Service
+public class CampaignIngestionService {
+
+    private final SubmissionService submissionService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final Path spoolDir;
+    private final int maxTrackedJobs;
+    private final ExecutorService workers;
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> jobOrder = new ConcurrentLinkedQueue<>();
+
+    public CampaignIngestionService(SubmissionService submissionService, ObjectMapper objectMapper,
+                                    @Value("${sms.campaign.chunk-size:1000}") int chunkSize,
+                                    @Value("${sms.campaign.spool-dir:${java.io.tmpdir}}") String spoolDir,
+                                    @Value("${sms.campaign.workers:2}") int workers,
+                                    @Value("${sms.campaign.max-tracked-jobs:100}") int maxTrackedJobs) {
+        this.submissionService = submissionService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, submissionService.getMaxBatchSize()));
+        this.spoolDir = Path.of(spoolDir);
+        this.maxTrackedJobs = Math.max(1, maxTrackedJobs);
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+            Thread t = new Thread(r, "campaign-ingest");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Spool the upload to disk and start processing it in the background.
+     * @return the job, in RECEIVED state
+     */
+    public IngestionJob ingest(InputStream body, CampaignFormat format) throws IOException {
+        Files.createDirectories(spoolDir);
+        Path spool = Files.createTempFile(spoolDir, "campaign-", ".spool");
+        long bytes;
+        try (InputStream in = body; OutputStream out = Files.newOutputStream(spool)) {
+            bytes = in.transferTo(out);
+        } catch (IOException ex) {
+            Files.deleteIfExists(spool);
+            throw ex;
+        }
+
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), format);
+        register(job);
+        log.info("Campaign job {} received: {} bytes of {}", job.getId(), bytes, format);
+        workers.execute(() -> process(job, spool, bytes));
+        return job;
+    }
+
+    public Optional<IngestionJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public Collection<IngestionJob> getJobs() {
+        return jobOrder.stream().map(jobs::get).filter(j -> j != null).toList();
+    }
+
+    void process(IngestionJob job, Path spool, long bytes) {
+        job.started(bytes);
+        Exception failure = null;
+        try {
+            read(job, spool);
+        } catch (Exception ex) {
+            failure = ex;
+        }
+        // the spool goes before the job reports finished, so a finished job leaves nothing behind
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException ex) {
+            log.warn("Could not delete spool file {}: {}", spool, ex.getMessage());
+        }
+        if (failure == null) {
+            job.completed();
+            log.info("Campaign job {} completed: lines={}, accepted={}, rejected={}",
+                job.getId(), job.getLines(), job.getAccepted(), job.getRejected());
+        } else {
+            log.error("Campaign job {} failed after {} lines: {}", job.getId(), job.getLines(), failure.getMessage(), failure);
+            job.failed(failure.getMessage());
+        }
+    }
+
+    private void read(IngestionJob job, Path spool) throws IOException {
+        List<SubmitRequest> chunk = new ArrayList<>(chunkSize);
+        long[] chunkLines = new long[chunkSize];
+        try (BufferedReader reader = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+            CampaignFormat.CsvColumns columns = null;
+            long lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                if (job.getFormat() == CampaignFormat.CSV && columns == null) {
+                    columns = CampaignFormat.CsvColumns.fromHeader(line);
+                    continue;
+                }
+                job.lineRead();
+                try {
+                    SubmitRequest req = columns != null ? columns.toRequest(line) : objectMapper.readValue(line, SubmitRequest.class);
+                    chunkLines[chunk.size()] = lineNo;
+                    chunk.add(req);
+                } catch (Exception ex) {
+                    job.rejected(lineNo, "Malformed line: " + ex.getMessage());
+                    continue;
+                }
+                if (chunk.size() == chunkSize) submitChunk(job, chunk, chunkLines);
+            }
+            submitChunk(job, chunk, chunkLines);
+        }
+    }
+
+    private void submitChunk(IngestionJob job, List<SubmitRequest> chunk, long[] chunkLines) {
+        if (chunk.isEmpty()) return;
+        BatchSubmitResponse resp = submissionService.submitBatch(chunk);
+        job.accepted(resp.getAccepted());
+        for (BatchSubmitResponse.Item item : resp.getResults()) {
+            if (item.getError() != null) job.rejected(chunkLines[item.getIndex()], item.getError());
+        }
+        chunk.clear();
+    }
+
+    private void register(IngestionJob job) {
+        jobs.put(job.getId(), job);
+        jobOrder.add(job.getId());
+        // forget the oldest finished jobs beyond the tracking limit
+        while (jobs.size() > maxTrackedJobs) {
+            String oldest = jobOrder.stream().filter(id -> jobs.get(id) != null && jobs.get(id).isFinished()).findFirst().orElse(null);
+            if (oldest == null) break;
+            jobOrder.remove(oldest);
+            jobs.remove(oldest);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Campaign ingestion workers did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
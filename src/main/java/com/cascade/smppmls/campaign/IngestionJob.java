@@ -0,0 +1,132 @@
+package com.cascade.smppmls.campaign;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one campaign upload. Counters are updated by the ingestion worker while
+ * clients poll the job resource; only the item errors of the first {@link #MAX_ERRORS}
+ * rejected lines are kept, in source-line order.
+ */
+public class IngestionJob {
+
+    public static final int MAX_ERRORS = 100;
+
+    public enum Status {
+        RECEIVED, RUNNING, COMPLETED, FAILED
+    }
+
+    public record ItemError(long line, String error) {}
+
+    private final String id;
+    private final CampaignFormat format;
+    private final Instant createdAt = Instant.now();
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final List<ItemError> errors = new ArrayList<>();
+
+    private volatile Status status = Status.RECEIVED;
+    private volatile long bytes;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String failure;
+
+    public IngestionJob(String id, CampaignFormat format) {
+        this.id = id;
+        this.format = format;
+    }
+
+    void started(long spooledBytes) {
+        this.bytes = spooledBytes;
+        this.startedAt = Instant.now();
+        this.status = Status.RUNNING;
+    }
+
+    void completed() {
+        this.finishedAt = Instant.now();
+        this.status = Status.COMPLETED;
+    }
+
+    void failed(String reason) {
+        this.failure = reason;
+        this.finishedAt = Instant.now();
+        this.status = Status.FAILED;
+    }
+
+    void lineRead() {
+        lines.incrementAndGet();
+    }
+
+    void accepted(long count) {
+        accepted.addAndGet(count);
+    }
+
+    void rejected(long line, String error) {
+        rejected.incrementAndGet();
+        synchronized (errors) {
+            // malformed lines are rejected as read, submit rejections only when their chunk is flushed
+            int at = errors.size();
+            while (at > 0 && errors.get(at - 1).line() > line) at--;
+            if (at >= MAX_ERRORS) return;
+            errors.add(at, new ItemError(line, error));
+            if (errors.size() > MAX_ERRORS) errors.remove(MAX_ERRORS);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public CampaignFormat getFormat() {
+        return format;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getLines() {
+        return lines.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public List<ItemError> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+}
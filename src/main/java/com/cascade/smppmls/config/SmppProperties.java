@@ -1,5 +1,6 @@
 package com.cascade.smppmls.config;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,13 +15,132 @@ public class SmppProperties {
 
     private Default defaultConfig = new Default();
     private Map<String, Operator> operators;
+    private Dispatch dispatch = new Dispatch();
+    private Adaptive adaptive = new Adaptive();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Dlr dlr = new Dlr();
+    private Mnp mnp = new Mnp();
+    private Retry retry = new Retry();
+    private Archive archive = new Archive();
+
+    // application.yml uses "smpp.default"; "default" is a Java keyword so expose it via accessors
+    public Default getDefault() {
+        return defaultConfig;
+    }
+
+    public void setDefault(Default defaultConfig) {
+        this.defaultConfig = defaultConfig;
+    }
 
     @Data
     public static class Default {
         private String systemType = "OTA";
         private int enquireLinkInterval = 30000;
         private int reconnectDelay = 5000;
-        private int windowSize = 100;
+        private int windowSize = 100; // Max outstanding submit_sm per bind
+        private int requestExpiryTimeout = 10000; // submit_sm_resp timeout per window slot (ms)
+    }
+
+    @Data
+    public static class Dispatch {
+        private int queueCapacity = 100_000; // Max in-memory messages per session queue
+        private int rehydrateBatchSize = 1000; // Rows per page when loading QUEUED rows from DB
+        private long pacingResolutionMs = 10; // Sender tick; submits are spread evenly across the second
+        private String instanceId; // Lease owner prefix; defaults to pid@host
+        private long leaseTimeoutMs = 60_000; // IN_FLIGHT lease; must exceed the submit_sm_resp timeout
+        private long leaseReclaimIntervalMs = 5000; // How often expired leases are reclaimed
+        private int leaseReclaimBatchSize = 1000; // Max expired leases returned to QUEUED per pass
+        private boolean lateBinding = false; // Queue per operator; the session is chosen when a bind pulls the message
+    }
+
+    @Data
+    public static class Adaptive {
+        private boolean enabled = true; // AIMD rate control on throttling and latency
+        private double decreaseFactor = 0.5; // Multiplier applied on ESME_RTHROTTLED / ESME_RMSGQFUL
+        private double increaseStepPercentage = 5; // Additive probe step as % of configured TPS
+        private double minTpsPercentage = 10; // Never go below this % of configured TPS
+        private long latencyThresholdMs = 2000; // Back off when average submit_sm_resp latency exceeds this
+        private long cooldownMs = 1000; // Min time between two decreases
+        private long probeIntervalMs = 1000; // Time between two additive increases
+    }
+
+    @Data
+    public static class WriteBehind {
+        private int batchSize = 500; // Submit results per JDBC batch UPDATE
+        private long maxDelayMs = 50; // Flush a partial batch after this delay
+        private int capacity = 50_000; // Buffered results before submit threads block
+        private long shutdownTimeoutMs = 30_000; // Max wait for the final flush on shutdown
+    }
+
+    @Data
+    public static class Dlr {
+        private int capacity = 100_000; // Buffered receipts before deliver_sm is answered with ESME_RMSGQFUL
+        private int batchSize = 500; // Receipts correlated and written per batch
+        private long maxDelayMs = 20; // Process a partial batch after this delay
+        private int consumers = 2; // Consumer threads; receipts are partitioned by smsc_msg_id
+        private long enqueueTimeoutMs = 50; // Max wait of a receiver thread for buffer space
+        private long shutdownTimeoutMs = 30_000; // Max wait for the final drain on shutdown
+        private int correlationCacheSize = 2_000_000; // smsc_msg_id -> outbound id entries kept in memory
+        private long correlationTtlMs = 172_800_000; // Keep entries as long as a DLR can arrive (validity period)
+        private long parkTtlMs = 30_000; // How long an unmatched DLR waits for its submit_sm_resp
+        private int parkCapacity = 50_000; // Max parked DLRs; beyond that unmatched receipts are dropped
+        private long parkSweepIntervalMs = 1000; // How often expired parked DLRs get their last lookup
+    }
+
+    @Data
+    public static class Mnp {
+        private boolean enabled = false; // Route ported numbers by the MNP cache before prefix matching
+        private String file; // Full export, one "msisdn,operator" per line
+        private String deltaFile; // Append-only changes in the same format; "msisdn,-" removes a port
+        private long reloadIntervalMs = 60_000; // How often both files are checked for changes
+        private int expectedEntries = 1_000_000; // Initial capacity of the in-memory map
+    }
+
+    public enum RetryCurve {
+        IMMEDIATE, // Next wheel tick
+        EXPONENTIAL, // base-delay-ms * 2^(retry-1), +/- jitter-percentage
+        DECORRELATED_JITTER // Random between base-delay-ms and 3x the previous delay
+    }
+
+    @Data
+    public static class Retry {
+        private int maxAttempts = 5; // Retries before a message is FAILED
+        private RetryCurve curve = RetryCurve.EXPONENTIAL;
+        private long baseDelayMs = 1000;
+        private long maxDelayMs = 60_000; // Cap of a single backoff
+        private double jitterPercentage = 10; // Spread of the exponential curve
+        private long validityMs = 86_400_000; // No retry is scheduled past created_at + validity
+        private Map<String, RetryRule> codes = new HashMap<>(); // Per command_status ("0x00000058", "transport")
+        private long tickMs = 100; // Retry timing wheel resolution; a retry fires at most this late
+        private int wheelSize = 1024; // Wheel buckets; one revolution covers wheel-size * tick-ms
+        private int capacity = 500_000; // Max retries held in memory; the rest wait in the DB for the sweep
+        private int batchSize = 1000; // Due retries requeued per set-based UPDATE
+        private long sweepIntervalMs = 60_000; // Safety-net scan for RETRY rows missing from the wheel
+        private int sweepMaxBatchSize = 20_000; // Sweep pass size grows from batch-size up to this while a backlog lasts
+    }
+
+    @Data
+    public static class Archive {
+        private boolean enabled = true; // Move finished messages from sms_outbound to sms_outbound_history
+        private long intervalMs = 10_000; // Pause between archive runs
+        private long settleMs = 3_600_000; // Finished rows stay hot this long (late receipts, recent dashboards)
+        private long dlrWaitMs = 172_800_000; // SENT rows without a final receipt are archived after this
+        private int batchSize = 5000; // Rows moved per statement
+        private int maxBatchesPerRun = 100; // Bound on one run; the rest waits for the next
+        private int partitionsAhead = 2; // PostgreSQL monthly history partitions created in advance
+    }
+
+    /**
+     * Retry override for an operator or a command_status; unset fields inherit the next level
+     */
+    @Data
+    public static class RetryRule {
+        private Boolean retryable; // Defaults to false for permanent errors (invalid address, data coding, ...)
+        private RetryCurve curve;
+        private Integer maxAttempts;
+        private Long baseDelayMs;
+        private Long maxDelayMs;
+        private Long validityMs;
     }
 
     @Data
@@ -29,6 +149,10 @@ public class SmppProperties {
         private int port = 2775;
         private List<Session> sessions;
         private List<String> prefixes;
+        private Integer windowSize; // Overrides smpp.default.window-size for this operator
+        private Integer requestExpiryTimeout; // Overrides smpp.default.request-expiry-timeout (ms)
+        private RetryRule retry; // Overrides smpp.retry for this operator
+        private Map<String, RetryRule> retryCodes; // Overrides smpp.retry.codes for this operator
     }
 
     @Data
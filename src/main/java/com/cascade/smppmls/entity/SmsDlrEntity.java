@@ -7,6 +7,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import lombok.AllArgsConstructor;
@@ -20,7 +21,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class SmsDlrEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence (not IDENTITY) so Hibernate can batch inserts; allocation size matches the JDBC batch size
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sms_dlr_id")
+    @SequenceGenerator(name = "sms_dlr_id", sequenceName = "sms_dlr_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "sms_outbound_id")
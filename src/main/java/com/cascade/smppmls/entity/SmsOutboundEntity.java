@@ -9,7 +9,9 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,7 +19,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "sms_outbound")
+@Table(name = "sms_outbound") // schema and indexes: db/migration
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,7 +27,9 @@ import lombok.NoArgsConstructor;
 public class SmsOutboundEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence (not IDENTITY) so Hibernate can batch inserts; allocation size matches the JDBC batch size
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sms_outbound_id")
+    @SequenceGenerator(name = "sms_outbound_id", sequenceName = "sms_outbound_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "client_msg_id", length = 64)
@@ -66,6 +70,12 @@ public class SmsOutboundEntity {
     @Column(name = "last_attempt_at")
     private Instant lastAttemptAt;
 
+    @Column(name = "lease_owner", length = 128)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+
     @Column(name = "encoding", length = 20)
     private String encoding;
 
@@ -90,6 +100,10 @@ public class SmsOutboundEntity {
     @Column(name = "submit_response_time_ms")
     private Long submitResponseTimeMs;
 
+    // set on rows read from sms_outbound_history; archived rows are read-only
+    @Transient
+    private Instant archivedAt;
+
     @PrePersist
     public void prePersist() {
         if (createdAt == null) createdAt = Instant.now();
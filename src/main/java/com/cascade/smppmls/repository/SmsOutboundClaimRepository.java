@@ -0,0 +1,244 @@
+package com.cascade.smppmls.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Set-based claim/lease and reassignment operations on sms_outbound.
+ *
+ * A claim moves QUEUED rows to IN_FLIGHT with a lease owner and expiry in one UPDATE, so a row
+ * can only be handed to one sender. On PostgreSQL the candidate rows are locked with
+ * FOR UPDATE SKIP LOCKED and the claimed ids come back via RETURNING; other databases (H2)
+ * use a plain guarded UPDATE and read the claimed ids back by lease owner only when some
+ * rows were lost to a concurrent claim. RETRY transitions there lock their rows with
+ * SELECT ... FOR UPDATE and update them in the same transaction.
+ */
+@Slf4j
+@Repository
+public class SmsOutboundClaimRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Boolean postgres;
+
+    public SmsOutboundClaimRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Claim the given QUEUED rows for a sender.
+     * @param leaseOwner unique token for this claim (owner + batch sequence)
+     * @return ids that were actually claimed; rows no longer QUEUED or locked by another claimer are skipped
+     */
+    public List<Long> claim(Collection<Long> ids, String leaseOwner, Instant leaseExpiresAt) {
+        return claim(ids, leaseOwner, leaseExpiresAt, null);
+    }
+
+    /**
+     * Claim the given QUEUED rows for a sender and bind them to its session.
+     * @param sessionId session that will submit the rows; null keeps the session already on the row
+     * @return ids that were actually claimed; rows no longer QUEUED or locked by another claimer are skipped
+     */
+    public List<Long> claim(Collection<Long> ids, String leaseOwner, Instant leaseExpiresAt, String sessionId) {
+        if (ids == null || ids.isEmpty()) return Collections.emptyList();
+        String in = placeholders(ids.size());
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp expires = Timestamp.from(leaseExpiresAt);
+
+        List<Object> args = new ArrayList<>(ids.size() + 4);
+        args.add(leaseOwner);
+        args.add(expires);
+        args.add(sessionId);
+        args.add(now);
+        args.addAll(ids);
+
+        if (isPostgres()) {
+            String sql = "UPDATE sms_outbound SET status = 'IN_FLIGHT', lease_owner = ?, lease_expires_at = ?, " +
+                         "session_id = COALESCE(?, session_id), updated_at = ? " +
+                         "WHERE id IN (SELECT id FROM sms_outbound WHERE id IN (" + in + ") AND status = 'QUEUED' " +
+                         "FOR UPDATE SKIP LOCKED) RETURNING id";
+            return jdbcTemplate.queryForList(sql, Long.class, args.toArray());
+        }
+
+        String sql = "UPDATE sms_outbound SET status = 'IN_FLIGHT', lease_owner = ?, lease_expires_at = ?, " +
+                     "session_id = COALESCE(?, session_id), updated_at = ? " +
+                     "WHERE id IN (" + in + ") AND status = 'QUEUED'";
+        int updated = jdbcTemplate.update(sql, args.toArray());
+        if (updated == ids.size()) {
+            return new ArrayList<>(ids);
+        }
+        if (updated == 0) {
+            return Collections.emptyList();
+        }
+        // partial claim: read back which rows carry our lease token
+        List<Object> selectArgs = new ArrayList<>(ids.size() + 1);
+        selectArgs.add(leaseOwner);
+        selectArgs.addAll(ids);
+        return jdbcTemplate.queryForList(
+            "SELECT id FROM sms_outbound WHERE lease_owner = ? AND status = 'IN_FLIGHT' AND id IN (" + in + ")",
+            Long.class, selectArgs.toArray());
+    }
+
+    /**
+     * Return IN_FLIGHT rows whose lease expired (sender crashed or lost its session) to QUEUED.
+     * @return ids of reclaimed rows
+     */
+    public List<Long> reclaimExpired(Instant now, int limit) {
+        Timestamp ts = Timestamp.from(now);
+        if (isPostgres()) {
+            String sql = "UPDATE sms_outbound SET status = 'QUEUED', lease_owner = NULL, lease_expires_at = NULL, updated_at = ? " +
+                         "WHERE id IN (SELECT id FROM sms_outbound WHERE status = 'IN_FLIGHT' AND lease_expires_at < ? " +
+                         "ORDER BY lease_expires_at LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING id";
+            return jdbcTemplate.queryForList(sql, Long.class, ts, ts, limit);
+        }
+
+        List<Long> expired = jdbcTemplate.queryForList(
+            "SELECT id FROM sms_outbound WHERE status = 'IN_FLIGHT' AND lease_expires_at < ? ORDER BY lease_expires_at LIMIT ?",
+            Long.class, ts, limit);
+        if (expired.isEmpty()) return expired;
+
+        List<Object> args = new ArrayList<>(expired.size() + 2);
+        args.add(ts);
+        args.add(ts);
+        args.addAll(expired);
+        jdbcTemplate.update(
+            "UPDATE sms_outbound SET status = 'QUEUED', lease_owner = NULL, lease_expires_at = NULL, updated_at = ? " +
+            "WHERE status = 'IN_FLIGHT' AND lease_expires_at < ? AND id IN (" + placeholders(expired.size()) + ")",
+            args.toArray());
+        return expired;
+    }
+
+    /**
+     * Requeue the given RETRY rows that still have attempts left, in one UPDATE.
+     * @param exhausted SQL condition, true for a row out of attempts (see {@code RetryPolicy#exhaustedSql})
+     * @return ids that were requeued; rows no longer in RETRY (requeued elsewhere, rerouted) are skipped
+     */
+    public List<Long> requeueRetries(Collection<Long> ids, String exhausted, List<Object> exhaustedArgs) {
+        if (ids == null || ids.isEmpty()) return Collections.emptyList();
+        return retryTransition("QUEUED", "id IN (" + placeholders(ids.size()) + ")", new ArrayList<>(ids), "NOT (" + exhausted + ")", exhaustedArgs, null);
+    }
+
+    /**
+     * Fail the given RETRY rows that are out of attempts, in one UPDATE.
+     * @return ids that were failed
+     */
+    public List<Long> failRetries(Collection<Long> ids, String exhausted, List<Object> exhaustedArgs) {
+        if (ids == null || ids.isEmpty()) return Collections.emptyList();
+        return retryTransition("FAILED", "id IN (" + placeholders(ids.size()) + ")", new ArrayList<>(ids), exhausted, exhaustedArgs, null);
+    }
+
+    /**
+     * Requeue up to {@code limit} RETRY rows due before {@code dueBefore} that still have attempts left.
+     * @return ids that were requeued, earliest due first
+     */
+    public List<Long> requeueDueRetries(Instant dueBefore, String exhausted, List<Object> exhaustedArgs, int limit) {
+        return retryTransition("QUEUED", "next_retry_at < ?", List.of(Timestamp.from(dueBefore)), "NOT (" + exhausted + ")", exhaustedArgs, limit);
+    }
+
+    /**
+     * Fail up to {@code limit} RETRY rows due before {@code dueBefore} that are out of attempts.
+     * @return ids that were failed
+     */
+    public List<Long> failDueRetries(Instant dueBefore, String exhausted, List<Object> exhaustedArgs, int limit) {
+        return retryTransition("FAILED", "next_retry_at < ?", List.of(Timestamp.from(dueBefore)), exhausted, exhaustedArgs, limit);
+    }
+
+    // RETRY -> target for the rows matching both conditions; PostgreSQL in one statement, others lock, then update
+    private List<Long> retryTransition(String target, String candidates, List<Object> candidateArgs,
+                                       String condition, List<Object> conditionArgs, Integer limit) {
+        Timestamp now = Timestamp.from(Instant.now());
+        String where = "status = 'RETRY' AND " + candidates + " AND " + condition;
+        List<Object> whereArgs = new ArrayList<>(candidateArgs.size() + conditionArgs.size() + 1);
+        whereArgs.addAll(candidateArgs);
+        whereArgs.addAll(conditionArgs);
+        String order = limit != null ? " ORDER BY next_retry_at LIMIT ?" : "";
+        if (limit != null) whereArgs.add(limit);
+
+        if (isPostgres()) {
+            List<Object> args = new ArrayList<>(whereArgs.size() + 2);
+            args.add(target);
+            args.add(now);
+            args.addAll(whereArgs);
+            return jdbcTemplate.queryForList(
+                "UPDATE sms_outbound SET status = ?, next_retry_at = NULL, updated_at = ? " +
+                "WHERE id IN (SELECT id FROM sms_outbound WHERE " + where + order + " FOR UPDATE SKIP LOCKED) RETURNING id",
+                Long.class, args.toArray());
+        }
+
+        List<Long> moved = transactionTemplate.execute(status -> {
+            List<Long> matched = jdbcTemplate.queryForList("SELECT id FROM sms_outbound WHERE " + where + order + " FOR UPDATE",
+                Long.class, whereArgs.toArray());
+            if (matched.isEmpty()) return matched;
+            String in = placeholders(matched.size());
+            List<Object> args = new ArrayList<>(matched.size() + 2);
+            args.add(target);
+            args.add(now);
+            args.addAll(matched);
+            int updated = jdbcTemplate.update(
+                "UPDATE sms_outbound SET status = ?, next_retry_at = NULL, updated_at = ? WHERE status = 'RETRY' AND id IN (" + in + ")",
+                args.toArray());
+            if (updated == matched.size()) return matched;
+            // some rows left RETRY before the lock was taken: report only the ones this UPDATE moved
+            return jdbcTemplate.queryForList(
+                "SELECT id FROM sms_outbound WHERE status = ? AND updated_at = ? AND id IN (" + in + ")", Long.class, args.toArray());
+        });
+        return moved != null ? moved : Collections.emptyList();
+    }
+
+    /**
+     * Move every QUEUED row of a session to the given sessions in one UPDATE. Row {@code id} goes
+     * to {@code targetSessionIds[id mod n]}, the same spread {@link #targetFor} gives in memory.
+     * @return number of rows moved
+     */
+    public int reassignQueued(String fromSessionId, List<String> targetSessionIds) {
+        if (targetSessionIds == null || targetSessionIds.isEmpty()) return 0;
+        int n = targetSessionIds.size();
+        StringBuilder target = new StringBuilder("CASE MOD(id, ").append(n).append(")");
+        for (int i = 0; i < n; i++) target.append(" WHEN ").append(i).append(" THEN ?");
+        target.append(" END");
+
+        List<Object> args = new ArrayList<>(n + 2);
+        args.addAll(targetSessionIds);
+        args.add(Timestamp.from(Instant.now()));
+        args.add(fromSessionId);
+        return jdbcTemplate.update(
+            "UPDATE sms_outbound SET session_id = " + target + ", updated_at = ? WHERE status = 'QUEUED' AND session_id = ?",
+            args.toArray());
+    }
+
+    /**
+     * Target of a row moved by {@link #reassignQueued}
+     */
+    public static String targetFor(long id, List<String> targetSessionIds) {
+        return targetSessionIds.get((int) Math.floorMod(id, (long) targetSessionIds.size()));
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+            pg = product != null && product.toLowerCase().contains("postgres");
+            postgres = pg;
+            log.info("Outbound claim repository using {} dialect ({})", pg ? "PostgreSQL SKIP LOCKED" : "generic", product);
+        }
+        return pg;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
@@ -0,0 +1,200 @@
+package com.cascade.smppmls.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only history of finished messages (sms_outbound_history) and the move into it.
+ *
+ * A move takes a batch of rows out of sms_outbound and appends them to the history in one
+ * transaction. On PostgreSQL that is a single DELETE ... RETURNING feeding the INSERT, with the
+ * batch locked FOR UPDATE SKIP LOCKED; other databases (H2) lock the batch with SELECT ... FOR UPDATE,
+ * then copy and delete it by id. History rows read back as {@link SmsOutboundEntity} with
+ * {@code archivedAt} set; they are never updated.
+ */
+@Slf4j
+@Repository
+public class SmsOutboundHistoryRepository {
+
+    private static final String COLUMNS =
+        "id, client_msg_id, request_id, smsc_msg_id, msisdn, source_addr, message, priority, operator, session_id, " +
+        "status, retry_count, next_retry_at, last_attempt_at, lease_owner, lease_expires_at, encoding, udh, " +
+        "created_at, updated_at, sent_at, submit_sm_status, submit_sm_error, submit_response_time_ms";
+
+    // created_at is the partition key and may not be NULL in the history
+    private static final String MOVED_COLUMNS = COLUMNS.replace("created_at,", "COALESCE(created_at, updated_at, ?),");
+
+    private static final String SELECT = "SELECT " + COLUMNS + ", archived_at FROM sms_outbound_history ";
+
+    private static final RowMapper<SmsOutboundEntity> ROW_MAPPER = SmsOutboundHistoryRepository::mapRow;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Boolean postgres;
+
+    public SmsOutboundHistoryRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Move up to {@code limit} rows in one of {@code statuses}, last updated before {@code updatedBefore},
+     * oldest first, from sms_outbound to the history.
+     * @return number of rows moved
+     */
+    public int archive(Collection<String> statuses, Instant updatedBefore, int limit) {
+        if (statuses == null || statuses.isEmpty()) return 0;
+        Timestamp now = Timestamp.from(Instant.now());
+        String in = placeholders(statuses.size());
+
+        List<Object> selectArgs = new ArrayList<>(statuses.size() + 2);
+        selectArgs.addAll(statuses);
+        selectArgs.add(Timestamp.from(updatedBefore));
+        selectArgs.add(limit);
+        String candidates = "SELECT id FROM sms_outbound WHERE status IN (" + in + ") AND updated_at < ? ORDER BY updated_at LIMIT ?";
+
+        if (isPostgres()) {
+            List<Object> args = new ArrayList<>(selectArgs);
+            args.add(now);
+            args.add(now);
+            return jdbcTemplate.update(
+                "WITH moved AS (DELETE FROM sms_outbound WHERE id IN (" + candidates + " FOR UPDATE SKIP LOCKED) RETURNING *) " +
+                "INSERT INTO sms_outbound_history (" + COLUMNS + ", archived_at) SELECT " + MOVED_COLUMNS + ", ? FROM moved",
+                args.toArray());
+        }
+
+        Integer moved = transactionTemplate.execute(status -> {
+            List<Long> ids = jdbcTemplate.queryForList(candidates + " FOR UPDATE", Long.class, selectArgs.toArray());
+            if (ids.isEmpty()) return 0;
+            String idIn = placeholders(ids.size());
+            List<Object> args = new ArrayList<>(ids.size() + 2);
+            args.add(now);
+            args.add(now);
+            args.addAll(ids);
+            jdbcTemplate.update(
+                "INSERT INTO sms_outbound_history (" + COLUMNS + ", archived_at) " +
+                "SELECT " + MOVED_COLUMNS + ", ? FROM sms_outbound WHERE id IN (" + idIn + ")",
+                args.toArray());
+            return jdbcTemplate.update("DELETE FROM sms_outbound WHERE id IN (" + idIn + ")", ids.toArray());
+        });
+        return moved != null ? moved : 0;
+    }
+
+    /**
+     * Create the monthly history partitions from {@code from} for {@code months} months (PostgreSQL;
+     * no-op elsewhere). Existing partitions are left alone.
+     */
+    public void ensurePartitions(YearMonth from, int months) {
+        if (!isPostgres()) return;
+        for (int i = 0; i < months; i++) {
+            YearMonth month = from.plusMonths(i);
+            String name = String.format("sms_outbound_history_p%04d%02d", month.getYear(), month.getMonthValue());
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF sms_outbound_history " +
+                    "FOR VALUES FROM ('" + month.atDay(1) + " 00:00:00+00') TO ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')");
+            } catch (Exception ex) {
+                // the default partition already holds rows of that month
+                log.warn("Could not create history partition {}: {}", name, ex.getMessage());
+            }
+        }
+    }
+
+    public Optional<SmsOutboundEntity> findById(long id) {
+        return jdbcTemplate.query(SELECT + "WHERE id = ?", ROW_MAPPER, id).stream().findFirst();
+    }
+
+    public SmsOutboundEntity findByRequestId(String requestId) {
+        return first(jdbcTemplate.query(SELECT + "WHERE request_id = ?", ROW_MAPPER, requestId));
+    }
+
+    public SmsOutboundEntity findBySmscMsgId(String smscMsgId) {
+        return first(jdbcTemplate.query(SELECT + "WHERE smsc_msg_id = ? ORDER BY id DESC", ROW_MAPPER, smscMsgId));
+    }
+
+    public SmsOutboundEntity findByClientMsgId(String clientMsgId) {
+        return first(jdbcTemplate.query(SELECT + "WHERE client_msg_id = ?", ROW_MAPPER, clientMsgId));
+    }
+
+    public List<SmsOutboundEntity> findByClientMsgIdIn(Collection<String> clientMsgIds) {
+        if (clientMsgIds == null || clientMsgIds.isEmpty()) return Collections.emptyList();
+        return jdbcTemplate.query(SELECT + "WHERE client_msg_id IN (" + placeholders(clientMsgIds.size()) + ")",
+            ROW_MAPPER, clientMsgIds.toArray());
+    }
+
+    public List<SmsOutboundEntity> findByMsisdn(String msisdn) {
+        return jdbcTemplate.query(SELECT + "WHERE msisdn = ? ORDER BY created_at", ROW_MAPPER, msisdn);
+    }
+
+    private static SmsOutboundEntity first(List<SmsOutboundEntity> rows) {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static SmsOutboundEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return SmsOutboundEntity.builder()
+            .id(rs.getLong("id"))
+            .clientMsgId(rs.getString("client_msg_id"))
+            .requestId(rs.getString("request_id"))
+            .smscMsgId(rs.getString("smsc_msg_id"))
+            .msisdn(rs.getString("msisdn"))
+            .sourceAddr(rs.getString("source_addr"))
+            .message(rs.getString("message"))
+            .priority(rs.getString("priority"))
+            .operator(rs.getString("operator"))
+            .sessionId(rs.getString("session_id"))
+            .status(rs.getString("status"))
+            .retryCount(rs.getObject("retry_count", Integer.class))
+            .nextRetryAt(instant(rs, "next_retry_at"))
+            .lastAttemptAt(instant(rs, "last_attempt_at"))
+            .leaseOwner(rs.getString("lease_owner"))
+            .leaseExpiresAt(instant(rs, "lease_expires_at"))
+            .encoding(rs.getString("encoding"))
+            .udh(rs.getString("udh"))
+            .createdAt(instant(rs, "created_at"))
+            .updatedAt(instant(rs, "updated_at"))
+            .sentAt(instant(rs, "sent_at"))
+            .submitSmStatus(rs.getObject("submit_sm_status", Integer.class))
+            .submitSmError(rs.getString("submit_sm_error"))
+            .submitResponseTimeMs(rs.getObject("submit_response_time_ms", Long.class))
+            .archivedAt(instant(rs, "archived_at"))
+            .build();
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        Timestamp ts = rs.getTimestamp(column);
+        return ts != null ? ts.toInstant() : null;
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+            pg = product != null && product.toLowerCase().contains("postgres");
+            postgres = pg;
+        }
+        return pg;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
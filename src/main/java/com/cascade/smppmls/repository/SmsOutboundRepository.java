@@ -9,6 +9,9 @@ import com.cascade.smppmls.entity.SmsOutboundEntity;
 public interface SmsOutboundRepository extends JpaRepository<SmsOutboundEntity, Long> {
     // find by client_msg_id for idempotency
     SmsOutboundEntity findByClientMsgId(String clientMsgId);
+
+    // idempotency lookup for a whole batch in one query
+    java.util.List<SmsOutboundEntity> findByClientMsgIdIn(java.util.Collection<String> clientMsgIds);
     
     // find by request_id
     SmsOutboundEntity findByRequestId(String requestId);
@@ -25,6 +28,15 @@ public interface SmsOutboundRepository extends JpaRepository<SmsOutboundEntity,
     // find by status, session and priority
     org.springframework.data.domain.Page<SmsOutboundEntity> findByStatusAndSessionIdAndPriority(String status, String sessionId, String priority, org.springframework.data.domain.Pageable pageable);
     
+    // keyset-paged QUEUED rows of a session (dispatch queue rehydration, no COUNT query)
+    java.util.List<SmsOutboundEntity> findByStatusAndSessionIdAndIdGreaterThanOrderByIdAsc(String status, String sessionId, Long id, org.springframework.data.domain.Pageable pageable);
+    
+    // keyset-paged QUEUED rows of an operator (late-binding dispatch queue rehydration)
+    java.util.List<SmsOutboundEntity> findByStatusAndOperatorAndIdGreaterThanOrderByIdAsc(String status, String operator, Long id, org.springframework.data.domain.Pageable pageable);
+    
+    // keyset-paged rows of a status (retry wheel rehydration)
+    java.util.List<SmsOutboundEntity> findByStatusAndIdGreaterThanOrderByIdAsc(String status, Long id, org.springframework.data.domain.Pageable pageable);
+
     // find retry candidates
     org.springframework.data.domain.Page<SmsOutboundEntity> findByStatusAndNextRetryAtBefore(String status, java.time.Instant before, org.springframework.data.domain.Pageable pageable);
 }
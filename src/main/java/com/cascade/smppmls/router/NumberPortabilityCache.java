@@ -0,0 +1,235 @@
+package com.cascade.smppmls.router;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.util.LongIntHashMap;
+import com.cascade.smppmls.util.MsisdnUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory Mobile Number Portability cache.
+ *
+ * Ported numbers are kept as primitive long keys (the E.164 digits) mapped to an operator index,
+ * so resolving a message costs one or two hash probes. The full export ({@code smpp.mnp.file}) is
+ * reloaded when it changes; the append-only delta file ({@code smpp.mnp.delta-file}) is applied
+ * from the last byte read onto a small overlay, so intraday ports do not rebuild the whole map.
+ * Readers always see one consistent {@link Snapshot}; only the reload thread builds new ones.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "smpp.mnp.enabled", havingValue = "true")
+public class NumberPortabilityCache implements PortabilityResolver {
+
+    private static final int MISSING = -1;
+    private static final int REMOVED = -2; // delta tombstone: number is back on its range operator
+    private static final String REMOVE_MARKER = "-";
+
+    /**
+     * Full export plus the delta overlay applied on top of it
+     */
+    record Snapshot(LongIntHashMap ported, LongIntHashMap delta) {
+    }
+
+    private final SmppProperties.Mnp config;
+    private final String[] operators;
+    private final Map<String, Integer> operatorIndex = new HashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    private volatile Snapshot snapshot = new Snapshot(new LongIntHashMap(16), new LongIntHashMap(16));
+
+    // reload state, guarded by this
+    private long fileModified = Long.MIN_VALUE;
+    private long deltaOffset;
+
+    public NumberPortabilityCache(SmppProperties smppProperties, MeterRegistry meterRegistry) {
+        this.config = smppProperties.getMnp();
+        Map<String, SmppProperties.Operator> ops = smppProperties.getOperators();
+        this.operators = ops != null ? ops.keySet().toArray(new String[0]) : new String[0];
+        for (int i = 0; i < operators.length; i++) operatorIndex.put(operators[i], i);
+
+        this.hits = Counter.builder("smpp.mnp.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("smpp.mnp.lookups").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("smpp.mnp.entries", this, NumberPortabilityCache::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+        log.info("NumberPortabilityCache initialized with {} ported numbers", size());
+    }
+
+    @Override
+    public String resolveOperator(String e164Msisdn) {
+        long key = key(e164Msisdn);
+        Snapshot snap = snapshot;
+        int index = snap.delta().get(key, MISSING);
+        if (index == MISSING) index = snap.ported().get(key, MISSING);
+        if (index >= 0) {
+            hits.increment();
+            return operators[index];
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Snapshot snap = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", snap.ported().size());
+        stats.put("deltaEntries", snap.delta().size());
+        stats.put("hits", (long) hits.count());
+        stats.put("misses", (long) misses.count());
+        return stats;
+    }
+
+    int size() {
+        Snapshot snap = snapshot;
+        return snap.ported().size() + snap.delta().size();
+    }
+
+    /**
+     * Reload the full export if it changed, then apply whatever was appended to the delta file
+     */
+    @Scheduled(fixedDelayString = "${smpp.mnp.reload-interval-ms:60000}",
+               initialDelayString = "${smpp.mnp.reload-interval-ms:60000}")
+    public synchronized void reload() {
+        try {
+            reloadFull();
+            applyDelta();
+        } catch (Exception ex) {
+            log.error("MNP reload failed, keeping the current data: {}", ex.getMessage(), ex);
+        }
+    }
+
+    private void reloadFull() throws IOException {
+        if (config.getFile() == null || config.getFile().isBlank()) return;
+        Path file = Path.of(config.getFile());
+        if (!Files.exists(file)) {
+            log.warn("MNP file {} does not exist", file);
+            return;
+        }
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        if (modified == fileModified) return;
+
+        long start = System.currentTimeMillis();
+        LongIntHashMap ported = new LongIntHashMap(config.getExpectedEntries());
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!apply(ported, line, false)) skipped++;
+            }
+        }
+        // the delta journal is replayed on top of the new export
+        snapshot = new Snapshot(ported, new LongIntHashMap(16));
+        fileModified = modified;
+        deltaOffset = 0;
+        log.info("Loaded {} ported numbers from {} in {} ms ({} lines skipped)",
+            ported.size(), file, System.currentTimeMillis() - start, skipped);
+    }
+
+    private void applyDelta() throws IOException {
+        if (config.getDeltaFile() == null || config.getDeltaFile().isBlank()) return;
+        Path file = Path.of(config.getDeltaFile());
+        if (!Files.exists(file)) return;
+        long length = Files.size(file);
+        if (length < deltaOffset) {
+            log.info("MNP delta file {} was truncated, replaying it from the start", file);
+            deltaOffset = 0;
+        }
+        if (length == deltaOffset) return;
+
+        Snapshot current = snapshot;
+        LongIntHashMap delta = current.delta().copy();
+        int applied = 0;
+        int skipped = 0;
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            channel.position(deltaOffset);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            long position = deltaOffset;
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                // only complete lines are consumed; a line still being written is read next time
+                if (apply(delta, line.toString(StandardCharsets.UTF_8), true)) applied++;
+                else skipped++;
+                line.reset();
+                deltaOffset = position;
+            }
+        }
+        snapshot = new Snapshot(current.ported(), delta);
+        if (applied > 0 || skipped > 0) {
+            log.info("Applied {} MNP changes from {} ({} lines skipped, {} overlay entries)", applied, file, skipped, delta.size());
+        }
+    }
+
+    /**
+     * Parse one "msisdn,operator" line into the map
+     * @return false if the line was not a valid entry (comments and blank lines included)
+     */
+    private boolean apply(LongIntHashMap map, String line, boolean delta) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) return false;
+        int comma = trimmed.indexOf(',');
+        String msisdn = comma >= 0 ? trimmed.substring(0, comma) : trimmed;
+        String operator = comma >= 0 ? trimmed.substring(comma + 1).trim() : REMOVE_MARKER;
+
+        long key = key(MsisdnUtils.normalizeToE164(msisdn, "93"));
+        if (key == 0) return false;
+        if (operator.isEmpty() || REMOVE_MARKER.equals(operator)) {
+            if (!delta) return false;
+            map.put(key, REMOVED);
+            return true;
+        }
+        Integer index = operatorIndex.get(operator);
+        if (index == null) return false;
+        map.put(key, index);
+        return true;
+    }
+
+    /**
+     * The msisdn digits as a long, without allocating; 0 if there are none or too many
+     */
+    static long key(CharSequence msisdn) {
+        if (msisdn == null) return 0;
+        long key = 0;
+        int digits = 0;
+        for (int i = 0; i < msisdn.length(); i++) {
+            int digit = msisdn.charAt(i) - '0';
+            if (digit < 0 || digit > 9) continue;
+            if (++digits > 18) return 0;
+            key = key * 10 + digit;
+        }
+        return key;
+    }
+}
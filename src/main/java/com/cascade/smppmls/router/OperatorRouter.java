@@ -2,30 +2,47 @@ package com.cascade.smppmls.router;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
 import com.cascade.smppmls.config.SmppProperties;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class OperatorRouter {
 
     private final SmppProperties smppProperties;
+    // Optional MNP stage consulted before prefix matching (smpp.mnp.enabled)
+    private final PortabilityResolver portabilityResolver;
+    // Live bind state and load; without it sessions are picked round-robin
+    private final SessionLoadProvider loadProvider;
     
-    // Cache for normalized prefixes to avoid regex on every call
-    private final Map<String, String> prefixToOperator = new ConcurrentHashMap<>();
+    // Longest-prefix-match index over normalized prefixes, rebuilt as a whole in init()
+    private volatile PrefixTrie prefixIndex = PrefixTrie.EMPTY;
     private final Map<String, List<String>> operatorSessions = new ConcurrentHashMap<>();
     private final Map<String, AtomicInteger> sessionRoundRobin = new ConcurrentHashMap<>();
 
+    public OperatorRouter(SmppProperties smppProperties) {
+        this(smppProperties, null, null);
+    }
+
+    @Autowired
+    public OperatorRouter(SmppProperties smppProperties, @Nullable PortabilityResolver portabilityResolver,
+                          @Nullable SessionLoadProvider loadProvider) {
+        this.smppProperties = smppProperties;
+        this.portabilityResolver = portabilityResolver;
+        this.loadProvider = loadProvider;
+    }
+
     @PostConstruct
     public void init() {
-        log.info("Initializing OperatorRouter with prefix caching...");
+        log.info("Initializing OperatorRouter with prefix trie...");
         
         Map<String, SmppProperties.Operator> ops = smppProperties.getOperators();
         if (ops == null || ops.isEmpty()) {
@@ -33,7 +50,8 @@ public class OperatorRouter {
             return;
         }
 
-        // Pre-compute all normalized prefixes and cache them
+        // Pre-compute all normalized prefixes into the trie
+        PrefixTrie.Builder trie = PrefixTrie.builder();
         for (Map.Entry<String, SmppProperties.Operator> entry : ops.entrySet()) {
             String operatorId = entry.getKey();
             SmppProperties.Operator op = entry.getValue();
@@ -42,9 +60,11 @@ public class OperatorRouter {
             if (prefixes != null) {
                 for (String prefix : prefixes) {
                     String normalizedPrefix = prefix.replaceAll("\\D", "");
-                    if (!normalizedPrefix.isEmpty()) {
-                        prefixToOperator.put(normalizedPrefix, operatorId);
+                    if (normalizedPrefix.isEmpty()) continue;
+                    if (trie.put(normalizedPrefix, operatorId)) {
                         log.debug("Mapped prefix {} -> operator {}", normalizedPrefix, operatorId);
+                    } else {
+                        log.warn("Duplicate prefix {} for operator {} ignored", normalizedPrefix, operatorId);
                     }
                 }
             }
@@ -76,53 +96,81 @@ public class OperatorRouter {
             }
         }
         
-        log.info("OperatorRouter initialized with {} prefixes", prefixToOperator.size());
+        prefixIndex = trie.build();
+        log.info("OperatorRouter initialized with {} prefixes", prefixIndex.size());
     }
 
     /**
      * Resolve operator id and a session ID for a normalized E.164 msisdn.
      * Returns String[]{operatorId, sessionId} or null if none found.
-     * Uses round-robin load balancing across sessions.
+     * Ported numbers go to the operator from the MNP stage, others to the longest
+     * matching prefix (non-digits are skipped). The session is the less loaded of two
+     * random bound sessions of the operator (power of two choices); with late binding it
+     * is null and chosen at dispatch time.
      */
     public String[] resolve(String e164Msisdn) {
         if (e164Msisdn == null) return null;
-        
-        // Fast path: remove non-digits once
-        String digits = e164Msisdn.replaceAll("\\D", "");
-        if (digits.isEmpty()) return null;
-
-        // Find matching prefix using cached map
-        for (Map.Entry<String, String> entry : prefixToOperator.entrySet()) {
-            String prefix = entry.getKey();
-            if (digits.startsWith(prefix)) {
-                String operatorId = entry.getValue();
-                
-                // Get session using round-robin
-                List<String> sessions = operatorSessions.get(operatorId);
-                if (sessions != null && !sessions.isEmpty()) {
-                    AtomicInteger counter = sessionRoundRobin.get(operatorId);
-                    int index = Math.abs(counter.getAndIncrement() % sessions.size());
-                    String sessionId = sessions.get(index);
-                    
-                    return new String[] { operatorId, sessionId };
-                }
-            }
+        String operatorId = portabilityResolver != null ? portabilityResolver.resolveOperator(e164Msisdn) : null;
+        if (operatorId == null) operatorId = prefixIndex.longestMatch(e164Msisdn);
+        if (operatorId == null) return null;
+
+        List<String> sessions = operatorSessions.get(operatorId);
+        if (sessions == null || sessions.isEmpty()) return null;
+        if (smppProperties.getDispatch().isLateBinding()) return new String[] { operatorId, null };
+
+        String sessionId = loadProvider != null ? selectSession(sessions) : null;
+        if (sessionId == null) sessionId = nextRoundRobin(operatorId, sessions);
+        return new String[] { operatorId, sessionId };
+    }
+
+    /**
+     * Power of two choices over the available sessions
+     * @return the chosen session, or null if none of them is available
+     */
+    private String selectSession(List<String> sessions) {
+        int available = 0;
+        for (String sessionId : sessions) {
+            if (loadProvider.isAvailable(sessionId)) available++;
+        }
+        if (available == 0) return null;
+        if (available == 1) return nthAvailable(sessions, 0);
+
+        // sample two distinct available sessions and keep the less loaded one
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(available);
+        int b = random.nextInt(available - 1);
+        if (b >= a) b++;
+        String first = nthAvailable(sessions, a);
+        String second = nthAvailable(sessions, b);
+        if (first == null || second == null) return first != null ? first : second; // a bind changed state meanwhile
+        return loadProvider.loadOf(second) < loadProvider.loadOf(first) ? second : first;
+    }
+
+    private String nthAvailable(List<String> sessions, int n) {
+        for (String sessionId : sessions) {
+            if (loadProvider.isAvailable(sessionId) && n-- == 0) return sessionId;
         }
-        
         return null;
     }
-    
+
+    // no session is bound (or no load signals): keep spreading evenly until one binds
+    private String nextRoundRobin(String operatorId, List<String> sessions) {
+        AtomicInteger counter = sessionRoundRobin.get(operatorId);
+        return sessions.get(Math.floorMod(counter.getAndIncrement(), sessions.size()));
+    }
+
     /**
      * Get routing statistics
      */
     public Map<String, Object> getRoutingStats() {
         Map<String, Object> stats = new LinkedHashMap<>();
-        stats.put("totalPrefixes", prefixToOperator.size());
+        stats.put("totalPrefixes", prefixIndex.size());
         stats.put("totalOperators", operatorSessions.size());
         
         Map<String, Integer> sessionCounts = new LinkedHashMap<>();
         operatorSessions.forEach((op, sessions) -> sessionCounts.put(op, sessions.size()));
         stats.put("sessionsPerOperator", sessionCounts);
+        if (portabilityResolver != null) stats.put("mnp", portabilityResolver.getStats());
         
         return stats;
     }
@@ -135,4 +183,15 @@ public class OperatorRouter {
     public List<String> getSessionsForOperator(String operatorId) {
         return operatorSessions.getOrDefault(operatorId, List.of());
     }
+
+    /**
+     * Get the operator a session belongs to
+     * @return the operator ID, or null if the session is not configured
+     */
+    public String getOperatorForSession(String sessionId) {
+        for (Map.Entry<String, List<String>> entry : operatorSessions.entrySet()) {
+            if (entry.getValue().contains(sessionId)) return entry.getKey();
+        }
+        return null;
+    }
 }
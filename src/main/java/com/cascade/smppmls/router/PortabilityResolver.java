@@ -0,0 +1,23 @@
+package com.cascade.smppmls.router;
+
+import java.util.Map;
+
+/**
+ * Routing stage consulted by {@link OperatorRouter} before prefix matching, so numbers ported
+ * to another network are sent to the operator that currently serves them.
+ */
+public interface PortabilityResolver {
+
+    /**
+     * @param e164Msisdn normalized msisdn; non-digits are ignored
+     * @return the operator the number was ported to, or null to fall back to prefix routing
+     */
+    String resolveOperator(String e164Msisdn);
+
+    /**
+     * @return resolver statistics for the routing stats endpoint
+     */
+    default Map<String, Object> getStats() {
+        return Map.of();
+    }
+}
@@ -0,0 +1,101 @@
+package com.cascade.smppmls.router;
+
+import java.util.Arrays;
+
+/**
+ * Immutable digit trie for longest-prefix-match lookups of number ranges.
+ *
+ * Nodes are stored in flat arrays (ten child slots per node) so a lookup is a walk of at most
+ * one step per digit with no allocation. Non-digit characters in the looked-up number are
+ * skipped, which lets callers pass E.164 strings such as "+93791234567" as they are.
+ */
+final class PrefixTrie {
+
+    static final PrefixTrie EMPTY = new Builder().build();
+
+    private static final int RADIX = 10;
+
+    /** children[node * 10 + digit] = child node index, 0 = none (the root is never a child) */
+    private final int[] children;
+    private final String[] values;
+    private final int size;
+
+    private PrefixTrie(int[] children, String[] values, int size) {
+        this.children = children;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * @return the value of the longest prefix of {@code number}'s digits, or null if none matches
+     */
+    String longestMatch(CharSequence number) {
+        if (number == null) return null;
+        String match = null;
+        int node = 0;
+        for (int i = 0; i < number.length(); i++) {
+            int digit = number.charAt(i) - '0';
+            if (digit < 0 || digit >= RADIX) continue;
+            node = children[node * RADIX + digit];
+            if (node == 0) break;
+            if (values[node] != null) match = values[node];
+        }
+        return match;
+    }
+
+    /**
+     * @return number of prefixes in the trie
+     */
+    int size() {
+        return size;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+
+        private int[] children = new int[16 * RADIX];
+        private String[] values = new String[16];
+        private int nodes = 1;
+        private int size;
+
+        /**
+         * Add a digit-only prefix. An existing prefix keeps its first value.
+         * @return false if the prefix was already present
+         */
+        boolean put(String digits, String value) {
+            if (digits == null || digits.isEmpty()) throw new IllegalArgumentException("Empty prefix");
+            int node = 0;
+            for (int i = 0; i < digits.length(); i++) {
+                int digit = digits.charAt(i) - '0';
+                if (digit < 0 || digit >= RADIX) throw new IllegalArgumentException("Non-digit prefix: " + digits);
+                int slot = node * RADIX + digit;
+                int child = children[slot];
+                if (child == 0) {
+                    // newNode() may grow the arrays, so store into the current one afterwards
+                    child = newNode();
+                    children[slot] = child;
+                }
+                node = child;
+            }
+            if (values[node] != null) return false;
+            values[node] = value;
+            size++;
+            return true;
+        }
+
+        private int newNode() {
+            if (nodes == values.length) {
+                values = Arrays.copyOf(values, nodes * 2);
+                children = Arrays.copyOf(children, nodes * 2 * RADIX);
+            }
+            return nodes++;
+        }
+
+        PrefixTrie build() {
+            return new PrefixTrie(Arrays.copyOf(children, nodes * RADIX), Arrays.copyOf(values, nodes), size);
+        }
+    }
+}
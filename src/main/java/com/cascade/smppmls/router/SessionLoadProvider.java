@@ -0,0 +1,18 @@
+package com.cascade.smppmls.router;
+
+/**
+ * Live session signals used by {@link OperatorRouter} to pick a session for new traffic.
+ */
+public interface SessionLoadProvider {
+
+    /**
+     * @return true if the session is bound and has an active sender
+     */
+    boolean isAvailable(String sessionId);
+
+    /**
+     * Relative load of a session, lower is better: the seconds its queued and in-flight
+     * messages need at the current effective rate, plus its recent submit_sm_resp latency.
+     */
+    double loadOf(String sessionId);
+}
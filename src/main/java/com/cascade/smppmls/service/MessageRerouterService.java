@@ -1,124 +1,152 @@
 package com.cascade.smppmls.service;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import com.cascade.smppmls.entity.SmsOutboundEntity;
-import com.cascade.smppmls.repository.SmsOutboundRepository;
+import com.cascade.smppmls.repository.SmsOutboundClaimRepository;
 import com.cascade.smppmls.router.OperatorRouter;
+import com.cascade.smppmls.smpp.DispatchQueueRegistry;
+import com.cascade.smppmls.smpp.SessionStateChangedEvent;
 import com.cascade.smppmls.smpp.SmppSessionManager;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service to automatically reroute queued messages from stopped sessions
  * to active sessions within the same operator.
+ *
+ * Rerouting reacts to {@link SessionStateChangedEvent}s: when a bind drops its QUEUED messages
+ * move right away, and when a bind comes up it takes over what is stranded on stopped siblings.
+ * Each move is one set-based UPDATE plus an in-memory queue transfer. A slow sweep catches
+ * messages that reach a stopped session later (retries, reclaimed leases).
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MessageRerouterService {
 
-    private final SmsOutboundRepository outboundRepository;
     private final SmppSessionManager sessionManager;
     private final OperatorRouter operatorRouter;
+    private final DispatchQueueRegistry dispatchQueues;
+    private final SmsOutboundClaimRepository claimRepository;
+    private final MeterRegistry meterRegistry;
+
+    // reroutes run one at a time, off the bind loop threads that publish the events
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "message-rerouter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public MessageRerouterService(SmppSessionManager sessionManager, OperatorRouter operatorRouter,
+                                  DispatchQueueRegistry dispatchQueues, SmsOutboundClaimRepository claimRepository,
+                                  MeterRegistry meterRegistry) {
+        this.sessionManager = sessionManager;
+        this.operatorRouter = operatorRouter;
+        this.dispatchQueues = dispatchQueues;
+        this.claimRepository = claimRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener
+    public void onSessionStateChanged(SessionStateChangedEvent event) {
+        // with late binding the operator queue is drained by whichever sessions are bound
+        if (dispatchQueues.isLateBinding()) return;
+        if (!event.isUp() && !event.isDown()) return;
+        executor.execute(() -> {
+            try {
+                String operator = event.operatorId() != null ? event.operatorId() : operatorRouter.getOperatorForSession(event.sessionKey());
+                if (event.isDown()) {
+                    reroute(event.sessionKey(), operator, sessionManager.getSessionHealth());
+                } else {
+                    rerouteOperator(operator, sessionManager.getSessionHealth());
+                }
+            } catch (Exception e) {
+                log.error("Error rerouting after {} went {}: {}", event.sessionKey(), event.current(), e.getMessage(), e);
+            }
+        });
+    }
 
     /**
-     * Runs every 10 seconds to check for stopped sessions with queued messages
-     * and reassigns them to active sessions
+     * Safety net for messages that reach a stopped session after its state change
+     * (retries and reclaimed leases are enqueued on the session stored in the row)
      */
-    @Scheduled(fixedDelay = 10000, initialDelay = 30000)
-    @Transactional
+    @Scheduled(fixedDelayString = "${smpp.reroute.sweep-interval-ms:60000}", initialDelay = 30000)
     public void rerouteStoppedSessionMessages() {
+        if (dispatchQueues.isLateBinding()) return;
         try {
             Map<String, Boolean> sessionHealth = sessionManager.getSessionHealth();
-            
-            // Find stopped sessions
-            List<String> stoppedSessions = sessionHealth.entrySet().stream()
-                .filter(entry -> !entry.getValue()) // isActive = false
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-            
-            if (stoppedSessions.isEmpty()) {
-                return; // No stopped sessions, nothing to do
-            }
-            
-            log.debug("Checking {} stopped sessions for queued messages", stoppedSessions.size());
-            
             int totalRerouted = 0;
-            
-            for (String stoppedSessionKey : stoppedSessions) {
-                // Find queued messages for this stopped session
-                List<SmsOutboundEntity> queuedMessages = outboundRepository
-                    .findByStatusAndSessionId("QUEUED", stoppedSessionKey, 
-                        org.springframework.data.domain.PageRequest.of(0, 1000))
-                    .getContent();
-                
-                if (queuedMessages.isEmpty()) {
-                    continue;
-                }
-                
-                log.info("Found {} queued messages in stopped session: {}", 
-                    queuedMessages.size(), stoppedSessionKey);
-                
-                // Group messages by operator
-                Map<String, List<SmsOutboundEntity>> messagesByOperator = queuedMessages.stream()
-                    .collect(Collectors.groupingBy(msg -> msg.getOperator() != null ? msg.getOperator() : "unknown"));
-                
-                for (Map.Entry<String, List<SmsOutboundEntity>> entry : messagesByOperator.entrySet()) {
-                    String operator = entry.getKey();
-                    List<SmsOutboundEntity> messages = entry.getValue();
-                    
-                    if ("unknown".equals(operator)) {
-                        log.warn("Skipping {} messages with unknown operator from session {}", 
-                            messages.size(), stoppedSessionKey);
-                        continue;
-                    }
-                    
-                    // Get active sessions for this operator
-                    List<String> activeSessions = operatorRouter.getSessionsForOperator(operator).stream()
-                        .filter(sessionHealth::get) // Only active sessions
-                        .filter(sessionKey -> !sessionKey.equals(stoppedSessionKey)) // Exclude stopped session
-                        .collect(Collectors.toList());
-                    
-                    if (activeSessions.isEmpty()) {
-                        log.warn("No active sessions available for operator {} to reroute {} messages", 
-                            operator, messages.size());
-                        continue;
-                    }
-                    
-                    log.info("Rerouting {} messages from {} to {} active sessions: {}", 
-                        messages.size(), stoppedSessionKey, activeSessions.size(), activeSessions);
-                    
-                    // Reassign messages using round-robin
-                    int sessionIndex = 0;
-                    for (SmsOutboundEntity message : messages) {
-                        String newSessionKey = activeSessions.get(sessionIndex % activeSessions.size());
-                        message.setSessionId(newSessionKey);
-                        sessionIndex++;
-                    }
-                    
-                    // Batch save
-                    outboundRepository.saveAll(messages);
-                    totalRerouted += messages.size();
-                    
-                    log.info("Successfully rerouted {} messages from {} to active sessions", 
-                        messages.size(), stoppedSessionKey);
-                }
+            for (Map.Entry<String, Boolean> entry : sessionHealth.entrySet()) {
+                if (entry.getValue()) continue;
+                totalRerouted += reroute(entry.getKey(), operatorRouter.getOperatorForSession(entry.getKey()), sessionHealth);
             }
-            
             if (totalRerouted > 0) {
-                log.info("Message rerouting completed: {} messages reassigned from stopped sessions", 
-                    totalRerouted);
+                log.info("Message rerouting sweep completed: {} messages reassigned from stopped sessions", totalRerouted);
             }
-            
         } catch (Exception e) {
             log.error("Error during message rerouting: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * Move the messages stranded on every stopped session of an operator to its active sessions
+     */
+    int rerouteOperator(String operator, Map<String, Boolean> sessionHealth) {
+        if (operator == null) return 0;
+        int total = 0;
+        for (String sessionKey : operatorRouter.getSessionsForOperator(operator)) {
+            if (!sessionHealth.getOrDefault(sessionKey, false)) {
+                total += reroute(sessionKey, operator, sessionHealth);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Move all QUEUED messages of a stopped session to the active sessions of its operator
+     * @return number of messages moved
+     */
+    int reroute(String stoppedSessionKey, String operator, Map<String, Boolean> sessionHealth) {
+        if (operator == null) {
+            log.warn("Cannot reroute session {}: operator unknown", stoppedSessionKey);
+            return 0;
+        }
+        List<String> activeSessions = operatorRouter.getSessionsForOperator(operator).stream()
+            .filter(sessionKey -> sessionHealth.getOrDefault(sessionKey, false))
+            .filter(sessionKey -> !sessionKey.equals(stoppedSessionKey))
+            .collect(Collectors.toList());
+        if (activeSessions.isEmpty()) {
+            log.debug("No active sessions available for operator {} to take over {}", operator, stoppedSessionKey);
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        int moved = claimRepository.reassignQueued(stoppedSessionKey, activeSessions);
+        // move the in-memory entries too, so the stopped session cannot send them after rebinding
+        int movedInMemory = dispatchQueues.redistribute(stoppedSessionKey, activeSessions);
+        long elapsedNanos = System.nanoTime() - start;
+        if (moved == 0 && movedInMemory == 0) return 0;
+
+        meterRegistry.counter("smpp.reroute.messages", "operator", operator).increment(moved);
+        meterRegistry.timer("smpp.reroute.duration", "operator", operator).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Rerouted {} messages ({} in memory) from {} to {} active sessions {} in {} ms",
+            moved, movedInMemory, stoppedSessionKey, activeSessions.size(), activeSessions,
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        return moved;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
 }
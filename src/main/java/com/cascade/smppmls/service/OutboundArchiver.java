@@ -0,0 +1,113 @@
+package com.cascade.smppmls.service;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.repository.SmsOutboundHistoryRepository;
+import com.cascade.smppmls.smpp.ReceiptState;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps sms_outbound down to the messages still being worked on.
+ *
+ * Finished messages (FAILED, or a final delivery receipt) move to sms_outbound_history once they
+ * have settled for {@code smpp.archive.settle-ms}; SENT messages whose final receipt never came
+ * move after {@code dlr-wait-ms}. Each batch is one move statement, repeated while batches come
+ * back full. Tracking and idempotency lookups fall back to the history.
+ */
+@Slf4j
+@Service
+public class OutboundArchiver {
+
+    /** Statuses no later submit result or receipt changes */
+    public static final List<String> FINISHED_STATUSES;
+    /** Submitted, waiting for a final receipt */
+    public static final List<String> AWAITING_RECEIPT_STATUSES;
+
+    static {
+        List<String> finished = new ArrayList<>(List.of("FAILED"));
+        List<String> awaiting = new ArrayList<>(List.of("SENT"));
+        for (ReceiptState state : ReceiptState.values()) {
+            (state.isFinal() ? finished : awaiting).add(state.outboundStatus());
+        }
+        FINISHED_STATUSES = List.copyOf(finished);
+        AWAITING_RECEIPT_STATUSES = List.copyOf(awaiting);
+    }
+
+    private final SmsOutboundHistoryRepository historyRepository;
+    private final SmppProperties.Archive config;
+    private final MeterRegistry meterRegistry;
+    private final Timer batchTimer;
+
+    public OutboundArchiver(SmsOutboundHistoryRepository historyRepository, SmppProperties smppProperties, MeterRegistry meterRegistry) {
+        this.historyRepository = historyRepository;
+        this.config = smppProperties.getArchive();
+        this.meterRegistry = meterRegistry;
+        this.batchTimer = Timer.builder("smpp.archive.batch").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) return;
+        ensurePartitions();
+        log.info("OutboundArchiver started: settle={}ms, dlr-wait={}ms, batch-size={}",
+            config.getSettleMs(), config.getDlrWaitMs(), config.getBatchSize());
+    }
+
+    @Scheduled(fixedDelayString = "${smpp.archive.interval-ms:10000}", initialDelayString = "${smpp.archive.interval-ms:10000}")
+    public void archiveFinished() {
+        if (!config.isEnabled()) return;
+        try {
+            Instant now = Instant.now();
+            int finished = archive(FINISHED_STATUSES, now.minusMillis(config.getSettleMs()), config.getMaxBatchesPerRun());
+            int unconfirmed = archive(AWAITING_RECEIPT_STATUSES, now.minusMillis(config.getDlrWaitMs()), config.getMaxBatchesPerRun());
+            if (finished + unconfirmed > 0) {
+                log.info("Archived {} finished and {} unconfirmed SENT messages to sms_outbound_history", finished, unconfirmed);
+            }
+        } catch (Exception ex) {
+            log.error("Archive error: {}", ex.getMessage());
+        }
+    }
+
+    // next months' partitions exist before their first row arrives
+    @Scheduled(cron = "0 0 3 * * *", zone = "UTC")
+    public void ensurePartitions() {
+        if (!config.isEnabled()) return;
+        try {
+            historyRepository.ensurePartitions(YearMonth.now(ZoneOffset.UTC), config.getPartitionsAhead() + 1);
+        } catch (Exception ex) {
+            log.error("History partition maintenance error: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Move rows in {@code statuses} last updated before {@code updatedBefore}, at most {@code maxBatches} batches.
+     * @return number of rows moved
+     */
+    int archive(List<String> statuses, Instant updatedBefore, int maxBatches) {
+        int batchSize = Math.max(1, config.getBatchSize());
+        int moved = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            long start = System.nanoTime();
+            int n = historyRepository.archive(statuses, updatedBefore, batchSize);
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            moved += n;
+            if (n < batchSize) break;
+        }
+        if (moved > 0) meterRegistry.counter("smpp.archive.moved").increment(moved);
+        return moved;
+    }
+}
@@ -1,16 +1,28 @@
 package com.cascade.smppmls.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.cascade.smppmls.api.BatchSubmitResponse;
 import com.cascade.smppmls.api.SubmitRequest;
 import com.cascade.smppmls.api.SubmitResponse;
 import com.cascade.smppmls.entity.SmsOutboundEntity;
+import com.cascade.smppmls.repository.SmsOutboundHistoryRepository;
 import com.cascade.smppmls.repository.SmsOutboundRepository;
 import com.cascade.smppmls.router.OperatorRouter;
+import com.cascade.smppmls.smpp.DispatchQueueRegistry;
 import com.cascade.smppmls.util.MsisdnUtils;
 
 @Slf4j
@@ -19,7 +31,15 @@ import com.cascade.smppmls.util.MsisdnUtils;
 public class SubmissionService {
 
     private final SmsOutboundRepository outboundRepository;
+    private final SmsOutboundHistoryRepository historyRepository;
     private final OperatorRouter router;
+    private final DispatchQueueRegistry dispatchQueues;
+    private final Validator validator;
+
+    @Value("${sms.submit.max-batch-size:10000}")
+    private int maxBatchSize = 10000;
+
+    private static final int IDEMPOTENCY_LOOKUP_CHUNK = 1000;
 
     public SubmitResponse submit(SubmitRequest req) {
         String normalized = MsisdnUtils.normalizeToE164(req.getMsisdn(), "93");
@@ -37,9 +57,10 @@ public class SubmissionService {
         // Idempotency: if clientMsgId provided and exists, return existing record
         if (req.getClientMsgId() != null && !req.getClientMsgId().isBlank()) {
             SmsOutboundEntity existing = outboundRepository.findByClientMsgId(req.getClientMsgId());
+            if (existing == null) existing = historyRepository.findByClientMsgId(req.getClientMsgId());
             if (existing != null) {
-                // ensure requestId exists
-                if (existing.getRequestId() == null) {
+                // ensure requestId exists (archived rows are read-only)
+                if (existing.getRequestId() == null && existing.getArchivedAt() == null) {
                     existing.setRequestId(UUID.randomUUID().toString());
                     outboundRepository.save(existing);
                 }
@@ -65,6 +86,9 @@ public class SubmissionService {
         // persist
         SmsOutboundEntity saved = outboundRepository.save(entity);
 
+        // hand over to the session's in-memory dispatch queue; no DB polling on the send path
+        dispatchQueues.enqueue(saved);
+
         log.info("Persisted outbound message id={} requestId={} -> {} (operator={}, session={})", saved.getId(), saved.getRequestId(), normalized, operator, sessionId);
 
         // For now messageId equals DB id as string until SMSC responds
@@ -72,4 +96,127 @@ public class SubmissionService {
 
         return new SubmitResponse(requestId, messageId, "QUEUED", operator, sessionId);
     }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Submit many messages in one pass: validate, normalise and route every item, look up
+     * idempotency keys with one query, persist the accepted rows with one batched insert and hand
+     * them to the dispatch queues. Invalid items are rejected individually; the rest of the batch
+     * is still accepted. Results are returned in request order.
+     */
+    public BatchSubmitResponse submitBatch(List<SubmitRequest> requests) {
+        if (requests == null || requests.isEmpty()) throw new IllegalArgumentException("Batch is empty");
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + requests.size() + " exceeds maximum " + maxBatchSize);
+        }
+
+        BatchSubmitResponse.Item[] results = new BatchSubmitResponse.Item[requests.size()];
+        Map<String, SmsOutboundEntity> existingByClientId = findExisting(requests);
+        Map<String, Integer> firstIndexByClientId = new HashMap<>();
+        List<SmsOutboundEntity> toSave = new ArrayList<>();
+        List<Integer> toSaveIndex = new ArrayList<>();
+        List<SmsOutboundEntity> existingToUpdate = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            SubmitRequest req = requests.get(i);
+            if (req == null) {
+                results[i] = BatchSubmitResponse.Item.rejected(i, null, "Malformed or empty item");
+                continue;
+            }
+            String clientMsgId = (req.getClientMsgId() != null && !req.getClientMsgId().isBlank()) ? req.getClientMsgId() : null;
+
+            Set<ConstraintViolation<SubmitRequest>> violations = validator.validate(req);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<SubmitRequest> v = violations.iterator().next();
+                results[i] = BatchSubmitResponse.Item.rejected(i, clientMsgId, v.getPropertyPath() + ": " + v.getMessage());
+                continue;
+            }
+
+            String normalized = MsisdnUtils.normalizeToE164(req.getMsisdn(), "93");
+            if (normalized == null) {
+                results[i] = BatchSubmitResponse.Item.rejected(i, clientMsgId, "Invalid msisdn");
+                continue;
+            }
+
+            if (clientMsgId != null) {
+                // Idempotency: already stored, or repeated earlier in this batch
+                SmsOutboundEntity existing = existingByClientId.get(clientMsgId);
+                if (existing != null) {
+                    if (existing.getRequestId() == null && existing.getArchivedAt() == null) {
+                        existing.setRequestId(UUID.randomUUID().toString());
+                        existingToUpdate.add(existing);
+                    }
+                    results[i] = existingResult(i, existing);
+                    continue;
+                }
+                if (firstIndexByClientId.putIfAbsent(clientMsgId, i) != null) continue; // resolved after save
+            }
+
+            String[] route = router.resolve(normalized);
+            toSave.add(SmsOutboundEntity.builder()
+                    .requestId(UUID.randomUUID().toString())
+                    .clientMsgId(clientMsgId)
+                    .msisdn(normalized)
+                    .message(req.getMessage())
+                    .priority(req.getPriority())
+                    .operator(route != null ? route[0] : null)
+                    .sessionId(route != null ? route[1] : null)
+                    .status("QUEUED")
+                    .build());
+            toSaveIndex.add(i);
+        }
+
+        if (!existingToUpdate.isEmpty()) outboundRepository.saveAll(existingToUpdate);
+
+        // one transaction, inserts go out as JDBC batches (sequence ids)
+        List<SmsOutboundEntity> saved = toSave.isEmpty() ? List.of() : outboundRepository.saveAll(toSave);
+        for (int n = 0; n < saved.size(); n++) {
+            SmsOutboundEntity e = saved.get(n);
+            int i = toSaveIndex.get(n);
+            dispatchQueues.enqueue(e);
+            results[i] = new BatchSubmitResponse.Item(i, e.getClientMsgId(), e.getRequestId(), String.valueOf(e.getId()),
+                "QUEUED", e.getOperator(), e.getSessionId(), null);
+        }
+
+        // duplicates inside the batch point at the row created for the first occurrence
+        int accepted = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                String clientMsgId = requests.get(i).getClientMsgId();
+                BatchSubmitResponse.Item first = results[firstIndexByClientId.get(clientMsgId)];
+                results[i] = new BatchSubmitResponse.Item(i, clientMsgId, first.getRequestId(), first.getMessageId(),
+                    first.getStatus(), first.getOperator(), first.getSessionId(), null);
+            }
+            if (results[i].getError() == null) accepted++;
+        }
+
+        log.info("Batch submit: {} items, {} persisted, {} accepted, {} rejected", requests.size(), saved.size(), accepted, requests.size() - accepted);
+        return new BatchSubmitResponse(requests.size(), accepted, requests.size() - accepted, List.of(results));
+    }
+
+    private Map<String, SmsOutboundEntity> findExisting(List<SubmitRequest> requests) {
+        List<String> clientMsgIds = requests.stream()
+            .filter(r -> r != null && r.getClientMsgId() != null && !r.getClientMsgId().isBlank())
+            .map(SubmitRequest::getClientMsgId)
+            .distinct()
+            .toList();
+        Map<String, SmsOutboundEntity> existing = new HashMap<>();
+        for (int from = 0; from < clientMsgIds.size(); from += IDEMPOTENCY_LOOKUP_CHUNK) {
+            List<String> chunk = clientMsgIds.subList(from, Math.min(clientMsgIds.size(), from + IDEMPOTENCY_LOOKUP_CHUNK));
+            outboundRepository.findByClientMsgIdIn(chunk).forEach(e -> existing.putIfAbsent(e.getClientMsgId(), e));
+            // finished messages may already have moved to the history
+            List<String> missing = chunk.stream().filter(id -> !existing.containsKey(id)).toList();
+            historyRepository.findByClientMsgIdIn(missing).forEach(e -> existing.putIfAbsent(e.getClientMsgId(), e));
+        }
+        return existing;
+    }
+
+    private static BatchSubmitResponse.Item existingResult(int index, SmsOutboundEntity existing) {
+        String messageId = existing.getSmscMsgId() != null ? existing.getSmscMsgId() : String.valueOf(existing.getId());
+        return new BatchSubmitResponse.Item(index, existing.getClientMsgId(), existing.getRequestId(), messageId,
+            existing.getStatus(), existing.getOperator(), existing.getSessionId(), null);
+    }
 }
@@ -0,0 +1,125 @@
+package com.cascade.smppmls.smpp;
+
+import java.util.function.DoubleConsumer;
+import java.util.function.LongSupplier;
+
+import com.cascade.smppmls.config.SmppProperties;
+
+/**
+ * AIMD controller for the effective submit rate of one session.
+ *
+ * Throttling responses (ESME_RTHROTTLED, ESME_RMSGQFUL) cut the rate multiplicatively and a
+ * submit_sm_resp latency average above the threshold cuts it gently; both at most once per
+ * cooldown. While the SMSC is quiet the rate probes back up additively, one step per probe
+ * interval, until it reaches the configured TPS ceiling.
+ */
+public class AdaptiveRateController {
+
+    public static final int ESME_RMSGQFUL = 0x00000014;
+    public static final int ESME_RTHROTTLED = 0x00000058;
+
+    private static final double LATENCY_DECREASE_FACTOR = 0.9;
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final double ceiling;
+    private final double floor;
+    private final double decreaseFactor;
+    private final double increaseStep;
+    private final long latencyThresholdMs;
+    private final long cooldownNanos;
+    private final long probeIntervalNanos;
+    private final boolean enabled;
+    private final DoubleConsumer onRateChange;
+    private final LongSupplier clock;
+
+    private double effective;
+    private double latencyEwmaMs = -1;
+    private long lastDecreaseNanos;
+    private long lastProbeNanos;
+    private long throttleCount;
+
+    public AdaptiveRateController(double ceilingTps, SmppProperties.Adaptive cfg, DoubleConsumer onRateChange) {
+        this(ceilingTps, cfg, onRateChange, System::nanoTime);
+    }
+
+    public AdaptiveRateController(double ceilingTps, SmppProperties.Adaptive cfg, DoubleConsumer onRateChange, LongSupplier clock) {
+        this.ceiling = Math.max(1.0, ceilingTps);
+        this.floor = Math.max(1.0, ceiling * cfg.getMinTpsPercentage() / 100.0);
+        this.decreaseFactor = Math.min(0.99, Math.max(0.1, cfg.getDecreaseFactor()));
+        this.increaseStep = Math.max(1.0, ceiling * cfg.getIncreaseStepPercentage() / 100.0);
+        this.latencyThresholdMs = cfg.getLatencyThresholdMs();
+        this.cooldownNanos = cfg.getCooldownMs() * 1_000_000L;
+        this.probeIntervalNanos = cfg.getProbeIntervalMs() * 1_000_000L;
+        this.enabled = cfg.isEnabled();
+        this.onRateChange = onRateChange;
+        this.clock = clock;
+        this.effective = ceiling;
+        long now = clock.getAsLong();
+        this.lastDecreaseNanos = now - cooldownNanos;
+        this.lastProbeNanos = now;
+    }
+
+    public static boolean isThrottle(int commandStatus) {
+        return commandStatus == ESME_RTHROTTLED || commandStatus == ESME_RMSGQFUL;
+    }
+
+    /**
+     * SMSC answered with a throttling status: back off multiplicatively
+     */
+    public synchronized void onThrottle() {
+        throttleCount++;
+        decrease(decreaseFactor);
+    }
+
+    /**
+     * Record a submit_sm_resp latency; a rising average backs off gently
+     */
+    public synchronized void onResponse(long responseTimeMs) {
+        latencyEwmaMs = latencyEwmaMs < 0 ? responseTimeMs : latencyEwmaMs + EWMA_ALPHA * (responseTimeMs - latencyEwmaMs);
+        if (latencyThresholdMs > 0 && latencyEwmaMs > latencyThresholdMs) {
+            decrease(LATENCY_DECREASE_FACTOR);
+        }
+    }
+
+    /**
+     * Called from the sender tick: probe back towards the ceiling once per probe interval
+     */
+    public synchronized void tick() {
+        long now = clock.getAsLong();
+        if (now - lastProbeNanos < probeIntervalNanos) return;
+        lastProbeNanos = now;
+        if (!enabled || effective >= ceiling || now - lastDecreaseNanos < probeIntervalNanos) return;
+        if (latencyThresholdMs > 0 && latencyEwmaMs > latencyThresholdMs) return;
+        update(Math.min(ceiling, effective + increaseStep));
+    }
+
+    private void decrease(double factor) {
+        if (!enabled) return;
+        long now = clock.getAsLong();
+        if (now - lastDecreaseNanos < cooldownNanos) return;
+        lastDecreaseNanos = now;
+        update(Math.max(floor, effective * factor));
+    }
+
+    private void update(double next) {
+        if (next == effective) return;
+        effective = next;
+        onRateChange.accept(next);
+    }
+
+    public synchronized double getEffectiveTps() {
+        return effective;
+    }
+
+    public double getCeilingTps() {
+        return ceiling;
+    }
+
+    public synchronized double getLatencyEwmaMs() {
+        return Math.max(0, latencyEwmaMs);
+    }
+
+    public synchronized long getThrottleCount() {
+        return throttleCount;
+    }
+}
@@ -0,0 +1,234 @@
+package com.cascade.smppmls.smpp;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fields of one delivery receipt, reused across receipts: the receipt text as filled by
+ * {@link DeliveryReceiptParser} and the receipt TLVs as read by {@link DeliveryReceiptTlvs}.
+ *
+ * Text fields are kept as ranges of the source bytes and numbers as primitives, so parsing a
+ * receipt allocates nothing; a String is only built when a caller asks for one (e.g. {@link #id()}).
+ * Missing numeric fields read -1.
+ */
+public final class DeliveryReceiptFields {
+
+    private byte[] source;
+    private int idStart;
+    private int idLength;
+    private int statStart;
+    private int statLength;
+    private int errStart;
+    private int errLength;
+    private int textStart;
+    private int textLength;
+    private int submitted;
+    private int delivered;
+    private long submitDate;
+    private long doneDate;
+    private int error;
+    private ReceiptState state;
+
+    // TLVs
+    private byte[] receiptedId;
+    private int receiptedIdLength;
+    private int messageState;
+    private int networkType;
+    private int networkErrorCode;
+    private int deliveryFailureReason;
+    private byte[] payload;
+
+    public DeliveryReceiptFields() {
+        reset();
+    }
+
+    public DeliveryReceiptFields reset() {
+        resetText();
+        resetTlvs();
+        return this;
+    }
+
+    void resetText() {
+        source = null;
+        idStart = statStart = errStart = textStart = -1;
+        idLength = statLength = errLength = textLength = 0;
+        submitted = delivered = error = -1;
+        submitDate = doneDate = -1;
+        state = null;
+    }
+
+    void resetTlvs() {
+        receiptedId = null;
+        receiptedIdLength = 0;
+        messageState = networkType = networkErrorCode = deliveryFailureReason = -1;
+        payload = null;
+    }
+
+    public boolean hasId() {
+        return idLength > 0;
+    }
+
+    /**
+     * @return the "id:" value, or null if the receipt has none
+     */
+    public String id() {
+        return hasId() ? new String(source, idStart, idLength, StandardCharsets.US_ASCII) : null;
+    }
+
+    public boolean hasStat() {
+        return statLength > 0;
+    }
+
+    /**
+     * @return the state of a known "stat:" token, or null (missing or non-standard token)
+     */
+    public ReceiptState state() {
+        return state;
+    }
+
+    /**
+     * @return "stat err:code" as written by the SMSC, e.g. "DELIVRD err:000", or null without a stat
+     */
+    public String statusText() {
+        if (!hasStat()) return null;
+        String stat = new String(source, statStart, statLength, StandardCharsets.US_ASCII);
+        return errLength > 0 ? stat + " err:" + new String(source, errStart, errLength, StandardCharsets.US_ASCII) : stat;
+    }
+
+    /** "sub:" value */
+    public int submitted() {
+        return submitted;
+    }
+
+    /** "dlvrd:" value */
+    public int delivered() {
+        return delivered;
+    }
+
+    /** "submit date:" as the digits yyMMddhhmm[ss] */
+    public long submitDate() {
+        return submitDate;
+    }
+
+    /** "done date:" as the digits yyMMddhhmm[ss] */
+    public long doneDate() {
+        return doneDate;
+    }
+
+    /** "err:" value, network specific */
+    public int error() {
+        return error;
+    }
+
+    /**
+     * @return the "text:" value (first characters of the original message), or null
+     */
+    public String text() {
+        return textStart >= 0 ? new String(source, textStart, textLength, StandardCharsets.ISO_8859_1) : null;
+    }
+
+    public boolean hasReceiptedId() {
+        return receiptedIdLength > 0;
+    }
+
+    /**
+     * @return the receipted_message_id TLV without its NULL terminator, or null if absent or empty
+     */
+    public String receiptedId() {
+        return hasReceiptedId() ? new String(receiptedId, 0, receiptedIdLength, StandardCharsets.US_ASCII) : null;
+    }
+
+    /** message_state TLV, see {@link ReceiptState#ofMessageState(int)} */
+    public int messageState() {
+        return messageState;
+    }
+
+    public boolean hasNetworkError() {
+        return networkType >= 0;
+    }
+
+    /** network type of the network_error_code TLV (1 ANSI-136, 2 IS-95, 3 GSM, ...) */
+    public int networkType() {
+        return networkType;
+    }
+
+    /** error code of the network_error_code TLV, network specific */
+    public int networkErrorCode() {
+        return networkErrorCode;
+    }
+
+    /** delivery_failure_reason TLV */
+    public int deliveryFailureReason() {
+        return deliveryFailureReason;
+    }
+
+    /**
+     * @return the message_payload TLV value (not a copy), or null
+     */
+    byte[] payload() {
+        return payload;
+    }
+
+    void source(byte[] source) {
+        this.source = source;
+    }
+
+    void id(int start, int length) {
+        idStart = start;
+        idLength = length;
+    }
+
+    void stat(int start, int length, ReceiptState state) {
+        statStart = start;
+        statLength = length;
+        this.state = state;
+    }
+
+    void error(int start, int length, int error) {
+        errStart = start;
+        errLength = length;
+        this.error = error;
+    }
+
+    void text(int start, int length) {
+        textStart = start;
+        textLength = length;
+    }
+
+    void submitted(int submitted) {
+        this.submitted = submitted;
+    }
+
+    void delivered(int delivered) {
+        this.delivered = delivered;
+    }
+
+    void submitDate(long submitDate) {
+        this.submitDate = submitDate;
+    }
+
+    void doneDate(long doneDate) {
+        this.doneDate = doneDate;
+    }
+
+    void receiptedId(byte[] value, int length) {
+        receiptedId = value;
+        receiptedIdLength = length;
+    }
+
+    void messageState(int messageState) {
+        this.messageState = messageState;
+    }
+
+    void networkError(int networkType, int networkErrorCode) {
+        this.networkType = networkType;
+        this.networkErrorCode = networkErrorCode;
+    }
+
+    void deliveryFailureReason(int deliveryFailureReason) {
+        this.deliveryFailureReason = deliveryFailureReason;
+    }
+
+    void payload(byte[] payload) {
+        this.payload = payload;
+    }
+}
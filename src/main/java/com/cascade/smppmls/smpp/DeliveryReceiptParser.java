@@ -0,0 +1,132 @@
+package com.cascade.smppmls.smpp;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser for the de-facto receipt text of SMPP 3.4 (Appendix B):
+ * {@code id:IIIIIIIIII sub:SSS dlvrd:DDD submit date:YYMMDDhhmm done date:YYMMDDhhmm stat:DDDDDDD err:E text:...}
+ *
+ * Scans the short_message bytes once with no regex and no intermediate Strings; values land in a
+ * caller-supplied {@link DeliveryReceiptFields}. Keys are matched case-insensitively at the start of
+ * a space separated token, in any order; unknown tokens are skipped and "text:" runs to the end.
+ * Malformed input never throws, it just leaves the affected fields unset.
+ */
+public final class DeliveryReceiptParser {
+
+    private static final int ID = 0;
+    private static final int SUB = 1;
+    private static final int DLVRD = 2;
+    private static final int SUBMIT_DATE = 3;
+    private static final int DONE_DATE = 4;
+    private static final int STAT = 5;
+    private static final int ERR = 6;
+    private static final int TEXT = 7;
+
+    // upper case; matched against upper-cased input bytes
+    private static final byte[][] KEYS = {
+        ascii("ID:"), ascii("SUB:"), ascii("DLVRD:"), ascii("SUBMIT DATE:"),
+        ascii("DONE DATE:"), ascii("STAT:"), ascii("ERR:"), ascii("TEXT:")
+    };
+
+    private DeliveryReceiptParser() {
+    }
+
+    /**
+     * Parse {@code buf[offset, offset + length)} into {@code out}; its text fields are reset first, TLV fields are kept.
+     * @return true if at least one receipt field was found
+     */
+    public static boolean parse(byte[] buf, int offset, int length, DeliveryReceiptFields out) {
+        out.resetText();
+        if (buf == null || offset < 0 || length <= 0 || offset > buf.length - length) return false;
+        out.source(buf);
+        int end = offset + length;
+        int i = offset;
+        boolean found = false;
+        while (i < end) {
+            if (buf[i] == ' ') {
+                i++;
+                continue;
+            }
+            int key = keyAt(buf, i, end);
+            if (key < 0) {
+                i = tokenEnd(buf, i, end);
+                continue;
+            }
+            int valueStart = i + KEYS[key].length;
+            int valueEnd = key == TEXT ? end : tokenEnd(buf, valueStart, end);
+            assign(key, buf, valueStart, valueEnd - valueStart, out);
+            found = true;
+            i = valueEnd;
+        }
+        return found;
+    }
+
+    private static void assign(int key, byte[] buf, int start, int length, DeliveryReceiptFields out) {
+        switch (key) {
+            case ID -> out.id(start, length);
+            case SUB -> out.submitted((int) digits(buf, start, length, 9));
+            case DLVRD -> out.delivered((int) digits(buf, start, length, 9));
+            case SUBMIT_DATE -> out.submitDate(digits(buf, start, length, 14));
+            case DONE_DATE -> out.doneDate(digits(buf, start, length, 14));
+            case STAT -> out.stat(start, length, ReceiptState.ofStat(buf, start, length));
+            case ERR -> out.error(start, length, (int) digits(buf, start, length, 9));
+            case TEXT -> out.text(start, length);
+            default -> { }
+        }
+    }
+
+    // candidate keys by first letter, so a token is compared against at most three keys
+    private static int keyAt(byte[] buf, int i, int end) {
+        switch (upper(buf[i])) {
+            case 'I':
+                return matches(buf, i, end, ID) ? ID : -1;
+            case 'S':
+                if (matches(buf, i, end, SUB)) return SUB;
+                if (matches(buf, i, end, STAT)) return STAT;
+                return matches(buf, i, end, SUBMIT_DATE) ? SUBMIT_DATE : -1;
+            case 'D':
+                if (matches(buf, i, end, DLVRD)) return DLVRD;
+                return matches(buf, i, end, DONE_DATE) ? DONE_DATE : -1;
+            case 'E':
+                return matches(buf, i, end, ERR) ? ERR : -1;
+            case 'T':
+                return matches(buf, i, end, TEXT) ? TEXT : -1;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean matches(byte[] buf, int i, int end, int key) {
+        byte[] k = KEYS[key];
+        if (end - i < k.length) return false;
+        for (int j = 0; j < k.length; j++) {
+            if (upper(buf[i + j]) != k[j]) return false;
+        }
+        return true;
+    }
+
+    private static int tokenEnd(byte[] buf, int i, int end) {
+        while (i < end && buf[i] != ' ') i++;
+        return i;
+    }
+
+    // decimal value of an all-digit field, -1 if empty, not numeric or longer than maxDigits
+    private static long digits(byte[] buf, int start, int length, int maxDigits) {
+        if (length == 0 || length > maxDigits) return -1;
+        long value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    static byte upper(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - 32) : b;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,71 @@
+package com.cascade.smppmls.smpp;
+
+import java.time.Instant;
+
+import org.jsmpp.bean.DeliverSm;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parses deliver_sm receipts on the receiver thread and hands them to the {@link DeliveryReceiptWriter}.
+ *
+ * Stateless, so the receiver listeners of all binds share one instance; the session a receipt
+ * arrived on is passed in by the listener of that bind.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeliveryReceiptProcessor {
+
+    // receipts are parsed on the session PDU threads; one reusable field holder per thread
+    private static final ThreadLocal<DeliveryReceiptFields> FIELDS = ThreadLocal.withInitial(DeliveryReceiptFields::new);
+
+    /**
+     * What happened to a receipt, counted per session by {@link SessionReceiverListener}
+     */
+    public enum Outcome {
+        QUEUED, NO_ID, REJECTED
+    }
+
+    private final DeliveryReceiptWriter receiptWriter;
+
+    public Outcome process(String sessionKey, DeliverSm deliverSm) {
+        byte[] shortMessage = deliverSm.getShortMessage();
+        DeliveryReceiptFields fields = FIELDS.get().reset();
+        DeliveryReceiptTlvs.read(deliverSm, fields);
+        boolean parsed = shortMessage != null && DeliveryReceiptParser.parse(shortMessage, 0, shortMessage.length, fields);
+        // receipt text in the message_payload TLV instead of short_message
+        if (!parsed && fields.payload() != null) {
+            DeliveryReceiptParser.parse(fields.payload(), 0, fields.payload().length, fields);
+        }
+        log.debug("[" + sessionKey + "] Received DeliverSm (short_message={}, receipt fields={}, message_state={})",
+            shortMessage != null ? shortMessage.length : 0, parsed, fields.messageState());
+
+        // receipted_message_id TLV first, then the "id:" of the receipt text
+        String smscId = fields.hasReceiptedId() ? fields.receiptedId() : fields.id();
+        if (smscId == null || smscId.isBlank()) {
+            log.warn("[" + sessionKey + "] DeliverSm without parsable id (short_message={} bytes)",
+                shortMessage != null ? shortMessage.length : 0);
+            return Outcome.NO_ID;
+        }
+
+        // stat: of the text first, then the message_state TLV
+        ReceiptState state = fields.state();
+        if (state == null && fields.messageState() >= 0) state = ReceiptState.ofMessageState(fields.messageState());
+        String status = state != null ? state.outboundStatus() : ReceiptState.UNKNOWN.outboundStatus();
+
+        // correlation and persistence happen on the writer's consumers, after deliver_sm_resp
+        DeliveryReceiptWriter.DeliveryReceipt receipt =
+            new DeliveryReceiptWriter.DeliveryReceipt(sessionKey, smscId, status, rawStatus(fields), Instant.now());
+        return receiptWriter.enqueue(receipt) ? Outcome.QUEUED : Outcome.REJECTED;
+    }
+
+    // what the SMSC reported, as stored on sms_dlr: "UNDELIV err:034 net:3/34"
+    static String rawStatus(DeliveryReceiptFields fields) {
+        String raw = fields.hasStat() ? fields.statusText()
+            : fields.messageState() >= 0 ? "STATE_" + fields.messageState() : "DLR_UNKNOWN";
+        return fields.hasNetworkError() ? raw + " net:" + fields.networkType() + "/" + fields.networkErrorCode() : raw;
+    }
+}
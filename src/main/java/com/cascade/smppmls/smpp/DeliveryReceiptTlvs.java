@@ -0,0 +1,65 @@
+package com.cascade.smppmls.smpp;
+
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.OptionalParameter;
+
+/**
+ * Reads the receipt TLVs of a deliver_sm (SMPP 3.4 section 5.3.2) into a {@link DeliveryReceiptFields}.
+ *
+ * jSMPP already decodes known tags into typed parameters (Receipted_message_id is a COctetString,
+ * Message_state a Byte, ...), so values are taken from those directly instead of re-serializing the
+ * parameter and skipping its header. Octet string values are referenced, not copied. A parameter of
+ * an unexpected type or length is ignored, as if the SMSC had not sent it.
+ */
+public final class DeliveryReceiptTlvs {
+
+    static final short RECEIPTED_MESSAGE_ID = 0x001E;
+    static final short NETWORK_ERROR_CODE = 0x0423;
+    static final short MESSAGE_PAYLOAD = 0x0424;
+    static final short DELIVERY_FAILURE_REASON = 0x0425;
+    static final short MESSAGE_STATE = 0x0427;
+
+    private DeliveryReceiptTlvs() {
+    }
+
+    /**
+     * Read the receipt TLVs of {@code deliverSm} into {@code out}; text fields are left untouched.
+     */
+    public static void read(DeliverSm deliverSm, DeliveryReceiptFields out) {
+        out.resetTlvs();
+
+        // C-Octet String, usually NULL terminated; the terminator is not part of the id
+        if (deliverSm.getOptionalParameter(RECEIPTED_MESSAGE_ID) instanceof OptionalParameter.OctetString id) {
+            byte[] value = id.getValue();
+            if (value != null) out.receiptedId(value, cStringLength(value));
+        }
+
+        if (deliverSm.getOptionalParameter(MESSAGE_STATE) instanceof OptionalParameter.Byte state) {
+            out.messageState(state.getValue() & 0xFF);
+        }
+
+        // 1 octet network type (1 ANSI-136, 2 IS-95, 3 GSM, ...) followed by a 2 octet error code
+        if (deliverSm.getOptionalParameter(NETWORK_ERROR_CODE) instanceof OptionalParameter.OctetString error) {
+            byte[] value = error.getValue();
+            if (value != null && value.length == 3) {
+                out.networkError(value[0] & 0xFF, ((value[1] & 0xFF) << 8) | (value[2] & 0xFF));
+            }
+        }
+
+        if (deliverSm.getOptionalParameter(DELIVERY_FAILURE_REASON) instanceof OptionalParameter.Byte reason) {
+            out.deliveryFailureReason(reason.getValue() & 0xFF);
+        }
+
+        // some SMSCs put the receipt text here instead of short_message
+        if (deliverSm.getOptionalParameter(MESSAGE_PAYLOAD) instanceof OptionalParameter.OctetString payload) {
+            byte[] value = payload.getValue();
+            if (value != null && value.length > 0) out.payload(value);
+        }
+    }
+
+    private static int cStringLength(byte[] value) {
+        int length = 0;
+        while (length < value.length && value[length] != 0) length++;
+        return length;
+    }
+}
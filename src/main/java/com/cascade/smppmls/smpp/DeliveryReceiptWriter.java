@@ -0,0 +1,392 @@
+package com.cascade.smppmls.smpp;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.entity.SmsDlrEntity;
+import com.cascade.smppmls.repository.SmsDlrRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Asynchronous stage that applies delivery receipts to the outbound rows.
+ *
+ * Receiver threads only parse a deliver_sm and hand the receipt over, so deliver_sm_resp goes
+ * out without waiting for the database. Receipts are partitioned by smsc_msg_id over bounded
+ * buffers, one consumer each (receipts of one message stay in order). A consumer correlates a
+ * batch through the {@link SmscMsgIdCache}, looks up the misses with one {@code smsc_msg_id IN (...)}
+ * query, then writes the status updates and the sms_dlr rows as JDBC batches in one transaction.
+ * A receipt that matches nothing yet is parked by smsc_msg_id until the submit result for that id
+ * arrives ({@link #onSubmitted}); after park-ttl-ms it gets one more lookup and is dropped if unmatched.
+ */
+@Slf4j
+@Component
+public class DeliveryReceiptWriter {
+
+    // a receipt applied late (e.g. released from the parking buffer) never overwrites a final state
+    private static final String UPDATE_SQL =
+        "UPDATE sms_outbound SET " +
+        "status = CASE WHEN status IN (" + finalStatuses() + ") THEN status ELSE ? END, updated_at = ? " +
+        "WHERE id = ?";
+    private static final int STATUS_LENGTH = 20; // sms_outbound.status
+    private static final int RAW_STATUS_LENGTH = 50; // sms_dlr.status
+
+    /**
+     * A parsed receipt, as handed over by the receiver thread of the session it arrived on
+     */
+    public record DeliveryReceipt(String sessionKey, String smscMsgId, String status, String rawStatus, Instant receivedAt) {
+    }
+
+    // a receipt that matched an outbound row
+    private record Applied(long outboundId, DeliveryReceipt receipt) {
+    }
+
+    // receipts of one smsc_msg_id waiting for their submit_sm_resp, in arrival order
+    private record Parked(long parkedAt, List<DeliveryReceipt> receipts) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SmsDlrRepository dlrRepository;
+    private final SmscMsgIdCache correlationCache;
+    private final SmppProperties.Dlr config;
+    private final MeterRegistry meterRegistry;
+    private final List<BlockingQueue<DeliveryReceipt>> partitions;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSizes;
+
+    private final Map<String, Parked> parked = new ConcurrentHashMap<>();
+    private final AtomicInteger parkedCount = new AtomicInteger();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final Object drainMonitor = new Object();
+
+    private volatile boolean running;
+    private final List<Thread> consumers = new ArrayList<>();
+
+    public DeliveryReceiptWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 SmsDlrRepository dlrRepository, SmscMsgIdCache correlationCache,
+                                 SmppProperties smppProperties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dlrRepository = dlrRepository;
+        this.correlationCache = correlationCache;
+        this.config = smppProperties.getDlr();
+        this.meterRegistry = meterRegistry;
+        int consumerCount = Math.max(1, config.getConsumers());
+        int partitionCapacity = Math.max(1, config.getCapacity() / consumerCount);
+        List<BlockingQueue<DeliveryReceipt>> queues = new ArrayList<>(consumerCount);
+        for (int i = 0; i < consumerCount; i++) queues.add(new ArrayBlockingQueue<>(partitionCapacity));
+        this.partitions = Collections.unmodifiableList(queues);
+        this.batchTimer = Timer.builder("smpp.dlr.batch").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("smpp.dlr.batch.size").register(meterRegistry);
+        Gauge.builder("smpp.dlr.pending", this, DeliveryReceiptWriter::pending).register(meterRegistry);
+        Gauge.builder("smpp.dlr.parked", parkedCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < partitions.size(); i++) {
+            BlockingQueue<DeliveryReceipt> partition = partitions.get(i);
+            consumers.add(Thread.ofPlatform().daemon().name("dlr-writer-" + i).start(() -> consumeLoop(partition)));
+        }
+        log.info("DeliveryReceiptWriter started: consumers={}, batch-size={}, max-delay={}ms, capacity={}",
+            partitions.size(), config.getBatchSize(), config.getMaxDelayMs(), config.getCapacity());
+    }
+
+    /**
+     * Hand over a receipt. Waits at most enqueue-timeout-ms for buffer space, so a full buffer
+     * turns into a deliver_sm error the SMSC redelivers later rather than a stalled receiver thread.
+     * @return false if the receipt was not accepted
+     */
+    public boolean enqueue(DeliveryReceipt receipt) {
+        BlockingQueue<DeliveryReceipt> partition = partitions.get(Math.floorMod(receipt.smscMsgId().hashCode(), partitions.size()));
+        try {
+            if (!partition.offer(receipt, config.getEnqueueTimeoutMs(), TimeUnit.MILLISECONDS)) return false;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Submit-result hook: record the correlation and release the receipts that arrived before it
+     */
+    public void onSubmitted(String smscMsgId, long outboundId) {
+        correlationCache.put(smscMsgId, outboundId);
+        if (parked.isEmpty()) return;
+        release(smscMsgId);
+    }
+
+    // hand the receipts parked for smscMsgId back for applying; whoever removes the entry releases it
+    private void release(String smscMsgId) {
+        Parked waiting = parked.remove(smscMsgId);
+        if (waiting == null) return;
+        parkedCount.addAndGet(-waiting.receipts().size());
+        meterRegistry.counter("smpp.dlr.parked.released").increment(waiting.receipts().size());
+        log.debug("Releasing {} early delivery receipts for smsc_msg_id={}", waiting.receipts().size(), smscMsgId);
+        for (DeliveryReceipt receipt : waiting.receipts()) {
+            // they correlate through the cache now; apply in place only if the buffer is full
+            if (!enqueue(receipt)) process(List.of(receipt), false);
+        }
+    }
+
+    /**
+     * Give parked receipts whose submit result never showed up one last lookup, then drop the unmatched ones
+     */
+    @Scheduled(fixedDelayString = "${smpp.dlr.park-sweep-interval-ms:1000}", initialDelayString = "${smpp.dlr.park-sweep-interval-ms:1000}")
+    public void reconcileExpired() {
+        if (parked.isEmpty()) return;
+        long cutoff = System.currentTimeMillis() - config.getParkTtlMs();
+        List<DeliveryReceipt> expired = new ArrayList<>();
+        parked.forEach((smscMsgId, waiting) -> {
+            if (waiting.parkedAt() <= cutoff && parked.remove(smscMsgId, waiting)) {
+                parkedCount.addAndGet(-waiting.receipts().size());
+                expired.addAll(waiting.receipts());
+            }
+        });
+        int batchSize = Math.max(1, config.getBatchSize());
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            try {
+                process(expired.subList(from, Math.min(expired.size(), from + batchSize)), false);
+            } catch (Exception ex) {
+                log.error("Reconciliation of expired delivery receipts failed: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Wait until every receipt accepted before this call has been applied (or parked).
+     * @return true if drained within the timeout
+     */
+    public boolean drain(long timeoutMs) {
+        long target = accepted.get();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (drainMonitor) {
+            while (processed.get() < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    drainMonitor.wait(remaining);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int pending() {
+        int pending = 0;
+        for (BlockingQueue<DeliveryReceipt> partition : partitions) pending += partition.size();
+        return pending;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // sessions are unbound first (they depend on this bean), so no new receipts arrive
+        log.info("Applying {} pending delivery receipts before shutdown...", pending());
+        if (!drain(config.getShutdownTimeoutMs())) {
+            log.error("Delivery receipt writer did not drain within {} ms, {} receipts still pending",
+                config.getShutdownTimeoutMs(), pending());
+        }
+        running = false;
+        consumers.forEach(Thread::interrupt);
+    }
+
+    private void consumeLoop(BlockingQueue<DeliveryReceipt> partition) {
+        int batchSize = Math.max(1, config.getBatchSize());
+        List<DeliveryReceipt> batch = new ArrayList<>(batchSize);
+        while (running || !partition.isEmpty()) {
+            try {
+                DeliveryReceipt first = partition.poll(config.getMaxDelayMs(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getMaxDelayMs());
+                while (batch.size() < batchSize) {
+                    partition.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize) break;
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0 || !running) break;
+                    DeliveryReceipt next = partition.poll(Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(5)), TimeUnit.NANOSECONDS);
+                    if (next != null) batch.add(next);
+                }
+                process(batch, true);
+            } catch (InterruptedException ie) {
+                // interrupted while filling a batch: apply what was already taken
+                if (!batch.isEmpty()) {
+                    try {
+                        process(batch, true);
+                    } catch (Exception ex) {
+                        log.error("Delivery receipt consumer error: {}", ex.getMessage(), ex);
+                    }
+                }
+                if (!running && partition.isEmpty()) break;
+            } catch (Exception ex) {
+                log.error("Delivery receipt consumer error: {}", ex.getMessage(), ex);
+            } finally {
+                if (!batch.isEmpty()) {
+                    processed.addAndGet(batch.size());
+                    batch.clear();
+                    synchronized (drainMonitor) {
+                        drainMonitor.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param parkUnmatched park receipts nothing matched yet instead of dropping them (first attempt)
+     */
+    void process(List<DeliveryReceipt> batch, boolean parkUnmatched) {
+        long start = System.nanoTime();
+        Map<String, Long> outboundIds = correlate(batch);
+        List<Applied> applied = new ArrayList<>(batch.size());
+        Map<String, int[]> perSession = new HashMap<>(); // session -> {matched, unmatched}
+        for (DeliveryReceipt receipt : batch) {
+            Long outboundId = outboundIds.get(receipt.smscMsgId());
+            int[] counts = perSession.computeIfAbsent(receipt.sessionKey(), k -> new int[2]);
+            if (outboundId == null) {
+                // the deliver_sm may have overtaken its submit_sm_resp
+                if (parkUnmatched && park(receipt)) continue;
+                counts[1]++;
+                log.warn("[" + receipt.sessionKey() + "] Could not find outbound for smsc_msg_id={}", receipt.smscMsgId());
+                continue;
+            }
+            counts[0]++;
+            applied.add(new Applied(outboundId, receipt));
+        }
+        if (!applied.isEmpty()) write(applied);
+
+        perSession.forEach((sessionKey, counts) -> {
+            if (counts[0] > 0) meterRegistry.counter("smpp.dlr.processed", "session", sessionKey, "result", "matched").increment(counts[0]);
+            if (counts[1] > 0) meterRegistry.counter("smpp.dlr.processed", "session", sessionKey, "result", "unmatched").increment(counts[1]);
+        });
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+        log.debug("Applied {} of {} delivery receipts in {} ms", applied.size(), batch.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private boolean park(DeliveryReceipt receipt) {
+        // reserve the slot first so concurrent consumers cannot overshoot the capacity
+        if (parkedCount.incrementAndGet() > config.getParkCapacity()) {
+            parkedCount.decrementAndGet();
+            return false;
+        }
+        parked.compute(receipt.smscMsgId(), (smscMsgId, waiting) -> {
+            Parked p = waiting != null ? waiting : new Parked(System.currentTimeMillis(), new ArrayList<>(2));
+            p.receipts().add(receipt);
+            return p;
+        });
+        // the submit result may have landed between the lookup and the park, and found nothing to release
+        if (correlationCache.get(receipt.smscMsgId()) != SmscMsgIdCache.MISSING) release(receipt.smscMsgId());
+        return true;
+    }
+
+    int parkedReceipts() {
+        return parkedCount.get();
+    }
+
+    // smsc_msg_id -> outbound id from the correlation cache; the misses of the whole batch in one query
+    private Map<String, Long> correlate(List<DeliveryReceipt> batch) {
+        Map<String, Long> outboundIds = new HashMap<>(batch.size() * 2);
+        Set<String> misses = new LinkedHashSet<>();
+        for (DeliveryReceipt receipt : batch) {
+            String smscId = receipt.smscMsgId();
+            if (outboundIds.containsKey(smscId) || misses.contains(smscId)) continue;
+            long outboundId = correlationCache.get(smscId);
+            if (outboundId != SmscMsgIdCache.MISSING) outboundIds.put(smscId, outboundId);
+            else misses.add(smscId);
+        }
+        if (misses.isEmpty()) return outboundIds;
+
+        // the newest row wins if an id repeats
+        Map<String, Long> found = new HashMap<>(misses.size() * 2);
+        String placeholders = String.join(",", Collections.nCopies(misses.size(), "?"));
+        jdbcTemplate.query("SELECT id, smsc_msg_id FROM sms_outbound WHERE smsc_msg_id IN (" + placeholders + ") ORDER BY id DESC",
+            (RowCallbackHandler) rs -> found.putIfAbsent(rs.getString(2), rs.getLong(1)), misses.toArray());
+        // intermediate and final receipts of the same message hit the cache after the first lookup
+        found.forEach(correlationCache::put);
+        outboundIds.putAll(found);
+        return outboundIds;
+    }
+
+    private void write(List<Applied> applied) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeRows(applied));
+        } catch (Exception ex) {
+            // isolate the failing receipt(s) so one bad row does not lose the whole batch
+            log.error("Batch write of {} delivery receipts failed ({}), retrying one by one", applied.size(), ex.getMessage());
+            for (Applied a : applied) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writeRows(List.of(a)));
+                } catch (Exception rowEx) {
+                    log.error("Dropping delivery receipt smsc_msg_id={} for id={}: {}", a.receipt().smscMsgId(), a.outboundId(), rowEx.getMessage());
+                    meterRegistry.counter("smpp.dlr.dropped").increment();
+                }
+            }
+        }
+    }
+
+    private void writeRows(List<Applied> applied) {
+        List<Object[]> updates = new ArrayList<>(applied.size());
+        List<SmsDlrEntity> dlrs = new ArrayList<>(applied.size());
+        for (Applied a : applied) {
+            DeliveryReceipt receipt = a.receipt();
+            updates.add(new Object[] { truncate(receipt.status(), STATUS_LENGTH), Timestamp.from(receipt.receivedAt()), a.outboundId() });
+            // new entities on every attempt: a rolled back batch leaves ids assigned on the old ones
+            dlrs.add(new SmsDlrEntity(null, a.outboundId(), receipt.smscMsgId(), truncate(receipt.rawStatus(), RAW_STATUS_LENGTH), receipt.receivedAt()));
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        dlrRepository.saveAll(dlrs); // batched inserts via the pooled sms_dlr_seq
+    }
+
+    private static String finalStatuses() {
+        StringBuilder sb = new StringBuilder();
+        for (ReceiptState state : ReceiptState.values()) {
+            if (!state.isFinal()) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append('\'').append(state.outboundStatus()).append('\'');
+        }
+        return sb.toString();
+    }
+
+    private static String truncate(String value, int length) {
+        return value != null && value.length() > length ? value.substring(0, length) : value;
+    }
+}
@@ -0,0 +1,129 @@
+package com.cascade.smppmls.smpp;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+/**
+ * In-memory dispatch queue for one session with separate HIGH and NORMAL lanes.
+ *
+ * Entries are de-duplicated by outbound id, so rehydrating from the database while
+ * the API is still feeding the queue never produces a double send. Removal is lazy:
+ * a removed id is dropped from the pending map and skipped when it reaches the head.
+ */
+public class DispatchQueue {
+
+    private final String key;
+    private final int capacity;
+
+    private final Queue<SmsOutboundEntity> high = new ConcurrentLinkedQueue<>();
+    private final Queue<SmsOutboundEntity> normal = new ConcurrentLinkedQueue<>();
+
+    // outbound id -> lane ("HIGH"/"NORMAL") for every entry that is still live
+    private final Map<Long, String> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger highDepth = new AtomicInteger();
+    private final AtomicInteger normalDepth = new AtomicInteger();
+
+    // set when an offer was refused because the queue was full; rows stay QUEUED in the DB
+    private final AtomicBoolean spilled = new AtomicBoolean(false);
+
+    public DispatchQueue(String key, int capacity) {
+        this.key = key;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Add a QUEUED message to its priority lane.
+     * @return false if the message is already queued or the queue is full
+     */
+    public boolean offer(SmsOutboundEntity e) {
+        if (e == null || e.getId() == null) return false;
+        if (isFull()) {
+            spilled.set(true);
+            return false;
+        }
+        String lane = "HIGH".equalsIgnoreCase(e.getPriority()) ? "HIGH" : "NORMAL";
+        if (pending.putIfAbsent(e.getId(), lane) != null) {
+            return false;
+        }
+        if ("HIGH".equals(lane)) {
+            highDepth.incrementAndGet();
+            high.offer(e);
+        } else {
+            normalDepth.incrementAndGet();
+            normal.offer(e);
+        }
+        return true;
+    }
+
+    public SmsOutboundEntity pollHigh() {
+        return poll(high, highDepth);
+    }
+
+    public SmsOutboundEntity pollNormal() {
+        return poll(normal, normalDepth);
+    }
+
+    private SmsOutboundEntity poll(Queue<SmsOutboundEntity> lane, AtomicInteger depth) {
+        SmsOutboundEntity e;
+        while ((e = lane.poll()) != null) {
+            // skip tombstoned entries (already removed/moved elsewhere)
+            if (pending.remove(e.getId()) != null) {
+                depth.decrementAndGet();
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove a message that was moved to another session or otherwise left QUEUED state.
+     */
+    public boolean remove(Long id) {
+        if (id == null) return false;
+        String lane = pending.remove(id);
+        if (lane == null) return false;
+        if ("HIGH".equals(lane)) highDepth.decrementAndGet(); else normalDepth.decrementAndGet();
+        return true;
+    }
+
+    public boolean contains(Long id) {
+        return id != null && pending.containsKey(id);
+    }
+
+    public int highDepth() {
+        return highDepth.get();
+    }
+
+    public int normalDepth() {
+        return normalDepth.get();
+    }
+
+    public int size() {
+        return highDepth.get() + normalDepth.get();
+    }
+
+    public boolean isFull() {
+        return size() >= capacity;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns and clears the spilled flag; true means QUEUED rows exist in the DB that never made it into memory.
+     */
+    public boolean clearSpilled() {
+        return spilled.getAndSet(false);
+    }
+}
@@ -0,0 +1,144 @@
+package com.cascade.smppmls.smpp;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+import com.cascade.smppmls.repository.SmsOutboundClaimRepository;
+import com.cascade.smppmls.repository.SmsOutboundRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the in-memory {@link DispatchQueue} of every session.
+ *
+ * Producers (API submit, retry scheduler, rerouter) enqueue right after they persist,
+ * so {@link SessionSender} never has to query the database on the send path.
+ * The database is only read to rehydrate a queue when its session binds.
+ *
+ * With {@code smpp.dispatch.late-binding} the queues are keyed by operator instead: every bound
+ * session of the operator pulls from the same queue as its rate allows, and the session is
+ * written to the row only when it claims the message.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DispatchQueueRegistry {
+
+    private final SmsOutboundRepository outboundRepository;
+    private final SmppProperties smppProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, DispatchQueue> queues = new ConcurrentHashMap<>();
+
+    public boolean isLateBinding() {
+        return smppProperties.getDispatch().isLateBinding();
+    }
+
+    /**
+     * Key of the queue a session pulls from: the operator with late binding, else the session itself
+     */
+    public String queueKeyFor(String operatorId, String sessionKey) {
+        return isLateBinding() ? operatorId : sessionKey;
+    }
+
+    /**
+     * Get (or lazily create) the dispatch queue for a session (or an operator with late binding)
+     */
+    public DispatchQueue queueFor(String queueKey) {
+        return queues.computeIfAbsent(queueKey, key -> {
+            DispatchQueue q = new DispatchQueue(key, smppProperties.getDispatch().getQueueCapacity());
+            String tag = isLateBinding() ? "operator" : "session";
+            Gauge.builder("smpp.dispatch.queue.depth", q, DispatchQueue::highDepth)
+                .tag(tag, key).tag("priority", "HIGH").register(meterRegistry);
+            Gauge.builder("smpp.dispatch.queue.depth", q, DispatchQueue::normalDepth)
+                .tag(tag, key).tag("priority", "NORMAL").register(meterRegistry);
+            return q;
+        });
+    }
+
+    /**
+     * Enqueue a persisted QUEUED message on the queue of its assigned session (or its operator)
+     */
+    public boolean enqueue(SmsOutboundEntity e) {
+        if (e == null || !"QUEUED".equals(e.getStatus())) return false;
+        String key = isLateBinding() ? e.getOperator() : e.getSessionId();
+        if (key == null) return false;
+        return queueFor(key).offer(e);
+    }
+
+    /**
+     * Move a message from one session queue to another (used when rerouting)
+     */
+    public void move(String fromSessionKey, SmsOutboundEntity e) {
+        DispatchQueue from = queues.get(fromSessionKey);
+        if (from != null) from.remove(e.getId());
+        enqueue(e);
+    }
+
+    /**
+     * Move everything queued in memory for a session to other sessions, using the same spread as
+     * {@link SmsOutboundClaimRepository#reassignQueued}. If the source queue had spilled, the
+     * targets reload the moved rows that were never in memory.
+     * @return number of messages moved
+     */
+    public int redistribute(String fromSessionKey, List<String> targetSessionKeys) {
+        DispatchQueue from = queues.get(fromSessionKey);
+        if (from == null || targetSessionKeys.isEmpty()) return 0;
+        int moved = 0;
+        SmsOutboundEntity e;
+        while ((e = from.pollHigh()) != null || (e = from.pollNormal()) != null) {
+            e.setSessionId(SmsOutboundClaimRepository.targetFor(e.getId(), targetSessionKeys));
+            if (enqueue(e)) moved++;
+        }
+        if (from.clearSpilled()) targetSessionKeys.forEach(this::rehydrate);
+        return moved;
+    }
+
+    /**
+     * Load QUEUED rows of a session (or operator) that are not yet in memory. Called when the
+     * session binds (startup, reconnect, failover) and when a previously full queue has drained.
+     * @return number of messages added to the queue
+     */
+    public int rehydrate(String queueKey) {
+        DispatchQueue q = queueFor(queueKey);
+        boolean byOperator = isLateBinding();
+        int batchSize = Math.max(1, smppProperties.getDispatch().getRehydrateBatchSize());
+        int added = 0;
+        long lastId = 0L;
+        long start = System.currentTimeMillis();
+        while (true) {
+            List<SmsOutboundEntity> batch = byOperator
+                ? outboundRepository.findByStatusAndOperatorAndIdGreaterThanOrderByIdAsc("QUEUED", queueKey, lastId, PageRequest.of(0, batchSize))
+                : outboundRepository.findByStatusAndSessionIdAndIdGreaterThanOrderByIdAsc("QUEUED", queueKey, lastId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) break;
+            for (SmsOutboundEntity e : batch) {
+                if (q.offer(e)) added++;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            if (batch.size() < batchSize || q.isFull()) break;
+        }
+        if (added > 0) {
+            log.info("[{}] Rehydrated {} queued messages from database in {} ms (HP={}, NP={})",
+                queueKey, added, System.currentTimeMillis() - start, q.highDepth(), q.normalDepth());
+        }
+        return added;
+    }
+
+    /**
+     * Snapshot of queue depth per session (per operator with late binding)
+     */
+    public Map<String, Integer> depths() {
+        Map<String, Integer> depths = new ConcurrentHashMap<>();
+        queues.forEach((key, q) -> depths.put(key, q.size()));
+        return depths;
+    }
+}
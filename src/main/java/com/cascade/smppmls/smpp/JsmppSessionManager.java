@@ -4,20 +4,18 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.*;
-import org.jsmpp.extra.ProcessRequestException;
 import org.jsmpp.session.*;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import com.cascade.smppmls.config.SmppProperties;
-import com.cascade.smppmls.entity.SmsOutboundEntity;
-import com.cascade.smppmls.repository.SmsOutboundRepository;
+import com.cascade.smppmls.repository.SmsOutboundClaimRepository;
+import com.cascade.smppmls.router.SessionLoadProvider;
 
 
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.*;
@@ -30,7 +28,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Component
 @Primary
 @RequiredArgsConstructor
-public class JsmppSessionManager implements SmppSessionManager, MessageReceiverListener {
+public class JsmppSessionManager implements SmppSessionManager, SessionLoadProvider {
 
     // Session states (same as SocketSmppSessionManager)
     public enum SessionState {
@@ -38,7 +36,12 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
     }
     
     private final SmppProperties smppProperties;
-    private final SmsOutboundRepository outboundRepository;
+    private final DispatchQueueRegistry dispatchQueues;
+    private final SmsOutboundClaimRepository claimRepository;
+    private final SubmitResultWriter resultWriter;
+    private final DeliveryReceiptWriter receiptWriter;
+    private final RetryScheduler retryScheduler;
+    private final RetryPolicy retryPolicy;
     private final Map<String, org.jsmpp.session.SMPPSession> sessions = new ConcurrentHashMap<>();
     private final ScheduledExecutorService senderScheduler = Executors.newScheduledThreadPool(8);
     private final ExecutorService submitExecutor = Executors.newVirtualThreadPerTaskExecutor();
@@ -47,16 +50,27 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
     private final Map<String, ScheduledFuture<?>> senderFutures = new ConcurrentHashMap<>();
     private final Map<String, String> sessionToKeyMap = new ConcurrentHashMap<>();
     private final Map<String, SessionState> sessionStates = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionOperators = new ConcurrentHashMap<>();
     private final Map<String, Boolean> shouldRetry = new ConcurrentHashMap<>();
+    private final java.util.Set<String> sessionGauges = ConcurrentHashMap.newKeySet();
 
     @Value("${priority.high.max-tps-percentage:20}")
     private int hpMaxPercentage;
 
     private final io.micrometer.core.instrument.MeterRegistry meterRegistry;
-    private final com.cascade.smppmls.repository.SmsDlrRepository dlrRepository;
+    private final DeliveryReceiptProcessor deliveryReceiptProcessor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // lease owner prefix for claimed rows (pid@host unless configured)
+    private String instanceId;
+    private long pacingResolutionMs;
 
     @PostConstruct
     public void init() {
+        String configured = smppProperties.getDispatch().getInstanceId();
+        instanceId = (configured != null && !configured.isBlank())
+            ? configured : java.lang.management.ManagementFactory.getRuntimeMXBean().getName();
+        pacingResolutionMs = Math.max(1, smppProperties.getDispatch().getPacingResolutionMs());
         start();
     }
 
@@ -117,7 +131,8 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
                     log.info("Initializing session: {} (operator={}, systemId={}, count={}/{})", 
                         sessionKey, operatorId, sessionCfg.getSystemId(), i, sessionCount);
                     
-                    sessionStates.put(sessionKey, SessionState.STARTING);
+                    sessionOperators.put(sessionKey, operatorId);
+                    setState(sessionKey, SessionState.STARTING);
                     shouldRetry.put(sessionKey, true); // Auto-start sessions should retry
                     
                     // Start a dedicated bind loop for this session to handle reconnect/backoff using virtual thread
@@ -144,10 +159,10 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
                 // Create and configure the session
                 session = new org.jsmpp.session.SMPPSession();
                 session.setEnquireLinkTimer(smppProperties.getDefaultConfig().getEnquireLinkInterval() / 1000); // Convert to seconds
-                session.setTransactionTimer(10000); // 10 seconds transaction timeout
+                session.setTransactionTimer(requestExpiryTimeout(operatorId)); // per-slot submit_sm_resp timeout
                 
-                // Set up message receiver
-                session.setMessageReceiverListener(this);
+                // Set up a receiver of its own, so receipts are attributed to this bind
+                session.setMessageReceiverListener(new SessionReceiverListener(sessionKey, deliveryReceiptProcessor, meterRegistry));
                 
                 // Connect and bind
                 String systemId = sessionCfg.getSystemId();
@@ -169,20 +184,32 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
                 log.info("[{}] Bound successfully", sessionDesc);
                 sessions.put(sessionKey, session);
                 sessionToKeyMap.put(session.getSessionId(), sessionKey);
-                sessionStates.put(sessionKey, SessionState.CONNECTED);
+                setState(sessionKey, SessionState.CONNECTED);
                 backoff = Math.max(1000, smppProperties.getDefaultConfig().getReconnectDelay()); // Reset backoff
                 
-                // Create and schedule a dedicated SessionSender enforcing HP/NP token buckets
+                // Load QUEUED rows for this session (or its operator) into the dispatch queue (startup/failover)
+                String queueKey = dispatchQueues.queueKeyFor(operatorId, sessionKey);
+                try {
+                    dispatchQueues.rehydrate(queueKey);
+                } catch (Exception e) {
+                    log.warn("[{}] Dispatch queue rehydration failed: {}", sessionDesc, e.getMessage());
+                }
+                
+                // Create and schedule a dedicated SessionSender pacing HP/NP submits every pacing tick
                 String serviceType = (sessionCfg.getServiceType() != null) ? sessionCfg.getServiceType() : "";
                 String sourceAddress = (sessionCfg.getSourceAddress() != null) ? sessionCfg.getSourceAddress() : "";
-                SessionSender sender = new SessionSender(sessionKey, session, serviceType, sourceAddress,
-                    Math.max(1, sessionCfg.getTps()), hpMaxPercentage, 
-                    outboundRepository, submitExecutor, meterRegistry);
+                SessionSender sender = new SessionSender(sessionKey, queueKey, session, serviceType, sourceAddress,
+                    Math.max(1, sessionCfg.getTps()), hpMaxPercentage, pacingResolutionMs, 
+                    resultWriter, receiptWriter, retryScheduler, retryPolicy, dispatchQueues,
+                    claimRepository, instanceId + ":" + sessionKey, smppProperties.getDispatch().getLeaseTimeoutMs(),
+                    new SubmitWindow(windowSize(operatorId), requestExpiryTimeout(operatorId)), smppProperties.getAdaptive(),
+                    submitExecutor, meterRegistry);
                 
                 sessionSenders.put(sessionKey, sender);
+                registerSessionGauges(sessionKey);
                 ScheduledFuture<?> future = senderScheduler.scheduleAtFixedRate(
                     sender,
-                    0L, 1L, TimeUnit.SECONDS);
+                    0L, pacingResolutionMs, TimeUnit.MILLISECONDS);
                 sender.setScheduledFuture(future);
                 senderFutures.put(sessionKey, future);
                 
@@ -198,7 +225,7 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
                 
             } catch (Exception e) {
                 log.warn("[{}] Bind/connection error: {} [State: RETRYING]", sessionDesc, e.getMessage());
-                sessionStates.put(sessionKey, SessionState.RETRYING);
+                setState(sessionKey, SessionState.RETRYING);
             } finally {
                 // Cleanup
                 if (session != null) {
@@ -222,6 +249,11 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
                 } catch (Exception e) {
                     log.warn("[{}] Error cleaning up sender: {}", sessionDesc, e.getMessage());
                 }
+                
+                // bind dropped without an exception (unbind/close from the SMSC)
+                if (sessionStates.get(sessionKey) == SessionState.CONNECTED) {
+                    setState(sessionKey, SessionState.RETRYING);
+                }
             }
             
             // Only retry if shouldRetry is true
@@ -241,147 +273,83 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
             backoff = Math.min(backoff * 2, maxBackoff);
         }
         
-        sessionStates.put(sessionKey, SessionState.STOPPED);
+        setState(sessionKey, SessionState.STOPPED);
         log.info("[{}] Bind loop exiting [Final State: STOPPED]", sessionDesc);
     }
 
-    // Implement MessageReceiverListener interface methods
-    @Override
-    public void onAcceptDeliverSm(DeliverSm deliverSm) throws ProcessRequestException {
-        // Note: For client sessions, we need to track which session this came from
-        // We'll use a workaround by checking all active sessions
-        String sessionKey = findSessionKeyForDeliverSm(deliverSm);
-        
-        if (sessionKey == null) {
-            log.warn("Received DeliverSm for unknown session");
-            throw new ProcessRequestException("Unknown session", SMPPConstant.STAT_ESME_RINVSYSID);
-        }
-
+    // record the state and publish a SessionStateChangedEvent if it actually changed
+    private void setState(String sessionKey, SessionState state) {
+        SessionState previous = sessionStates.put(sessionKey, state);
+        if (previous == state) return;
         try {
-            byte[] shortMessage = deliverSm.getShortMessage();
-            String text = shortMessage != null ? new String(shortMessage, StandardCharsets.UTF_8) : "";
-            log.info("[" + sessionKey + "] Received DeliverSm (short_message={}): {}", 
-                shortMessage != null ? shortMessage.length : 0, text);
-
-            String smscId = null;
-            String rawStatus = null;
-
-            // 1) Try to get message ID from receipted_message_id TLV (tag 0x001E)
-            OptionalParameter receiptedMsgId = deliverSm.getOptionalParameter((short)0x001E);
-            if (receiptedMsgId != null) {
-                byte[] value = receiptedMsgId.serialize();
-                // Skip the first 4 bytes (tag + length)
-                if (value != null && value.length > 4) {
-                    smscId = new String(value, 4, value.length - 4, StandardCharsets.UTF_8).trim();
-                    log.debug("[" + sessionKey + "] Extracted receipted_message_id TLV: {}", smscId);
-                }
-            }
-
-            // 2) Try to get message state from message_state TLV (tag 0x0427)
-            Integer numericState = null;
-            OptionalParameter messageState = deliverSm.getOptionalParameter((short)0x0427);
-            if (messageState != null) {
-                byte[] value = messageState.serialize();
-                // Skip the first 4 bytes (tag + length)
-                if (value != null && value.length > 4) {
-                    numericState = (int) value[4] & 0xFF;
-                    log.debug("[" + sessionKey + "] Extracted message_state TLV: {}", numericState);
-                }
-            }
-
-            // 3) Fallback: try to parse short_message text for id: token
-            if (smscId == null && text != null) {
-                java.util.regex.Matcher m = java.util.regex.Pattern.compile("id:([A-Za-z0-9-]+)").matcher(text);
-                if (m.find()) smscId = m.group(1);
-            }
-
-            // 4) Another fallback: check optional TLV 'message_payload' (tag 0x0424)
-            if (smscId == null) {
-                OptionalParameter messagePayload = deliverSm.getOptionalParameter((short)0x0424);
-                if (messagePayload != null) {
-                    byte[] value = messagePayload.serialize();
-                    // Skip the first 4 bytes (tag + length)
-                    if (value != null && value.length > 4) {
-                        String payload = new String(value, 4, value.length - 4, StandardCharsets.UTF_8);
-                        java.util.regex.Matcher m2 = java.util.regex.Pattern.compile("id:([A-Za-z0-9-]+)").matcher(payload);
-                        if (m2.find()) smscId = m2.group(1);
-                    }
-                }
-            }
-
-            // Determine raw status string for persistence
-            if (text != null && !text.isBlank()) {
-                rawStatus = text;
-            } else if (numericState != null) {
-                rawStatus = "STATE_" + numericState;
-            } else {
-                rawStatus = "DLR_UNKNOWN";
-            }
-
-            // Process the DLR if we have an ID
-            if (smscId != null && !smscId.isBlank()) {
-                processDeliveryReceipt(sessionKey, smscId, rawStatus);
-            } else {
-                log.warn("[" + sessionKey + "] DeliverSm without parsable id: {}", text);
-            }
-
+            eventPublisher.publishEvent(new SessionStateChangedEvent(sessionKey, sessionOperators.get(sessionKey), previous, state));
         } catch (Exception e) {
-            log.error("[" + sessionKey + "] Error processing DeliverSm: " + e.getMessage(), e);
-            throw new ProcessRequestException(e.getMessage(), SMPPConstant.STAT_ESME_RX_R_APPN);
+            log.warn("[{}] Error publishing state change {} -> {}: {}", sessionKey, previous, state, e.getMessage());
         }
     }
 
-    private void processDeliveryReceipt(String sessionKey, String smscId, String rawStatus) {
-        SmsOutboundEntity outbound = outboundRepository.findBySmscMsgId(smscId);
-        if (outbound != null) {
-            String mappedStatus = mapDlrStatus(rawStatus);
-            outbound.setStatus(mappedStatus);
-            outboundRepository.save(outbound);
-
-            com.cascade.smppmls.entity.SmsDlrEntity dlrEntity = new com.cascade.smppmls.entity.SmsDlrEntity();
-            dlrEntity.setSmsOutboundId(outbound.getId());
-            dlrEntity.setSmscMsgId(smscId);
-            dlrEntity.setStatus(rawStatus);
-            dlrEntity.setReceivedAt(java.time.Instant.now());
-            dlrRepository.save(dlrEntity);
-            
-            log.info("[" + sessionKey + "] Mapped DLR for outbound id={} smsc_msg_id={} mapped={}", 
-                outbound.getId(), smscId, mappedStatus);
-        } else {
-            log.warn("[" + sessionKey + "] Could not find outbound for smsc_msg_id={}", smscId);
+    private int windowSize(String operatorId) {
+        SmppProperties.Operator operator = smppProperties.getOperators().get(operatorId);
+        if (operator != null && operator.getWindowSize() != null && operator.getWindowSize() > 0) {
+            return operator.getWindowSize();
         }
+        return Math.max(1, smppProperties.getDefaultConfig().getWindowSize());
     }
 
-    private String mapDlrStatus(String text) {
-        if (text == null) return "DLR_UNKNOWN";
-        String upperText = text.toUpperCase();
-        if (upperText.contains("DELIVRD")) return "DELIVERED";
-        if (upperText.contains("EXPIRED")) return "EXPIRED";
-        if (upperText.contains("UNDELIV")) return "UNDELIVERABLE";
-        return "DLR_" + (text.length() > 20 ? text.substring(0, 20) : text);
+    private int requestExpiryTimeout(String operatorId) {
+        SmppProperties.Operator operator = smppProperties.getOperators().get(operatorId);
+        if (operator != null && operator.getRequestExpiryTimeout() != null && operator.getRequestExpiryTimeout() > 0) {
+            return operator.getRequestExpiryTimeout();
+        }
+        return Math.max(1000, smppProperties.getDefaultConfig().getRequestExpiryTimeout());
     }
 
-    private String findSessionKeyForDeliverSm(DeliverSm deliverSm) {
-        // Since MessageReceiverListener doesn't provide session context,
-        // we'll need to use the first active session as a fallback
-        // In production, you might want to use a more sophisticated approach
-        if (!sessions.isEmpty()) {
-            return sessions.keySet().iterator().next();
-        }
-        return null;
+    // gauges read through the sender map so they follow the sender of the current bind
+    private void registerSessionGauges(String sessionKey) {
+        if (!sessionGauges.add(sessionKey)) return;
+        io.micrometer.core.instrument.Gauge.builder("smpp.window.occupancy", sessionSenders,
+                senders -> senders.containsKey(sessionKey) ? senders.get(sessionKey).getWindow().occupancy() : 0)
+            .tag("session", sessionKey).register(meterRegistry);
+        io.micrometer.core.instrument.Gauge.builder("smpp.window.size", sessionSenders,
+                senders -> senders.containsKey(sessionKey) ? senders.get(sessionKey).getWindow().size() : 0)
+            .tag("session", sessionKey).register(meterRegistry);
+        io.micrometer.core.instrument.Gauge.builder("smpp.session.effective.tps", sessionSenders,
+                senders -> senders.containsKey(sessionKey) ? senders.get(sessionKey).getRateController().getEffectiveTps() : 0)
+            .tag("session", sessionKey).register(meterRegistry);
     }
 
-    // Unused interface methods (required by MessageReceiverListener)
     @Override
-    public DataSmResult onAcceptDataSm(DataSm dataSm, org.jsmpp.session.Session source) throws ProcessRequestException {
-        throw new ProcessRequestException("DataSm not supported", SMPPConstant.STAT_ESME_RINVCMDID);
+    public boolean isAvailable(String sessionId) {
+        SMPPSession session = sessions.get(sessionId);
+        return session != null && session.getSessionState().isBound() && sessionSenders.containsKey(sessionId);
     }
-    
+
     @Override
-    public void onAcceptAlertNotification(AlertNotification alertNotification) {
-        log.debug("Alert notification received: " + alertNotification);
+    public double loadOf(String sessionId) {
+        SessionSender sender = sessionSenders.get(sessionId);
+        if (sender == null) return Double.MAX_VALUE;
+        int backlog = sender.getDispatchQueue().size() + sender.getWindow().occupancy();
+        AdaptiveRateController rateController = sender.getRateController();
+        double latencyMs = Math.max(0, rateController.getLatencyEwmaMs()); // -1 until the first response
+        return backlog / Math.max(1.0, rateController.getEffectiveTps()) + latencyMs / 1000.0;
     }
-    
+
+    /**
+     * Get the submit window of a bound session, or null if the session has no active sender
+     */
+    public SubmitWindow getSubmitWindow(String sessionId) {
+        SessionSender sender = sessionSenders.get(sessionId);
+        return sender != null ? sender.getWindow() : null;
+    }
+
+    /**
+     * Get the adaptive rate controller of a bound session, or null if the session has no active sender
+     */
+    public AdaptiveRateController getRateController(String sessionId) {
+        SessionSender sender = sessionSenders.get(sessionId);
+        return sender != null ? sender.getRateController() : null;
+    }
+
     @Override
     public void stop() {
         log.info("Shutting down SMPP session manager...");
@@ -444,6 +412,11 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
             }
         }
         
+        // Durability barrier: every submit_sm_resp received so far is committed before unbinding
+        if (!resultWriter.flush(smppProperties.getWriteBehind().getShutdownTimeoutMs())) {
+            log.warn("Submit results not fully flushed before unbind, {} still pending", resultWriter.pending());
+        }
+        
         // Unbind and close all SMPP sessions
         sessions.forEach((sessionKey, session) -> {
             if (session != null) {
@@ -478,7 +451,7 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
     public void stopSession(String sessionId) {
         log.info("Stopping session: {}", sessionId);
         
-        sessionStates.put(sessionId, SessionState.STOPPING);
+        setState(sessionId, SessionState.STOPPING);
         shouldRetry.put(sessionId, false); // Prevent retries
         
         // Stop the sender
@@ -510,7 +483,7 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
             }
         }
         
-        sessionStates.put(sessionId, SessionState.STOPPED);
+        setState(sessionId, SessionState.STOPPED);
         log.info("[{}] Session stopped successfully", sessionId);
     }
     
@@ -538,7 +511,8 @@ public class JsmppSessionManager implements SmppSessionManager, MessageReceiverL
             .findFirst()
             .orElseThrow(() -> new IllegalArgumentException("Session not found: " + systemId));
         // Enable retries and set state
-        sessionStates.put(sessionId, SessionState.STARTING);
+        sessionOperators.put(sessionId, operatorId);
+        setState(sessionId, SessionState.STARTING);
         shouldRetry.put(sessionId, true);
         
         // Start the bind loop for this session using virtual thread
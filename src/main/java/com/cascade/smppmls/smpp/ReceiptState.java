@@ -0,0 +1,75 @@
+package com.cascade.smppmls.smpp;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Message states of a delivery receipt (SMPP 3.4 section 5.2.28), with the "stat:" token the
+ * SMSC writes in the receipt text and the status stored on the outbound row.
+ */
+public enum ReceiptState {
+
+    ENROUTE(1, "ENROUTE", "ENROUTE", false),
+    DELIVERED(2, "DELIVRD", "DELIVERED", true),
+    EXPIRED(3, "EXPIRED", "EXPIRED", true),
+    DELETED(4, "DELETED", "DELETED", true),
+    UNDELIVERABLE(5, "UNDELIV", "UNDELIVERABLE", true),
+    ACCEPTED(6, "ACCEPTD", "ACCEPTED", true),
+    UNKNOWN(7, "UNKNOWN", "DLR_UNKNOWN", false),
+    REJECTED(8, "REJECTD", "REJECTED", true);
+
+    private static final ReceiptState[] VALUES = values();
+
+    private final int messageState;
+    private final byte[] stat;
+    private final String outboundStatus;
+    private final boolean finalState;
+
+    ReceiptState(int messageState, String stat, String outboundStatus, boolean finalState) {
+        this.messageState = messageState;
+        this.stat = stat.getBytes(StandardCharsets.US_ASCII);
+        this.outboundStatus = outboundStatus;
+        this.finalState = finalState;
+    }
+
+    /**
+     * Value of the message_state TLV
+     */
+    public int messageState() {
+        return messageState;
+    }
+
+    public String outboundStatus() {
+        return outboundStatus;
+    }
+
+    /**
+     * No later receipt changes a message in this state
+     */
+    public boolean isFinal() {
+        return finalState;
+    }
+
+    /**
+     * @return the state for a message_state TLV value, or null if it is not a known state
+     */
+    public static ReceiptState ofMessageState(int messageState) {
+        for (ReceiptState state : VALUES) {
+            if (state.messageState == messageState) return state;
+        }
+        return null;
+    }
+
+    /**
+     * @return the state whose stat token is {@code buf[offset, offset + length)} (case-insensitive), or null
+     */
+    public static ReceiptState ofStat(byte[] buf, int offset, int length) {
+        for (ReceiptState state : VALUES) {
+            byte[] token = state.stat;
+            if (token.length != length) continue;
+            int i = 0;
+            while (i < length && DeliveryReceiptParser.upper(buf[offset + i]) == token[i]) i++;
+            if (i == length) return state;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,237 @@
+package com.cascade.smppmls.smpp;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.config.SmppProperties.RetryCurve;
+import com.cascade.smppmls.config.SmppProperties.RetryRule;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides whether a failed submit is retried, and when.
+ *
+ * Rules are keyed by operator and submit_sm_resp command_status, most specific first:
+ * operator + code ({@code retry-codes}), code ({@code smpp.retry.codes}), operator ({@code retry}),
+ * then the {@code smpp.retry} defaults; each field left unset inherits from the next level. All
+ * levels are merged once at startup, so a decision is two map lookups.
+ */
+@Slf4j
+@Component
+public class RetryPolicy {
+
+    /** command_status key of failures without a submit_sm_resp (timeout, connection loss) */
+    public static final int TRANSPORT_ERROR = -1;
+
+    // errors a retry cannot fix, unless a rule sets retryable: true
+    private static final Set<Integer> PERMANENT_ERRORS = Set.of(
+        0x00000001, // ESME_RINVMSGLEN
+        0x00000002, // ESME_RINVCMDLEN
+        0x00000003, // ESME_RINVCMDID
+        0x00000004, // ESME_RINVBNDSTS
+        0x0000000A, // ESME_RINVSRCADR
+        0x0000000B, // ESME_RINVDSTADR
+        0x0000000C, // ESME_RINVMSGID
+        0x0000000E, // ESME_RINVPASWD
+        0x0000000F, // ESME_RINVSYSID
+        0x00000010, // reserved
+        0x00000011, // ESME_RCANCELFAIL
+        0x00000033, // ESME_RINVNUMDESTS
+        0x00000045, // ESME_RSUBMITFAIL
+        0x00000066  // ESME_RX_R_APPN
+    );
+
+    /**
+     * Outcome for one failed attempt
+     * @param reason "retry", or why the message fails: "permanent", "max_attempts", "expired"
+     */
+    public record Decision(boolean retry, long delayMs, String reason) {
+
+        static Decision retryIn(long delayMs) {
+            return new Decision(true, delayMs, "retry");
+        }
+
+        static Decision fail(String reason) {
+            return new Decision(false, 0, reason);
+        }
+    }
+
+    /**
+     * SQL condition on sms_outbound with its bind values, in order
+     */
+    public record SqlCondition(String sql, List<Object> args) {
+    }
+
+    // fully resolved rule; retryable stays null until the code decides it
+    private record Rule(Boolean retryable, RetryCurve curve, int maxAttempts, long baseDelayMs, long maxDelayMs, long validityMs) {
+
+        Rule with(RetryRule override) {
+            if (override == null) return this;
+            return new Rule(
+                override.getRetryable() != null ? override.getRetryable() : retryable,
+                override.getCurve() != null ? override.getCurve() : curve,
+                override.getMaxAttempts() != null ? override.getMaxAttempts() : maxAttempts,
+                override.getBaseDelayMs() != null ? override.getBaseDelayMs() : baseDelayMs,
+                override.getMaxDelayMs() != null ? override.getMaxDelayMs() : maxDelayMs,
+                override.getValidityMs() != null ? override.getValidityMs() : validityMs);
+        }
+    }
+
+    private final double jitter;
+    private final DoubleSupplier random;
+    private final Rule defaults;
+    private final Map<Integer, Rule> codeRules = new HashMap<>();
+    private final Map<String, Rule> operatorRules = new HashMap<>();
+    private final Map<String, Map<Integer, Rule>> operatorCodeRules = new HashMap<>();
+    private final SqlCondition exhausted;
+
+    @Autowired
+    public RetryPolicy(SmppProperties smppProperties) {
+        this(smppProperties, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    RetryPolicy(SmppProperties smppProperties, DoubleSupplier random) {
+        SmppProperties.Retry cfg = smppProperties.getRetry();
+        this.jitter = Math.max(0, Math.min(100, cfg.getJitterPercentage())) / 100.0;
+        this.random = random;
+        this.defaults = new Rule(null, cfg.getCurve(), cfg.getMaxAttempts(), cfg.getBaseDelayMs(), cfg.getMaxDelayMs(), cfg.getValidityMs());
+
+        Map<Integer, RetryRule> codes = parseCodes(cfg.getCodes(), "smpp.retry.codes");
+        codes.forEach((code, rule) -> codeRules.put(code, defaults.with(rule)));
+
+        if (smppProperties.getOperators() != null) {
+            smppProperties.getOperators().forEach((operatorId, operator) -> {
+                Rule operatorRule = defaults.with(operator.getRetry());
+                operatorRules.put(operatorId, operatorRule);
+                Map<Integer, RetryRule> operatorCodes = parseCodes(operator.getRetryCodes(), "smpp.operators." + operatorId + ".retry-codes");
+                Set<Integer> keys = new HashSet<>(codes.keySet());
+                keys.addAll(operatorCodes.keySet());
+                Map<Integer, Rule> resolved = new HashMap<>();
+                for (Integer code : keys) {
+                    resolved.put(code, operatorRule.with(codes.get(code)).with(operatorCodes.get(code)));
+                }
+                operatorCodeRules.put(operatorId, resolved);
+            });
+        }
+        this.exhausted = buildExhausted();
+        log.info("Retry policy: {} max-attempts={}, {} code rules, {} operators",
+            cfg.getCurve(), cfg.getMaxAttempts(), codeRules.size(), operatorRules.size());
+    }
+
+    /**
+     * Decide on a failed attempt of {@code e}, before its retry count or last attempt is updated.
+     * @param commandStatus submit_sm_resp command_status, or {@link #TRANSPORT_ERROR}
+     */
+    public Decision decide(SmsOutboundEntity e, int commandStatus, Instant now) {
+        Rule rule = rule(e.getOperator(), commandStatus);
+        boolean retryable = rule.retryable() != null ? rule.retryable() : !PERMANENT_ERRORS.contains(commandStatus);
+        if (!retryable) return Decision.fail("permanent");
+
+        int retry = (e.getRetryCount() == null ? 0 : e.getRetryCount()) + 1;
+        if (retry > rule.maxAttempts()) return Decision.fail("max_attempts");
+
+        long delay = delay(rule, retry, e.getLastAttemptAt(), now);
+        if (e.getCreatedAt() != null && now.plusMillis(delay).isAfter(e.getCreatedAt().plusMillis(rule.validityMs()))) {
+            return Decision.fail("expired");
+        }
+        return Decision.retryIn(delay);
+    }
+
+    /**
+     * Retries allowed for a message that last failed with {@code commandStatus} (null: transport error)
+     */
+    public int maxAttempts(String operatorId, Integer commandStatus) {
+        return rule(operatorId, commandStatus != null ? commandStatus : TRANSPORT_ERROR).maxAttempts();
+    }
+
+    /**
+     * Condition true for rows that used up their retries, the set-based form of
+     * {@code retry_count > maxAttempts(operator, submit_sm_status)}
+     */
+    public SqlCondition exhausted() {
+        return exhausted;
+    }
+
+    // CASE branches follow rule(): operator + code, operator, code, defaults. Codes and limits are
+    // ints from the config and go in as literals; operator ids are bound.
+    private SqlCondition buildExhausted() {
+        StringBuilder sql = new StringBuilder("COALESCE(retry_count, 0) > CASE");
+        List<Object> args = new ArrayList<>();
+        String status = "COALESCE(submit_sm_status, " + TRANSPORT_ERROR + ")";
+        operatorCodeRules.forEach((operatorId, codes) -> {
+            int operatorMax = operatorRules.get(operatorId).maxAttempts();
+            codes.forEach((code, rule) -> {
+                if (rule.maxAttempts() == operatorMax) return; // the operator branch gives the same answer
+                sql.append(" WHEN operator = ? AND ").append(status).append(" = ").append(code)
+                   .append(" THEN ").append(rule.maxAttempts());
+                args.add(operatorId);
+            });
+        });
+        operatorRules.forEach((operatorId, rule) -> {
+            sql.append(" WHEN operator = ? THEN ").append(rule.maxAttempts());
+            args.add(operatorId);
+        });
+        codeRules.forEach((code, rule) ->
+            sql.append(" WHEN ").append(status).append(" = ").append(code).append(" THEN ").append(rule.maxAttempts()));
+        if (operatorRules.isEmpty() && codeRules.isEmpty()) {
+            // a CASE needs at least one WHEN
+            return new SqlCondition("COALESCE(retry_count, 0) > " + defaults.maxAttempts(), List.of());
+        }
+        sql.append(" ELSE ").append(defaults.maxAttempts()).append(" END");
+        return new SqlCondition(sql.toString(), List.copyOf(args));
+    }
+
+    private Rule rule(String operatorId, int commandStatus) {
+        Map<Integer, Rule> operatorCodes = operatorId != null ? operatorCodeRules.get(operatorId) : null;
+        if (operatorCodes == null) return codeRules.getOrDefault(commandStatus, defaults);
+        Rule rule = operatorCodes.get(commandStatus);
+        return rule != null ? rule : operatorRules.get(operatorId);
+    }
+
+    private long delay(Rule rule, int retry, Instant lastAttemptAt, Instant now) {
+        long base = Math.max(0, rule.baseDelayMs());
+        long cap = Math.max(base, rule.maxDelayMs());
+        return switch (rule.curve()) {
+            case IMMEDIATE -> 0L;
+            case EXPONENTIAL -> {
+                long delay = Math.min(cap, base << Math.min(30, retry - 1));
+                long spread = (long) (delay * jitter);
+                yield Math.max(0, delay - spread + (long) (random.getAsDouble() * 2 * spread));
+            }
+            case DECORRELATED_JITTER -> {
+                // the previous delay is the gap since the previous failed attempt
+                long previous = lastAttemptAt != null ? Math.max(base, Math.min(cap, now.toEpochMilli() - lastAttemptAt.toEpochMilli())) : base;
+                long upper = Math.min(cap, previous * 3);
+                yield base + (long) (random.getAsDouble() * Math.max(0, upper - base));
+            }
+        };
+    }
+
+    private static Map<Integer, RetryRule> parseCodes(Map<String, RetryRule> codes, String property) {
+        Map<Integer, RetryRule> parsed = new HashMap<>();
+        if (codes == null) return parsed;
+        codes.forEach((key, rule) -> {
+            String k = key.trim().toLowerCase();
+            try {
+                int code = k.equals("transport") ? TRANSPORT_ERROR
+                    : k.startsWith("0x") ? Integer.parseUnsignedInt(k.substring(2), 16) : Integer.parseInt(k);
+                parsed.put(code, rule);
+            } catch (NumberFormatException ex) {
+                log.warn("Ignoring {} entry '{}': not a command_status", property, key);
+            }
+        });
+        return parsed;
+    }
+}
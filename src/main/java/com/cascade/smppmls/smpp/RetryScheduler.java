@@ -1,50 +1,282 @@
 package com.cascade.smppmls.smpp;
 
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import com.cascade.smppmls.config.SmppProperties;
 import com.cascade.smppmls.entity.SmsOutboundEntity;
+import com.cascade.smppmls.repository.SmsOutboundClaimRepository;
 import com.cascade.smppmls.repository.SmsOutboundRepository;
+import com.cascade.smppmls.smpp.RetryPolicy.SqlCondition;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
+/**
+ * Fires retries from an in-memory {@link RetryWheel} instead of polling the RETRY rows.
+ *
+ * Senders hand a message over when they mark it RETRY; the wheel is rehydrated from the database
+ * on startup. Every tick the due messages are moved back to QUEUED (or FAILED once out of attempts)
+ * with set-based UPDATEs per batch and go straight onto their dispatch queue; the max-attempts check
+ * is part of the UPDATE. A slow sweep moves RETRY rows the wheel does not hold (overflow, rows
+ * written by another instance) the same way.
+ */
 @Component
 public class RetryScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
 
     private final SmsOutboundRepository outboundRepository;
+    private final DispatchQueueRegistry dispatchQueues;
+    private final SmsOutboundClaimRepository claimRepository;
+    private final SubmitResultWriter resultWriter;
+    private final RetryPolicy retryPolicy;
+    private final SmppProperties smppProperties;
+    private final SmppProperties.Retry config;
+    private final MeterRegistry meterRegistry;
+    private final RetryWheel wheel;
+    private final Timer fireTimer;
+    private final Timer sweepTimer;
+
+    private volatile boolean running;
+    private Thread ticker;
+    private volatile int sweepLimit;
 
-    public RetryScheduler(SmsOutboundRepository outboundRepository) {
+    public RetryScheduler(SmsOutboundRepository outboundRepository, DispatchQueueRegistry dispatchQueues,
+                          SmsOutboundClaimRepository claimRepository, SubmitResultWriter resultWriter,
+                          RetryPolicy retryPolicy, SmppProperties smppProperties, MeterRegistry meterRegistry) {
         this.outboundRepository = outboundRepository;
+        this.dispatchQueues = dispatchQueues;
+        this.claimRepository = claimRepository;
+        this.resultWriter = resultWriter;
+        this.retryPolicy = retryPolicy;
+        this.smppProperties = smppProperties;
+        this.config = smppProperties.getRetry();
+        this.meterRegistry = meterRegistry;
+        this.wheel = new RetryWheel(config.getTickMs(), config.getWheelSize(), config.getCapacity(), System.currentTimeMillis());
+        this.fireTimer = Timer.builder("smpp.retry.fire").register(meterRegistry);
+        this.sweepTimer = Timer.builder("smpp.retry.sweep").register(meterRegistry);
+        this.sweepLimit = Math.max(1, config.getBatchSize());
+        Gauge.builder("smpp.retry.scheduled", wheel, RetryWheel::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        int loaded = rehydrate();
+        running = true;
+        ticker = Thread.ofPlatform().daemon().name("retry-wheel").start(this::tickLoop);
+        logger.info("RetryScheduler started: tick={}ms, wheel-size={}, capacity={}, rehydrated={}",
+            config.getTickMs(), config.getWheelSize(), config.getCapacity(), loaded);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // rows stay RETRY in the database and are rehydrated on the next start
+        running = false;
+        if (ticker != null) ticker.interrupt();
+    }
+
+    /**
+     * Schedule a message the sender just marked RETRY for its next_retry_at.
+     * @return false if the wheel is full; the row then waits for the sweep
+     */
+    public boolean schedule(SmsOutboundEntity e) {
+        long deadline = e.getNextRetryAt() != null ? e.getNextRetryAt().toEpochMilli() : System.currentTimeMillis();
+        if (wheel.schedule(e, deadline)) return true;
+        meterRegistry.counter("smpp.retry.overflow").increment();
+        return false;
+    }
+
+    public int scheduled() {
+        return wheel.size();
+    }
+
+    // load every RETRY row into the wheel, keyset-paged
+    int rehydrate() {
+        int batchSize = Math.max(1, config.getBatchSize());
+        int loaded = 0;
+        long lastId = 0L;
+        while (true) {
+            List<SmsOutboundEntity> batch = outboundRepository.findByStatusAndIdGreaterThanOrderByIdAsc("RETRY", lastId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) break;
+            for (SmsOutboundEntity e : batch) {
+                if (!schedule(e)) return loaded;
+                loaded++;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            if (batch.size() < batchSize) break;
+        }
+        return loaded;
+    }
+
+    private void tickLoop() {
+        long tickMs = Math.max(1, config.getTickMs());
+        while (running) {
+            try {
+                Thread.sleep(tickMs);
+                fire(System.currentTimeMillis());
+            } catch (InterruptedException ie) {
+                if (!running) break;
+            } catch (Exception ex) {
+                logger.error("Retry wheel error: {}", ex.getMessage(), ex);
+            }
+        }
+        logger.info("RetryScheduler stopped");
+    }
+
+    /**
+     * Requeue or fail everything due at {@code nowMs}.
+     * @return number of messages put back on a dispatch queue
+     */
+    int fire(long nowMs) {
+        List<SmsOutboundEntity> due = wheel.advance(nowMs);
+        if (due.isEmpty()) return 0;
+        long start = System.nanoTime();
+        // the RETRY transition of a short backoff may still sit in the write-behind buffer; wait at
+        // most one tick so a slow flush cannot stall the wheel
+        boolean flushed = resultWriter.flush(Math.max(1, config.getTickMs()));
+
+        int batchSize = Math.max(1, config.getBatchSize());
+        int requeued = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            requeued += fireBatch(due.subList(from, Math.min(due.size(), from + batchSize)), flushed);
+        }
+        fireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.debug("Fired {} retries ({} requeued) in {} ms", due.size(), requeued,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return requeued;
     }
 
-    // run every 1s; pick a small batch to requeue
-    @Scheduled(fixedDelayString = "1000")
-    public void retryReadyMessages() {
+    /**
+     * @param flushed false if the write-behind barrier timed out: rows not moved may not be RETRY in
+     *                the database yet and go back on the wheel for the next tick
+     */
+    private int fireBatch(List<SmsOutboundEntity> batch, boolean flushed) {
+        // the exhausted check runs in the database: senders only schedule retries the policy allows,
+        // this catches rows from before a policy change
+        SqlCondition exhausted = retryPolicy.exhausted();
+        List<Long> ids = batch.stream().map(SmsOutboundEntity::getId).toList();
         try {
-            var page = outboundRepository.findByStatusAndNextRetryAtBefore("RETRY", Instant.now(), org.springframework.data.domain.PageRequest.of(0, 100));
-            for (SmsOutboundEntity e : page) {
-                // check retryCount limit - use system properties or defaults
-                int max = 5;
-                try { max = Integer.parseInt(System.getProperty("smpp.retry.max-attempts", "5")); } catch (Exception ex) {}
-                if (e.getRetryCount() != null && e.getRetryCount() >= max) {
-                    e.setStatus("FAILED");
-                    outboundRepository.save(e);
-                    logger.info("Message id={} reached max retries -> FAILED", e.getId());
-                    continue;
+            Set<Long> failedIds = new HashSet<>(claimRepository.failRetries(ids, exhausted.sql(), exhausted.args()));
+            Set<Long> requeuedIds = new HashSet<>(claimRepository.requeueRetries(ids, exhausted.sql(), exhausted.args()));
+            int enqueued = 0;
+            int rearmed = 0;
+            long nextTick = System.currentTimeMillis() + Math.max(1, config.getTickMs());
+            for (SmsOutboundEntity e : batch) {
+                if (requeuedIds.contains(e.getId())) {
+                    e.setStatus("QUEUED");
+                    e.setNextRetryAt(null);
+                    if (dispatchQueues.enqueue(e)) enqueued++;
+                } else if (!flushed && !failedIds.contains(e.getId()) && wheel.schedule(e, nextTick)) {
+                    rearmed++;
                 }
+            }
+            // rows that left RETRY in the meantime (DLR, reroute, another instance)
+            countFired(requeuedIds.size(), failedIds.size(), batch.size() - requeuedIds.size() - failedIds.size() - rearmed);
+            if (rearmed > 0) meterRegistry.counter("smpp.retry.fired", "result", "rearmed").increment(rearmed);
+            return enqueued;
+        } catch (Exception ex) {
+            // rows are still RETRY; try again on a later tick
+            logger.error("Requeue of {} retries failed: {}", batch.size(), ex.getMessage());
+            long retryAt = System.currentTimeMillis() + Math.max(1000, config.getTickMs());
+            batch.forEach(e -> wheel.schedule(e, retryAt));
+            return 0;
+        }
+    }
+
+    private void countFired(int requeued, int failed, int skipped) {
+        if (failed > 0) {
+            meterRegistry.counter("smpp.retry.fired", "result", "failed").increment(failed);
+            logger.info("{} messages reached max retries -> FAILED", failed);
+        }
+        meterRegistry.counter("smpp.retry.fired", "result", "requeued").increment(requeued);
+        if (skipped > 0) meterRegistry.counter("smpp.retry.fired", "result", "skipped").increment(skipped);
+    }
+
+    /**
+     * Safety net for RETRY rows overdue by more than a sweep interval: they are not in this
+     * instance's wheel (overflow, another instance). Each pass is two set-based UPDATEs, fail the
+     * exhausted and requeue the rest, and the pass size adapts to the backlog.
+     */
+    @Scheduled(fixedDelayString = "${smpp.retry.sweep-interval-ms:60000}", initialDelayString = "${smpp.retry.sweep-interval-ms:60000}")
+    public void sweepMissedRetries() {
+        try {
+            sweep(Instant.now().minusMillis(config.getSweepIntervalMs()));
+        } catch (Exception ex) {
+            logger.error("Retry sweep error: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Requeue or fail every RETRY row due before {@code dueBefore}.
+     * @return number of rows requeued
+     */
+    int sweep(Instant dueBefore) {
+        SqlCondition exhausted = retryPolicy.exhausted();
+        int requeued = 0;
+        int failed = 0;
+        while (true) {
+            int limit = sweepLimit;
+            long start = System.nanoTime();
+            List<Long> failedIds = claimRepository.failDueRetries(dueBefore, exhausted.sql(), exhausted.args(), limit);
+            List<Long> requeuedIds = claimRepository.requeueDueRetries(dueBefore, exhausted.sql(), exhausted.args(), limit);
+            if (!requeuedIds.isEmpty()) {
+                for (SmsOutboundEntity e : outboundRepository.findAllById(requeuedIds)) {
+                    wheel.cancel(e.getId());
+                    dispatchQueues.enqueue(e);
+                }
+            }
+            sweepTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            countFired(requeuedIds.size(), failedIds.size(), 0);
+            requeued += requeuedIds.size();
+            failed += failedIds.size();
 
-                // re-queue
-                e.setStatus("QUEUED");
-                e.setNextRetryAt(null);
-                outboundRepository.save(e);
-                logger.info("Re-queued message id={} for retry (count={})", e.getId(), e.getRetryCount());
+            int moved = Math.max(failedIds.size(), requeuedIds.size());
+            sweepLimit = nextSweepLimit(limit, moved);
+            if (moved < limit) break;
+        }
+        if (requeued + failed > 0) {
+            logger.warn("Retry sweep moved {} overdue RETRY rows missing from the wheel ({} requeued, {} failed), next pass size {}",
+                requeued + failed, requeued, failed, sweepLimit);
+        }
+        return requeued;
+    }
+
+    // double while passes come back full, halve once the backlog is drained; between batch-size and sweep-max-batch-size
+    private int nextSweepLimit(int limit, int moved) {
+        int min = Math.max(1, config.getBatchSize());
+        int max = Math.max(min, config.getSweepMaxBatchSize());
+        if (moved >= limit) return Math.min(max, limit * 2);
+        if (moved < limit / 4) return Math.max(min, limit / 2);
+        return limit;
+    }
+
+    // return IN_FLIGHT rows with an expired lease to QUEUED and back onto their dispatch queue
+    @Scheduled(fixedDelayString = "${smpp.dispatch.lease-reclaim-interval-ms:5000}")
+    public void reclaimExpiredLeases() {
+        try {
+            var reclaimed = claimRepository.reclaimExpired(Instant.now(), smppProperties.getDispatch().getLeaseReclaimBatchSize());
+            if (reclaimed.isEmpty()) return;
+            int requeued = 0;
+            for (SmsOutboundEntity e : outboundRepository.findAllById(reclaimed)) {
+                if (dispatchQueues.enqueue(e)) requeued++;
             }
+            logger.warn("Reclaimed {} expired IN_FLIGHT leases ({} re-enqueued)", reclaimed.size(), requeued);
         } catch (Exception ex) {
-            logger.error("RetryScheduler error: {}", ex.getMessage());
+            logger.error("Lease reclaim error: {}", ex.getMessage());
         }
     }
 }
@@ -0,0 +1,133 @@
+package com.cascade.smppmls.smpp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+/**
+ * Hashed timing wheel of retry deadlines.
+ *
+ * Time is cut into ticks of {@code tickMs}; a message is linked into the bucket of its deadline
+ * tick modulo the wheel size, so scheduling and cancelling are O(1) and {@link #advance(long)}
+ * only visits the buckets of the ticks that passed. Deadlines further out than one revolution
+ * share a bucket with nearer ones and are skipped until their tick comes round. A message fires
+ * at or after its deadline, at most one tick late. Each outbound id is held at most once.
+ */
+public class RetryWheel {
+
+    private final long tickMs;
+    private final int mask;
+    private final int capacity;
+    private final Node[] buckets;
+    private final Map<Long, Node> byId = new HashMap<>();
+    private long currentTick; // next tick to expire
+
+    private static final class Node {
+        final SmsOutboundEntity message;
+        final long deadlineTick;
+        final int bucket;
+        Node prev;
+        Node next;
+
+        Node(SmsOutboundEntity message, long deadlineTick, int bucket) {
+            this.message = message;
+            this.deadlineTick = deadlineTick;
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param capacity max messages held; beyond that {@link #schedule} refuses
+     */
+    public RetryWheel(long tickMs, int wheelSize, int capacity, long nowMs) {
+        this.tickMs = Math.max(1, tickMs);
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.mask = size - 1;
+        this.capacity = Math.max(1, capacity);
+        this.buckets = new Node[size];
+        this.currentTick = Math.floorDiv(nowMs, this.tickMs);
+    }
+
+    /**
+     * Schedule a message to fire at {@code deadlineMs}, replacing an earlier schedule of the same id.
+     * A deadline in the past fires on the next tick.
+     * @return false if the wheel is full
+     */
+    public synchronized boolean schedule(SmsOutboundEntity message, long deadlineMs) {
+        Node previous = byId.get(message.getId());
+        if (previous != null) {
+            unlink(previous);
+        } else if (byId.size() >= capacity) {
+            return false;
+        }
+        long tick = Math.max(Math.floorDiv(deadlineMs + tickMs - 1, tickMs), currentTick);
+        Node node = new Node(message, tick, (int) (tick & mask));
+        node.next = buckets[node.bucket];
+        if (node.next != null) node.next.prev = node;
+        buckets[node.bucket] = node;
+        byId.put(message.getId(), node);
+        return true;
+    }
+
+    /**
+     * @return true if the message was scheduled and is now removed
+     */
+    public synchronized boolean cancel(long outboundId) {
+        Node node = byId.remove(outboundId);
+        if (node == null) return false;
+        unlink(node);
+        return true;
+    }
+
+    public synchronized boolean contains(long outboundId) {
+        return byId.containsKey(outboundId);
+    }
+
+    /**
+     * Expire every tick up to {@code nowMs}.
+     * @return messages whose deadline has passed, removed from the wheel
+     */
+    public synchronized List<SmsOutboundEntity> advance(long nowMs) {
+        long nowTick = Math.floorDiv(nowMs, tickMs);
+        if (nowTick < currentTick || byId.isEmpty()) {
+            currentTick = Math.max(currentTick, nowTick + 1);
+            return List.of();
+        }
+        List<SmsOutboundEntity> due = new ArrayList<>();
+        if (nowTick - currentTick >= buckets.length) {
+            // fell behind by a full revolution: every bucket has due entries
+            for (int b = 0; b < buckets.length; b++) expire(b, nowTick, due);
+        } else {
+            for (long t = currentTick; t <= nowTick; t++) expire((int) (t & mask), nowTick, due);
+        }
+        currentTick = nowTick + 1;
+        return due;
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private void expire(int bucket, long nowTick, List<SmsOutboundEntity> due) {
+        Node node = buckets[bucket];
+        while (node != null) {
+            Node next = node.next;
+            if (node.deadlineTick <= nowTick) {
+                unlink(node);
+                byId.remove(node.message.getId());
+                due.add(node.message);
+            }
+            node = next;
+        }
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) node.prev.next = node.next; else buckets[node.bucket] = node.next;
+        if (node.next != null) node.next.prev = node.prev;
+        node.prev = node.next = null;
+    }
+}
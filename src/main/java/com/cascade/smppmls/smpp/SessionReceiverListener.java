@@ -0,0 +1,78 @@
+package com.cascade.smppmls.smpp;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.AlertNotification;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.DataSmResult;
+import org.jsmpp.session.MessageReceiverListener;
+import org.jsmpp.session.Session;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Receiver listener of one bind.
+ *
+ * jSMPP does not tell a shared listener which session a deliver_sm came from, so every bind gets
+ * its own instance carrying its session key. Receipts are parsed on that session's PDU threads
+ * and counted in that session's own counters; they are applied later by the {@link DeliveryReceiptWriter}.
+ */
+@Slf4j
+final class SessionReceiverListener implements MessageReceiverListener {
+
+    @Getter
+    private final String sessionKey;
+    private final DeliveryReceiptProcessor processor;
+    private final Counter queued;
+    private final Counter noId;
+    private final Counter rejected;
+    private final Counter errors;
+
+    SessionReceiverListener(String sessionKey, DeliveryReceiptProcessor processor, MeterRegistry meterRegistry) {
+        this.sessionKey = sessionKey;
+        this.processor = processor;
+        this.queued = counter(meterRegistry, "queued");
+        this.noId = counter(meterRegistry, "no_id");
+        this.rejected = counter(meterRegistry, "rejected");
+        this.errors = counter(meterRegistry, "error");
+    }
+
+    private Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("smpp.dlr.received").tag("session", sessionKey).tag("result", result).register(meterRegistry);
+    }
+
+    @Override
+    public void onAcceptDeliverSm(DeliverSm deliverSm) throws ProcessRequestException {
+        DeliveryReceiptProcessor.Outcome outcome;
+        try {
+            outcome = processor.process(sessionKey, deliverSm);
+        } catch (Exception e) {
+            errors.increment();
+            log.error("[" + sessionKey + "] Error processing DeliverSm: " + e.getMessage(), e);
+            throw new ProcessRequestException(e.getMessage(), SMPPConstant.STAT_ESME_RX_R_APPN);
+        }
+        switch (outcome) {
+            case QUEUED -> queued.increment();
+            case NO_ID -> noId.increment();
+            case REJECTED -> {
+                // DLR buffer full: the SMSC keeps the receipt and redelivers it later
+                rejected.increment();
+                throw new ProcessRequestException("DLR buffer full", AdaptiveRateController.ESME_RMSGQFUL);
+            }
+        }
+    }
+
+    @Override
+    public DataSmResult onAcceptDataSm(DataSm dataSm, Session source) throws ProcessRequestException {
+        throw new ProcessRequestException("DataSm not supported", SMPPConstant.STAT_ESME_RINVCMDID);
+    }
+
+    @Override
+    public void onAcceptAlertNotification(AlertNotification alertNotification) {
+        log.debug("[" + sessionKey + "] Alert notification received: " + alertNotification);
+    }
+}
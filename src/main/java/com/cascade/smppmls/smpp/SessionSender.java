@@ -1,55 +1,99 @@
 package com.cascade.smppmls.smpp;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import lombok.extern.slf4j.Slf4j;
 import org.jsmpp.bean.*;
 import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.SubmitSmResult;
 
+import com.cascade.smppmls.config.SmppProperties;
 import com.cascade.smppmls.entity.SmsOutboundEntity;
-import com.cascade.smppmls.repository.SmsOutboundRepository;
+import com.cascade.smppmls.repository.SmsOutboundClaimRepository;
 import com.cascade.smppmls.util.SmppAddressUtil;
-import com.cascade.smppmls.util.AtomicDouble;
+import com.cascade.smppmls.util.GcraRateLimiter;
 
 @Slf4j
 public class SessionSender implements Runnable {
 
     private final String sessionKey;
+    private final String queueKey;
     private final SMPPSession session;
     private final String serviceType;
     private final String defaultSourceAddress;
     private final int tps;
     private final int hpMaxPerSecond;
-    private final SmsOutboundRepository outboundRepository;
+    private final SubmitResultWriter resultWriter;
+    private final DeliveryReceiptWriter receiptWriter;
+    private final RetryScheduler retryScheduler;
+    private final RetryPolicy retryPolicy;
+    private final DispatchQueueRegistry dispatchQueues;
+    private final DispatchQueue dispatchQueue;
+    private final SmsOutboundClaimRepository claimRepository;
+    private final String leaseOwner;
+    private final long leaseTimeoutMs;
+    private final AtomicLong claimSequence = new AtomicLong();
+    private final SubmitWindow window;
     private final java.util.concurrent.ExecutorService submitExecutor;
     private final io.micrometer.core.instrument.MeterRegistry meterRegistry;
 
-    // runtime tokens - using AtomicDouble for thread safety
-    private final AtomicDouble tokens;
-    private final AtomicDouble hpTokens;
+    // GCRA pacers: total session rate and the HP share capped by priority.high.max-tps-percentage
+    private final GcraRateLimiter limiter;
+    private final GcraRateLimiter hpLimiter;
+    private final AdaptiveRateController rateController;
 
     private ScheduledFuture<?> future;
 
-    public SessionSender(String sessionKey, SMPPSession session, String serviceType, String defaultSourceAddress,
-                         int tps, int hpMaxPercentage, 
-                         SmsOutboundRepository outboundRepository, 
+    public SessionSender(String sessionKey, String queueKey, SMPPSession session, String serviceType, String defaultSourceAddress,
+                         int tps, int hpMaxPercentage, long pacingResolutionMs,
+                         SubmitResultWriter resultWriter, DeliveryReceiptWriter receiptWriter,
+                         RetryScheduler retryScheduler, RetryPolicy retryPolicy, DispatchQueueRegistry dispatchQueues,
+                         SmsOutboundClaimRepository claimRepository, String leaseOwner, long leaseTimeoutMs,
+                         SubmitWindow window, SmppProperties.Adaptive adaptive,
                          java.util.concurrent.ExecutorService submitExecutor, 
                          io.micrometer.core.instrument.MeterRegistry meterRegistry) {
         this.sessionKey = sessionKey;
+        this.queueKey = queueKey;
         this.session = session;
         this.serviceType = (serviceType != null) ? serviceType : "";
         this.defaultSourceAddress = (defaultSourceAddress != null) ? defaultSourceAddress : "";
         this.tps = Math.max(1, tps);
         this.hpMaxPerSecond = Math.max(0, (int) Math.ceil(this.tps * (hpMaxPercentage / 100.0)));
-        this.outboundRepository = outboundRepository;
+        this.resultWriter = resultWriter;
+        this.receiptWriter = receiptWriter;
+        this.retryScheduler = retryScheduler;
+        this.retryPolicy = retryPolicy;
+        this.dispatchQueues = dispatchQueues;
+        // own queue, or the operator queue shared with sibling binds (late binding)
+        this.dispatchQueue = dispatchQueues.queueFor(queueKey);
+        this.claimRepository = claimRepository;
+        this.leaseOwner = leaseOwner;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.window = window;
         this.submitExecutor = submitExecutor;
         this.meterRegistry = meterRegistry;
-        this.tokens = new AtomicDouble(this.tps); // start full
-        this.hpTokens = new AtomicDouble(this.hpMaxPerSecond);
+        // burst tolerance of one scheduler tick spreads submits evenly across the second
+        long burstToleranceNanos = Math.max(1, pacingResolutionMs) * 1_000_000L;
+        this.limiter = new GcraRateLimiter(this.tps, burstToleranceNanos);
+        this.hpLimiter = new GcraRateLimiter(this.hpMaxPerSecond, burstToleranceNanos);
+        // effective rate follows the AIMD controller; the HP share keeps its configured proportion
+        double hpShare = (double) this.hpMaxPerSecond / this.tps;
+        this.rateController = new AdaptiveRateController(this.tps, adaptive, rate -> {
+            limiter.setRate(rate);
+            hpLimiter.setRate(rate * hpShare);
+            log.info("[{}] Effective TPS adjusted to {} (configured {})", sessionKey, String.format("%.1f", rate), this.tps);
+        });
         
-        log.info("[{}] SessionSender initialized: TPS={}, HP_MAX={}, serviceType='{}', defaultSourceAddress='{}'", 
-            sessionKey, this.tps, this.hpMaxPerSecond, this.serviceType, this.defaultSourceAddress);
+        log.info("[{}] SessionSender initialized: TPS={}, HP_MAX={}, WINDOW={}, PACING={}ms, serviceType='{}', defaultSourceAddress='{}'", 
+            sessionKey, this.tps, this.hpMaxPerSecond, window.size(), pacingResolutionMs, this.serviceType, this.defaultSourceAddress);
     }
 
     public void setScheduledFuture(ScheduledFuture<?> future) {
@@ -60,63 +104,119 @@ public class SessionSender implements Runnable {
         if (future != null) future.cancel(true);
     }
 
+    public SubmitWindow getWindow() {
+        return window;
+    }
+
+    public DispatchQueue getDispatchQueue() {
+        return dispatchQueue;
+    }
+
+    public AdaptiveRateController getRateController() {
+        return rateController;
+    }
+
     @Override
     public void run() {
         try {
-            // refill tokens atomically
-            tokens.updateAndGet(current -> Math.min(current + tps, tps));
-            hpTokens.updateAndGet(current -> Math.min(current + hpMaxPerSecond, hpMaxPerSecond));
+            rateController.tick();
 
-            log.debug("[{}] Tick: tokens={}, hpTokens={}", sessionKey, tokens.get(), hpTokens.get());
+            // free slots whose submit_sm_resp never arrived
+            int expired = window.expireOverdue();
+            if (expired > 0) {
+                log.warn("[{}] Expired {} overdue window slots", sessionKey, expired);
+                meterRegistry.counter("smpp.window.expired", "session", sessionKey).increment(expired);
+            }
+
+            // permits that conform to the pace right now, never more than the window can take
+            int wanted = Math.min(window.available(), dispatchQueue.size());
+            int budget = wanted > 0 ? limiter.acquireUpTo(wanted) : 0;
+            if (budget > 0) {
+                // first take HP messages up to their share of the rate, then NP messages with the remaining budget
+                int hpPermits = dispatchQueue.highDepth() > 0 ? hpLimiter.acquireUpTo(Math.min(budget, dispatchQueue.highDepth())) : 0;
+                List<SmsOutboundEntity> hpBatch = drain(dispatchQueue::pollHigh, hpPermits);
+                List<SmsOutboundEntity> npBatch = drain(dispatchQueue::pollNormal, budget - hpBatch.size());
 
-            // first send HP messages up to hpMaxPerSecond
-            int toSendHp = (int)Math.floor(hpTokens.get());
-            if (toSendHp > 0) {
-                var page = outboundRepository.findByStatusAndSessionIdAndPriority("QUEUED", sessionKey, "HIGH", org.springframework.data.domain.PageRequest.of(0, toSendHp));
-                long hpQueued = page.getTotalElements();
-                if (hpQueued > 0) {
-                    log.debug("[{}] HP check: toSend={}, queued={}, found={}", sessionKey, toSendHp, hpQueued, page.getContent().size());
-                }
-                
                 int hpSent = 0;
-                for (SmsOutboundEntity e : page) {
-                    submitMessageAsync(e);
-                    tokens.updateAndGet(current -> Math.max(0.0, current - 1.0));
-                    hpTokens.updateAndGet(current -> Math.max(0.0, current - 1.0));
-                    hpSent++;
-                    if (tokens.get() <= 0.0) break;
-                }
-                if (hpSent > 0) {
-                    log.info("[{}] Submitted {} HP messages", sessionKey, hpSent);
+                int npSent = 0;
+                if (!hpBatch.isEmpty() || !npBatch.isEmpty()) {
+                    log.debug("[{}] Dequeued HP={} NP={} (queued HP={}, NP={})", sessionKey, hpBatch.size(), npBatch.size(),
+                        dispatchQueue.highDepth(), dispatchQueue.normalDepth());
+
+                    // claim all dequeued rows in one set-based UPDATE; rows claimed elsewhere are skipped
+                    Set<Long> claimed = claim(hpBatch, npBatch);
+                    hpSent = submitClaimed(hpBatch, claimed);
+                    npSent = submitClaimed(npBatch, claimed);
+                    log.debug("[{}] Submitted HP={} NP={}", sessionKey, hpSent, npSent);
                 }
+
+                // unused permits go back so the pace is not lost to empty lanes or skipped claims
+                hpLimiter.refund(hpPermits - hpSent);
+                limiter.refund(budget - hpSent - npSent);
             }
 
-            // then send NP messages with remaining tokens
-            if (tokens.get() > 0) {
-                int npCount = (int)Math.floor(tokens.get());
-                var page = outboundRepository.findByStatusAndSessionIdAndPriority("QUEUED", sessionKey, "NORMAL", org.springframework.data.domain.PageRequest.of(0, npCount));
-                long npQueued = page.getTotalElements();
-                if (npQueued > 0) {
-                    log.debug("[{}] NP check: toSend={}, queued={}, found={}", sessionKey, npCount, npQueued, page.getContent().size());
-                }
-                
-                int npSent = 0;
-                for (SmsOutboundEntity e : page) {
-                    submitMessageAsync(e);
-                    tokens.updateAndGet(current -> Math.max(0.0, current - 1.0));
-                    npSent++;
-                    if (tokens.get() <= 0.0) break;
-                }
-                if (npSent > 0) {
-                    log.info("[{}] Submitted {} NP messages", sessionKey, npSent);
-                }
+            // queue was full at some point: pull the rows that stayed in the DB once memory frees up
+            if (dispatchQueue.isEmpty() && dispatchQueue.clearSpilled()) {
+                dispatchQueues.rehydrate(queueKey);
             }
         } catch (Exception ex) {
             log.error("[{}] Error in sender tick: {}", sessionKey, ex.getMessage(), ex);
         }
     }
 
-    private void submitMessageAsync(SmsOutboundEntity e) {
+    private List<SmsOutboundEntity> drain(Supplier<SmsOutboundEntity> poller, int max) {
+        if (max <= 0) return List.of();
+        List<SmsOutboundEntity> batch = new ArrayList<>(Math.min(max, 256));
+        SmsOutboundEntity e;
+        while (batch.size() < max && (e = poller.get()) != null) {
+            batch.add(e);
+        }
+        return batch;
+    }
+
+    private Set<Long> claim(List<SmsOutboundEntity> hpBatch, List<SmsOutboundEntity> npBatch) {
+        List<Long> ids = new ArrayList<>(hpBatch.size() + npBatch.size());
+        hpBatch.forEach(e -> ids.add(e.getId()));
+        npBatch.forEach(e -> ids.add(e.getId()));
+        String owner = leaseOwner + "#" + claimSequence.incrementAndGet();
+        Instant leaseExpiresAt = Instant.now().plusMillis(leaseTimeoutMs);
+        Set<Long> claimed;
+        try {
+            // the claim binds the rows to this session, which matters when the queue is shared
+            claimed = new HashSet<>(claimRepository.claim(ids, owner, leaseExpiresAt, sessionKey));
+        } catch (Exception ex) {
+            // put the batch back; rows are still QUEUED in the database
+            log.error("[{}] Claim of {} messages failed: {}", sessionKey, ids.size(), ex.getMessage());
+            hpBatch.forEach(dispatchQueue::offer);
+            npBatch.forEach(dispatchQueue::offer);
+            return Set.of();
+        }
+        if (claimed.size() < ids.size()) {
+            log.warn("[{}] Skipped {} messages already claimed or no longer QUEUED", sessionKey, ids.size() - claimed.size());
+            meterRegistry.counter("smpp.dispatch.claim.skipped", "session", sessionKey).increment(ids.size() - claimed.size());
+        }
+        return claimed;
+    }
+
+    private int submitClaimed(List<SmsOutboundEntity> batch, Set<Long> claimed) {
+        int sent = 0;
+        for (SmsOutboundEntity e : batch) {
+            if (!claimed.contains(e.getId())) continue;
+            e.setSessionId(sessionKey);
+            int slot = window.tryAcquire(e.getId());
+            if (slot < 0) {
+                // window filled up concurrently; lease expiry returns the row to QUEUED
+                log.warn("[{}] Window full, leaving claimed message id={} to lease expiry", sessionKey, e.getId());
+                continue;
+            }
+            e.setStatus("IN_FLIGHT");
+            submitMessageAsync(e, slot);
+            sent++;
+        }
+        return sent;
+    }
+
+    private void submitMessageAsync(SmsOutboundEntity e, int slot) {
         submitExecutor.execute(() -> {
             long startTime = System.currentTimeMillis();
             try {
@@ -131,32 +231,39 @@ public class SessionSender implements Runnable {
                     sessionKey, sourceInfo.getAddress(), sourceInfo.getTon(), sourceInfo.getNpi(),
                     destInfo.getAddress(), destInfo.getTon(), destInfo.getNpi());
                 
-                // Submit and get response
-                var submitResult = session.submitShortMessage(
-                    serviceType,
-                    sourceInfo.getTon(),
-                    sourceInfo.getNpi(),
-                    sourceInfo.getAddress(),
-                    destInfo.getTon(),
-                    destInfo.getNpi(),
-                    destInfo.getAddress(),
-                    new ESMClass(),
-                    (byte)0,
-                    (byte)1,
-                    null,
-                    null,
-                    new RegisteredDelivery(SMSCDeliveryReceipt.SUCCESS_FAILURE),
-                    (byte)0,
-                    new GeneralDataCoding(Alphabet.ALPHA_DEFAULT, MessageClass.CLASS1, false),
-                    (byte)0,
-                    e.getMessage().getBytes(StandardCharsets.UTF_8)
-                );
+                // Submit and get response; the window slot is held until the response (or error) arrives
+                SubmitSmResult submitResult;
+                try {
+                    submitResult = session.submitShortMessage(
+                        serviceType,
+                        sourceInfo.getTon(),
+                        sourceInfo.getNpi(),
+                        sourceInfo.getAddress(),
+                        destInfo.getTon(),
+                        destInfo.getNpi(),
+                        destInfo.getAddress(),
+                        new ESMClass(),
+                        (byte)0,
+                        (byte)1,
+                        null,
+                        null,
+                        new RegisteredDelivery(SMSCDeliveryReceipt.SUCCESS_FAILURE),
+                        (byte)0,
+                        new GeneralDataCoding(Alphabet.ALPHA_DEFAULT, MessageClass.CLASS1, false),
+                        (byte)0,
+                        e.getMessage().getBytes(StandardCharsets.UTF_8)
+                    );
+                } finally {
+                    window.release(slot);
+                }
                 
                 long responseTime = System.currentTimeMillis() - startTime;
                 
                 // Extract message ID from result
                 String messageId = (submitResult != null) ? submitResult.getMessageId() : null;
 
+                rateController.onResponse(responseTime);
+                
                 // Track submit_sm_resp details
                 e.setSubmitResponseTimeMs(responseTime);
                 e.setSubmitSmStatus(0); // ESME_ROK
@@ -166,7 +273,10 @@ public class SessionSender implements Runnable {
                     String smscId = messageId;
                     e.setSmscMsgId(smscId);
                     e.setStatus("SENT");
-                    outboundRepository.save(e);
+                    // before the write-behind, so a DLR racing the row update still correlates;
+                    // applies any DLR that already arrived for this id
+                    receiptWriter.onSubmitted(smscId, e.getId());
+                    resultWriter.submit(e);
                     log.info("[{}] Sent message id={} smsc_msg_id={} src={} dest={} response_time={}ms", 
                         sessionKey, e.getId(), smscId, sourceInfo.getAddress(), destInfo.getAddress(), responseTime);
                     meterRegistry.counter("smpp.outbound.sent", "priority", e.getPriority(), "session", sessionKey).increment();
@@ -177,6 +287,11 @@ public class SessionSender implements Runnable {
                 // SMSC rejected the submit_sm with an error code
                 long responseTime = System.currentTimeMillis() - startTime;
                 int commandStatus = nre.getCommandStatus();
+                if (AdaptiveRateController.isThrottle(commandStatus)) {
+                    rateController.onThrottle();
+                } else {
+                    rateController.onResponse(responseTime);
+                }
                 String errorMsg = String.format("SMSC_ERROR: %s (0x%08X)", nre.getMessage(), commandStatus);
                 
                 log.warn("[{}] SMSC rejected message id={} status=0x{} error={} response_time={}ms", 
@@ -187,32 +302,17 @@ public class SessionSender implements Runnable {
                     e.setSubmitSmError(errorMsg);
                     e.setSubmitResponseTimeMs(responseTime);
                     
-                    // Check if error is retryable
-                    boolean retryable = isRetryableError(commandStatus);
-                    
-                    if (retryable) {
-                        int nextCount = (e.getRetryCount() == null ? 0 : e.getRetryCount()) + 1;
-                        e.setRetryCount(nextCount);
-                        e.setStatus("RETRY");
-                        // compute backoff
-                        long base = 1000L;
-                        long cap = 60_000L;
-                        long delay = base * (1L << Math.max(0, nextCount - 1));
-                        if (delay > cap) delay = cap;
-                        double jitter = 0.1 * delay;
-                        long jittered = delay - (long)jitter + (long)(Math.random() * (2 * jitter));
-                        e.setNextRetryAt(java.time.Instant.now().plusMillis(Math.max(0, jittered)));
-                        e.setLastAttemptAt(java.time.Instant.now());
-                        log.info("[{}] Message id={} marked for retry (count={}, status=0x{})", 
-                            sessionKey, e.getId(), nextCount, Integer.toHexString(commandStatus));
+                    boolean retry = retryOrFail(e, commandStatus);
+                    if (retry) {
+                        log.info("[{}] Message id={} marked for retry (count={}, status=0x{}, nextRetryAt={})", 
+                            sessionKey, e.getId(), e.getRetryCount(), Integer.toHexString(commandStatus), e.getNextRetryAt());
                     } else {
-                        // Permanent failure
-                        e.setStatus("FAILED");
-                        log.error("[{}] Message id={} permanently failed with status=0x{}", 
+                        log.error("[{}] Message id={} failed with status=0x{}", 
                             sessionKey, e.getId(), Integer.toHexString(commandStatus));
                     }
                     
-                    outboundRepository.save(e);
+                    resultWriter.submit(e);
+                    if (retry) retryScheduler.schedule(e);
                     meterRegistry.counter("smpp.outbound.rejected", 
                         "session", sessionKey, 
                         "status", String.format("0x%08X", commandStatus)).increment();
@@ -223,64 +323,52 @@ public class SessionSender implements Runnable {
             } catch (Exception se) {
                 // Other exceptions (timeout, connection error, etc.)
                 long responseTime = System.currentTimeMillis() - startTime;
+                if (se instanceof org.jsmpp.extra.ResponseTimeoutException) {
+                    rateController.onResponse(responseTime); // timeouts count as slow responses
+                }
                 log.warn("[{}] submit exception id={} : {} response_time={}ms", sessionKey, e.getId(), se.getMessage(), responseTime);
                 try {
                     e.setSubmitSmError(se.getMessage());
                     e.setSubmitResponseTimeMs(responseTime);
                     
-                    int nextCount = (e.getRetryCount() == null ? 0 : e.getRetryCount()) + 1;
-                    e.setRetryCount(nextCount);
-                    e.setStatus("RETRY");
-                    // compute backoff: base * 2^(retryCount-1) with jitter
-                    long base = 1000L;
-                    long cap = 60_000L;
-                    long delay = base * (1L << Math.max(0, nextCount - 1));
-                    if (delay > cap) delay = cap;
-                    // add jitter +/-10%
-                    double jitter = 0.1 * delay;
-                    long jittered = delay - (long)jitter + (long)(Math.random() * (2 * jitter));
-                    e.setNextRetryAt(java.time.Instant.now().plusMillis(Math.max(0, jittered)));
-                    e.setLastAttemptAt(java.time.Instant.now());
-                    outboundRepository.save(e);
-                    log.info("[{}] Marked message id={} for retry (count={}, nextRetryAt={})", sessionKey, e.getId(), e.getRetryCount(), e.getNextRetryAt());
+                    boolean retry = retryOrFail(e, RetryPolicy.TRANSPORT_ERROR);
+                    resultWriter.submit(e);
+                    if (retry) {
+                        retryScheduler.schedule(e);
+                        log.info("[{}] Marked message id={} for retry (count={}, nextRetryAt={})", sessionKey, e.getId(), e.getRetryCount(), e.getNextRetryAt());
+                    } else {
+                        log.error("[{}] Message id={} failed after {} retries", sessionKey, e.getId(), e.getRetryCount());
+                    }
                     meterRegistry.counter("smpp.outbound.failed", "priority", e.getPriority(), "session", sessionKey).increment();
                 } catch (Exception ex2) {
                     log.error("[{}] Error updating retry status for id={}: {}", sessionKey, e.getId(), ex2.getMessage());
                 }
             } catch (Throwable ex) {
                 log.error("[{}] Unexpected submit error id={}: {}", sessionKey, e.getId(), ex.getMessage());
+            } finally {
+                window.release(slot); // no-op if already released
             }
         });
     }
     
     /**
-     * Determine if an SMPP error code is retryable
+     * Apply the retry policy to a failed attempt: RETRY with the policy's delay, or FAILED.
+     * The caller persists the transition.
+     * @return true if the message is to be retried
      */
-    private boolean isRetryableError(int commandStatus) {
-        // Retryable errors (temporary failures)
-        return switch (commandStatus) {
-            case 0x00000058 -> true; // ESME_RTHROTTLED - throttling error
-            case 0x00000014 -> true; // ESME_RMSGQFUL - message queue full
-            case 0x00000008 -> true; // ESME_RSYSERR - system error
-            case 0x00000400 -> true; // ESME_RSUBMITFAIL - submit failed (temporary)
-            
-            // Non-retryable errors (permanent failures)
-            case 0x00000001, // ESME_RINVMSGLEN - invalid message length
-                 0x00000002, // ESME_RINVCMDLEN - invalid command length
-                 0x00000003, // ESME_RINVCMDID - invalid command ID
-                 0x00000004, // ESME_RINVBNDSTS - invalid bind status
-                 0x0000000A, // ESME_RINVDSTADR - invalid destination address
-                 0x0000000B, // ESME_RINVDSTADDRTON - invalid dest addr TON
-                 0x0000000C, // ESME_RINVDSTADDRNPI - invalid dest addr NPI
-                 0x0000000E, // ESME_RINVSRCADR - invalid source address
-                 0x0000000F, // ESME_RINVSRCADDRTON - invalid source addr TON
-                 0x00000010, // ESME_RINVSRCADDRNPI - invalid source addr NPI
-                 0x00000011, // ESME_RINVDSTTON - invalid destination TON
-                 0x00000033, // ESME_RINVDLNAME - invalid DL name
-                 0x00000045, // ESME_RINVNUMDESTS - invalid number of destinations
-                 0x00000066 -> false; // ESME_RINVDATACODNG - invalid data coding
-            
-            default -> true; // Retry unknown errors by default
-        };
+    private boolean retryOrFail(SmsOutboundEntity e, int commandStatus) {
+        Instant now = Instant.now();
+        RetryPolicy.Decision decision = retryPolicy.decide(e, commandStatus, now);
+        e.setLastAttemptAt(now);
+        if (decision.retry()) {
+            e.setRetryCount((e.getRetryCount() == null ? 0 : e.getRetryCount()) + 1);
+            e.setStatus("RETRY");
+            e.setNextRetryAt(now.plusMillis(decision.delayMs()));
+        } else {
+            e.setStatus("FAILED");
+            e.setNextRetryAt(null);
+        }
+        meterRegistry.counter("smpp.retry.decision", "operator", String.valueOf(e.getOperator()), "result", decision.reason()).increment();
+        return decision.retry();
     }
 }
@@ -0,0 +1,25 @@
+package com.cascade.smppmls.smpp;
+
+import com.cascade.smppmls.smpp.JsmppSessionManager.SessionState;
+
+/**
+ * Published by {@link JsmppSessionManager} whenever a session moves to another state
+ * (bound, lost, stopped), so dependent services can react without polling.
+ * @param previous null for the first state of a session
+ */
+public record SessionStateChangedEvent(String sessionKey, String operatorId, SessionState previous, SessionState current) {
+
+    /**
+     * @return true if the session just became bound
+     */
+    public boolean isUp() {
+        return current == SessionState.CONNECTED;
+    }
+
+    /**
+     * @return true if a bound session just stopped carrying traffic
+     */
+    public boolean isDown() {
+        return previous == SessionState.CONNECTED && current != SessionState.CONNECTED;
+    }
+}
@@ -0,0 +1,191 @@
+package com.cascade.smppmls.smpp;
+
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.cascade.smppmls.config.SmppProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded smsc_msg_id to outbound id cache used to correlate delivery receipts.
+ *
+ * Filled when submit_sm_resp arrives, so a DLR normally finds its row without touching the
+ * database. Entries live in a few generations of open-addressing tables (String key, primitive
+ * long value); every ttl / (GENERATIONS - 1) a fresh generation is started and the oldest one is
+ * dropped as a whole, which keeps each entry at least the configured TTL. When the current
+ * generation fills up before its time, it is rotated early, so memory stays bounded.
+ */
+@Slf4j
+@Component
+public class SmscMsgIdCache {
+
+    public static final long MISSING = -1;
+
+    private static final int GENERATIONS = 4;
+
+    private final int generationEntries;
+    private final long rotationIntervalMs;
+    private final LongSupplier clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictedEarly;
+
+    // newest first; replaced as a whole on rotation
+    private volatile Generation[] generations;
+    private volatile long nextRotationAt;
+
+    @Autowired
+    public SmscMsgIdCache(SmppProperties smppProperties, MeterRegistry meterRegistry) {
+        this(smppProperties.getDlr(), meterRegistry, System::currentTimeMillis);
+    }
+
+    SmscMsgIdCache(SmppProperties.Dlr config, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.generationEntries = Math.max(16, config.getCorrelationCacheSize() / GENERATIONS);
+        this.rotationIntervalMs = Math.max(1, config.getCorrelationTtlMs() / (GENERATIONS - 1));
+        this.clock = clock;
+        this.generations = new Generation[] { new Generation(generationEntries) };
+        this.nextRotationAt = clock.getAsLong() + rotationIntervalMs;
+
+        this.hits = Counter.builder("smpp.dlr.correlation").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("smpp.dlr.correlation").tag("result", "miss").register(meterRegistry);
+        this.evictedEarly = Counter.builder("smpp.dlr.correlation.evicted.early").register(meterRegistry);
+        Gauge.builder("smpp.dlr.correlation.entries", this, SmscMsgIdCache::size).register(meterRegistry);
+        Gauge.builder("smpp.dlr.correlation.hit.ratio", this, SmscMsgIdCache::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * Remember the outbound id a submit_sm_resp returned {@code smscMsgId} for
+     */
+    public void put(String smscMsgId, long outboundId) {
+        if (smscMsgId == null || smscMsgId.isEmpty()) return;
+        maybeRotate();
+        Generation current;
+        while (!(current = generations[0]).put(smscMsgId, outboundId)) {
+            // sealed by a concurrent rotation, or full before its time
+            rotate(current, true);
+        }
+    }
+
+    /**
+     * @return the outbound id for {@code smscMsgId}, or {@link #MISSING}
+     */
+    public long get(String smscMsgId) {
+        if (smscMsgId != null) {
+            for (Generation generation : generations) {
+                long outboundId = generation.get(smscMsgId);
+                if (outboundId != MISSING) {
+                    hits.increment();
+                    return outboundId;
+                }
+            }
+        }
+        misses.increment();
+        return MISSING;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Generation generation : generations) size += generation.size();
+        return size;
+    }
+
+    double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total > 0 ? hits.count() / total : 0;
+    }
+
+    private void maybeRotate() {
+        if (clock.getAsLong() < nextRotationAt) return;
+        rotate(generations[0], false);
+    }
+
+    private synchronized void rotate(Generation expected, boolean early) {
+        if (generations[0] != expected) return; // someone else rotated already
+        if (!early && clock.getAsLong() < nextRotationAt) return;
+        expected.seal();
+        int kept = Math.min(generations.length, GENERATIONS - 1);
+        Generation[] next = new Generation[kept + 1];
+        next[0] = new Generation(generationEntries);
+        System.arraycopy(generations, 0, next, 1, kept);
+        if (early && generations.length == GENERATIONS) {
+            int dropped = generations[GENERATIONS - 1].size();
+            evictedEarly.increment(dropped);
+            log.warn("DLR correlation cache full, dropped {} entries before their TTL; consider raising smpp.dlr.correlation-cache-size", dropped);
+        }
+        generations = next;
+        nextRotationAt = clock.getAsLong() + rotationIntervalMs;
+    }
+
+    /**
+     * One open-addressing table (linear probing), written while current and read-only once sealed
+     */
+    static final class Generation {
+
+        private final String[] keys;
+        private final long[] values;
+        private final int maxEntries;
+        private int size;
+        private volatile boolean sealed;
+
+        Generation(int maxEntries) {
+            this.maxEntries = maxEntries;
+            int capacity = Integer.highestOneBit(Math.max(16, (int) (maxEntries / 0.7f)) - 1) << 1;
+            this.keys = new String[capacity];
+            this.values = new long[capacity];
+        }
+
+        synchronized boolean put(String key, long value) {
+            if (sealed) return false;
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != null) {
+                if (keys[slot].equals(key)) {
+                    values[slot] = value;
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size >= maxEntries) return false;
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            return true;
+        }
+
+        long get(String key) {
+            // a sealed table is never written again; the volatile read publishes its contents
+            if (sealed) return lookup(key);
+            synchronized (this) {
+                return lookup(key);
+            }
+        }
+
+        private long lookup(String key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+                String k = keys[slot];
+                if (k == null) return MISSING;
+                if (k.equals(key)) return values[slot];
+            }
+        }
+
+        synchronized void seal() {
+            sealed = true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static int slot(String key, int mask) {
+            int h = key.hashCode() * 0x9E3779B9; // SMSC ids are often sequential
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.cascade.smppmls.smpp;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind stage for submit results.
+ *
+ * Submit threads hand over a snapshot of each status transition (SENT, RETRY, FAILED) instead of
+ * calling save() per message. A single flusher drains the bounded buffer and writes the rows
+ * with one JDBC batch UPDATE per batch, triggered by batch size or max delay. {@link #flush(long)}
+ * is a durability barrier: it returns once everything submitted before the call is committed.
+ */
+@Slf4j
+@Component
+public class SubmitResultWriter {
+
+    // a late submit result never overwrites a DLR state that already reached the row
+    private static final String UPDATE_SQL =
+        "UPDATE sms_outbound SET " +
+        "status = CASE WHEN status IN ('QUEUED', 'IN_FLIGHT') THEN ? ELSE status END, " +
+        "smsc_msg_id = COALESCE(?, smsc_msg_id), submit_sm_status = ?, submit_sm_error = ?, " +
+        "submit_response_time_ms = ?, sent_at = ?, retry_count = ?, next_retry_at = ?, last_attempt_at = ?, " +
+        "lease_owner = NULL, lease_expires_at = NULL, updated_at = ? " +
+        "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SmppProperties.WriteBehind config;
+    private final BlockingQueue<StatusUpdate> buffer;
+    private final MeterRegistry meterRegistry;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicInteger flushWaiters = new AtomicInteger();
+    private final Object flushMonitor = new Object();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Immutable snapshot of one status transition
+     */
+    public record StatusUpdate(long id, String status, String smscMsgId, Integer submitSmStatus, String submitSmError,
+                               Long submitResponseTimeMs, Instant sentAt, Integer retryCount, Instant nextRetryAt,
+                               Instant lastAttemptAt) {
+
+        public static StatusUpdate of(SmsOutboundEntity e) {
+            String error = e.getSubmitSmError();
+            if (error != null && error.length() > 255) error = error.substring(0, 255);
+            return new StatusUpdate(e.getId(), e.getStatus(), e.getSmscMsgId(), e.getSubmitSmStatus(), error,
+                e.getSubmitResponseTimeMs(), e.getSentAt(), e.getRetryCount(), e.getNextRetryAt(), e.getLastAttemptAt());
+        }
+    }
+
+    public SubmitResultWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              SmppProperties smppProperties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = smppProperties.getWriteBehind();
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, config.getCapacity()));
+        this.meterRegistry = meterRegistry;
+        this.flushTimer = Timer.builder("smpp.writebehind.flush").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("smpp.writebehind.batch.size").register(meterRegistry);
+        Gauge.builder("smpp.writebehind.pending", buffer, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().daemon().name("submit-result-writer").start(this::flushLoop);
+        log.info("SubmitResultWriter started: batch-size={}, max-delay={}ms, capacity={}",
+            config.getBatchSize(), config.getMaxDelayMs(), config.getCapacity());
+    }
+
+    /**
+     * Queue a status transition. Blocks the (virtual) submit thread when the buffer is full,
+     * which is the back-pressure towards the senders.
+     */
+    public void submit(SmsOutboundEntity e) {
+        StatusUpdate update = StatusUpdate.of(e);
+        try {
+            buffer.put(update);
+            submitted.incrementAndGet();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            // never drop an acknowledgement: fall back to a direct write
+            write(List.of(update));
+        }
+    }
+
+    /**
+     * Durability barrier: wait until every update submitted before this call is committed.
+     * @return true if flushed within the timeout
+     */
+    public boolean flush(long timeoutMs) {
+        long target = submitted.get();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        flushWaiters.incrementAndGet(); // the flusher stops waiting for max-delay while someone waits
+        try {
+            return awaitPersisted(target, deadline);
+        } finally {
+            flushWaiters.decrementAndGet();
+        }
+    }
+
+    private boolean awaitPersisted(long target, long deadline) {
+        synchronized (flushMonitor) {
+            while (persisted.get() < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    flushMonitor.wait(remaining);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int pending() {
+        return buffer.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // senders are stopped first (they depend on this bean), so everything is already buffered
+        log.info("Flushing {} pending submit results before shutdown...", buffer.size());
+        if (!flush(config.getShutdownTimeoutMs())) {
+            log.error("Submit result writer did not flush within {} ms, {} updates still pending",
+                config.getShutdownTimeoutMs(), buffer.size());
+        }
+        running = false;
+        if (flusher != null) flusher.interrupt();
+    }
+
+    private void flushLoop() {
+        int batchSize = Math.max(1, config.getBatchSize());
+        List<StatusUpdate> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                StatusUpdate first = buffer.poll(config.getMaxDelayMs(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // size trigger: take what is there; time trigger: wait up to max-delay for the batch to fill
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getMaxDelayMs());
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize) break;
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0 || flushRequested()) break;
+                    StatusUpdate next = buffer.poll(Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(5)), TimeUnit.NANOSECONDS);
+                    if (next != null) batch.add(next);
+                }
+                write(batch);
+                persisted.addAndGet(batch.size());
+                batch.clear();
+                synchronized (flushMonitor) {
+                    flushMonitor.notifyAll();
+                }
+            } catch (InterruptedException ie) {
+                if (!running && buffer.isEmpty()) break;
+            } catch (Exception ex) {
+                log.error("Submit result flusher error: {}", ex.getMessage(), ex);
+            }
+        }
+        log.info("SubmitResultWriter stopped");
+    }
+
+    private boolean flushRequested() {
+        return flushWaiters.get() > 0 || !running;
+    }
+
+    private void write(List<StatusUpdate> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    bind(ps, batch.get(i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            }));
+        } catch (Exception ex) {
+            // isolate the failing row(s) so one bad update does not block the whole batch
+            log.error("Batch write of {} submit results failed ({}), retrying row by row", batch.size(), ex.getMessage());
+            for (StatusUpdate update : batch) {
+                try {
+                    jdbcTemplate.update(UPDATE_SQL, ps -> bind(ps, update));
+                } catch (Exception rowEx) {
+                    log.error("Dropping submit result for id={} status={}: {}", update.id(), update.status(), rowEx.getMessage());
+                    meterRegistry.counter("smpp.writebehind.dropped").increment();
+                }
+            }
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+    }
+
+    private static void bind(PreparedStatement ps, StatusUpdate u) throws SQLException {
+        ps.setString(1, u.status());
+        ps.setString(2, u.smscMsgId());
+        setInt(ps, 3, u.submitSmStatus());
+        ps.setString(4, u.submitSmError());
+        if (u.submitResponseTimeMs() != null) ps.setLong(5, u.submitResponseTimeMs()); else ps.setNull(5, Types.BIGINT);
+        setTimestamp(ps, 6, u.sentAt());
+        setInt(ps, 7, u.retryCount());
+        setTimestamp(ps, 8, u.nextRetryAt());
+        setTimestamp(ps, 9, u.lastAttemptAt());
+        ps.setTimestamp(10, Timestamp.from(Instant.now()));
+        ps.setLong(11, u.id());
+    }
+
+    private static void setInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) ps.setInt(index, value); else ps.setNull(index, Types.INTEGER);
+    }
+
+    private static void setTimestamp(PreparedStatement ps, int index, Instant value) throws SQLException {
+        if (value != null) ps.setTimestamp(index, Timestamp.from(value)); else ps.setNull(index, Types.TIMESTAMP);
+    }
+}
@@ -0,0 +1,89 @@
+package com.cascade.smppmls.smpp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding window of outstanding submit_sm PDUs for one bind.
+ *
+ * Each in-flight submit holds one slot, identified by a window sequence number, until its
+ * submit_sm_resp (or error) arrives. The dispatcher only dequeues as many messages as there are
+ * free slots, so outstanding PDUs never exceed the configured window. Slots carry their own
+ * deadline; a slot whose response never comes is expired individually and its permit returned,
+ * so a lost response cannot shrink the window permanently.
+ */
+public class SubmitWindow {
+
+    private final int size;
+    private final long slotTimeoutNanos;
+    private final Semaphore permits;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final Map<Integer, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong expiredSlots = new AtomicLong();
+
+    private record Slot(long outboundId, long startNanos) {}
+
+    public SubmitWindow(int size, long slotTimeoutMs) {
+        this.size = Math.max(1, size);
+        this.slotTimeoutNanos = Math.max(1, slotTimeoutMs) * 1_000_000L;
+        this.permits = new Semaphore(this.size);
+    }
+
+    /**
+     * Take a slot without blocking.
+     * @return window sequence number of the slot, or -1 if the window is full
+     */
+    public int tryAcquire(long outboundId) {
+        if (!permits.tryAcquire()) return -1;
+        int seq = sequence.updateAndGet(s -> s == Integer.MAX_VALUE ? 1 : s + 1);
+        slots.put(seq, new Slot(outboundId, System.nanoTime()));
+        return seq;
+    }
+
+    /**
+     * Release the slot matched by its sequence number when the response arrives.
+     * @return elapsed time in ms, or -1 if the slot had already expired
+     */
+    public long release(int seq) {
+        Slot slot = slots.remove(seq);
+        if (slot == null) return -1;
+        permits.release();
+        return (System.nanoTime() - slot.startNanos()) / 1_000_000L;
+    }
+
+    /**
+     * Expire slots whose response is overdue and return their permits.
+     * @return number of slots expired by this call
+     */
+    public int expireOverdue() {
+        long now = System.nanoTime();
+        int expired = 0;
+        for (Map.Entry<Integer, Slot> entry : slots.entrySet()) {
+            if (now - entry.getValue().startNanos() > slotTimeoutNanos && slots.remove(entry.getKey(), entry.getValue())) {
+                permits.release();
+                expired++;
+            }
+        }
+        if (expired > 0) expiredSlots.addAndGet(expired);
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int available() {
+        return permits.availablePermits();
+    }
+
+    public int occupancy() {
+        return slots.size();
+    }
+
+    public long expiredCount() {
+        return expiredSlots.get();
+    }
+}
@@ -0,0 +1,106 @@
+package com.cascade.smppmls.util;
+
+/**
+ * Open-addressing hash map from primitive long keys to int values (linear probing).
+ *
+ * Holds millions of entries in two flat arrays (~12 bytes per slot) with no boxing, so a lookup
+ * is a hash and a short probe with no allocation. Key 0 is reserved as the empty marker.
+ * Not thread-safe: build or copy it on one thread and publish the finished map.
+ */
+public final class LongIntHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (Math.max(1, expectedSize) / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private LongIntHashMap(LongIntHashMap source) {
+        this.keys = source.keys.clone();
+        this.values = source.values.clone();
+        this.size = source.size;
+        this.resizeAt = source.resizeAt;
+    }
+
+    /**
+     * @return the value mapped to {@code key}, or {@code missing} if there is none
+     */
+    public int get(long key, int missing) {
+        if (key == EMPTY) return missing;
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long k = keys[slot];
+            if (k == key) return values[slot];
+            if (k == EMPTY) return missing;
+        }
+    }
+
+    /**
+     * Map {@code key} to {@code value}, replacing any previous value
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) throw new IllegalArgumentException("Key 0 is reserved");
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) rehash(keys.length << 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return an independent copy, e.g. to apply changes while readers use this one
+     */
+    public LongIntHashMap copy() {
+        return new LongIntHashMap(this);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == EMPTY) continue;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int slot(long key, int mask) {
+        // murmur3 finalizer: MSISDNs are dense in their low digits
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
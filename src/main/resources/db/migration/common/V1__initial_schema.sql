@@ -0,0 +1,36 @@
+-- Baseline schema, as Hibernate generated it before migrations took over
+-- Databases created by ddl-auto are baselined at this version (spring.flyway.baseline-on-migrate),
+-- so this file must not change: later columns go into their own migrations
+
+CREATE TABLE IF NOT EXISTS sms_outbound (
+    id                      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    client_msg_id           VARCHAR(64),
+    request_id              VARCHAR(64),
+    smsc_msg_id             VARCHAR(64),
+    msisdn                  VARCHAR(20),
+    source_addr             VARCHAR(20),
+    message                 VARCHAR(4000),
+    priority                VARCHAR(10),
+    operator                VARCHAR(50),
+    session_id              VARCHAR(50),
+    status                  VARCHAR(20),
+    retry_count             INTEGER,
+    next_retry_at           TIMESTAMP(6) WITH TIME ZONE,
+    last_attempt_at         TIMESTAMP(6) WITH TIME ZONE,
+    encoding                VARCHAR(20),
+    udh                     VARCHAR(255),
+    created_at              TIMESTAMP(6) WITH TIME ZONE,
+    updated_at              TIMESTAMP(6) WITH TIME ZONE,
+    sent_at                 TIMESTAMP(6) WITH TIME ZONE,
+    submit_sm_status        INTEGER,
+    submit_sm_error         VARCHAR(255),
+    submit_response_time_ms BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS sms_dlr (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    sms_outbound_id BIGINT,
+    smsc_msg_id     VARCHAR(64),
+    status          VARCHAR(50),
+    received_at     TIMESTAMP(6) WITH TIME ZONE
+);
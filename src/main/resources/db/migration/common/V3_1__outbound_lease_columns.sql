@@ -0,0 +1,5 @@
+-- IN_FLIGHT lease of a claimed row (SmsOutboundClaimRepository); not part of the V1 baseline
+-- Runs before V4, which indexes lease_expires_at
+
+ALTER TABLE sms_outbound ADD COLUMN IF NOT EXISTS lease_owner VARCHAR(128);
+ALTER TABLE sms_outbound ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP(6) WITH TIME ZONE;
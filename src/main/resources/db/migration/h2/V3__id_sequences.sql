@@ -0,0 +1,5 @@
+-- Pooled id sequences for sms_outbound / sms_dlr
+-- INCREMENT BY must match allocationSize on the entities (50)
+
+CREATE SEQUENCE IF NOT EXISTS sms_outbound_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS sms_dlr_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,22 @@
+-- Indexes for the dispatch, retry and lease access paths (asserted by SmsOutboundQueryPlanTest)
+-- H2 has no partial indexes: the PostgreSQL ones become status-leading composites here
+
+-- Keyset rehydration of a session's QUEUED rows, status + session lookups and session reassignment;
+-- supersedes idx_status_session and idx_status_session_priority
+CREATE INDEX IF NOT EXISTS idx_status_session_id ON sms_outbound(status, session_id, id);
+DROP INDEX IF EXISTS idx_status_session;
+-- priority has only two values, the extra column narrows little
+DROP INDEX IF EXISTS idx_status_session_priority;
+
+-- Keyset rehydration of an operator's QUEUED rows (late-binding dispatch); supersedes idx_operator_status
+CREATE INDEX IF NOT EXISTS idx_status_operator_id ON sms_outbound(status, operator, id);
+DROP INDEX IF EXISTS idx_operator_status;
+
+-- Keyset rehydration of the retry wheel
+CREATE INDEX IF NOT EXISTS idx_status_id ON sms_outbound(status, id);
+
+-- Lease reclaim: IN_FLIGHT rows by lease expiry (the retry sweep uses idx_status_next_retry)
+CREATE INDEX IF NOT EXISTS idx_status_lease_expiry ON sms_outbound(status, lease_expires_at);
+
+-- Message lookup by phone number
+CREATE INDEX IF NOT EXISTS idx_msisdn ON sms_outbound(msisdn);
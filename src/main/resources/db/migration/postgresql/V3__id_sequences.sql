@@ -0,0 +1,9 @@
+-- Pooled id sequences for sms_outbound / sms_dlr (replaces IDENTITY so inserts can be batched)
+-- INCREMENT BY must match allocationSize on the entities (50)
+
+CREATE SEQUENCE IF NOT EXISTS sms_outbound_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS sms_dlr_seq START WITH 1 INCREMENT BY 50;
+
+-- Existing databases: continue after the highest id handed out by the old identity columns
+SELECT setval('sms_outbound_seq', COALESCE((SELECT MAX(id) FROM sms_outbound), 0) + 1, false);
+SELECT setval('sms_dlr_seq', COALESCE((SELECT MAX(id) FROM sms_dlr), 0) + 1, false);
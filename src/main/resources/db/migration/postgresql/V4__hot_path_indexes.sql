@@ -0,0 +1,30 @@
+-- Indexes for the dispatch, retry and lease access paths (asserted by SmsOutboundQueryPlanTest)
+-- CONCURRENTLY keeps inserts and status updates running while the indexes build; Flyway runs
+-- these statements outside a transaction
+
+-- Keyset rehydration of a session's QUEUED rows and status + session lookups; supersedes idx_status_session
+-- and idx_status_session_priority
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_status_session_id ON sms_outbound(status, session_id, id);
+DROP INDEX CONCURRENTLY IF EXISTS idx_status_session;
+-- priority has only two values, the extra column narrows little
+DROP INDEX CONCURRENTLY IF EXISTS idx_status_session_priority;
+
+-- Keyset rehydration of an operator's QUEUED rows (late-binding dispatch); supersedes idx_operator_status
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_status_operator_id ON sms_outbound(status, operator, id);
+DROP INDEX CONCURRENTLY IF EXISTS idx_operator_status;
+
+-- Keyset rehydration of the retry wheel
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_status_id ON sms_outbound(status, id);
+
+-- Partial indexes hold only the few non-terminal rows the background jobs scan
+-- Retry sweep: RETRY rows by due time
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_retry_due ON sms_outbound(next_retry_at) WHERE status = 'RETRY';
+
+-- Lease reclaim: IN_FLIGHT rows by lease expiry
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_lease_expiry ON sms_outbound(lease_expires_at) WHERE status = 'IN_FLIGHT';
+
+-- Reassignment of a lost session's QUEUED rows
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_queued_session ON sms_outbound(session_id, id) WHERE status = 'QUEUED';
+
+-- Message lookup by phone number
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_msisdn ON sms_outbound(msisdn);
@@ -0,0 +1,59 @@
+-- Hot/cold split: sms_outbound keeps the messages still being worked on (QUEUED, IN_FLIGHT, RETRY,
+-- SENT awaiting a receipt); OutboundArchiver moves finished rows in batches to sms_outbound_history,
+-- which is append-only and range-partitioned by month of created_at
+
+CREATE TABLE IF NOT EXISTS sms_outbound_history (
+    id                      BIGINT NOT NULL,
+    client_msg_id           VARCHAR(64),
+    request_id              VARCHAR(64),
+    smsc_msg_id             VARCHAR(64),
+    msisdn                  VARCHAR(20),
+    source_addr             VARCHAR(20),
+    message                 VARCHAR(4000),
+    priority                VARCHAR(10),
+    operator                VARCHAR(50),
+    session_id              VARCHAR(50),
+    status                  VARCHAR(20),
+    retry_count             INTEGER,
+    next_retry_at           TIMESTAMP(6) WITH TIME ZONE,
+    last_attempt_at         TIMESTAMP(6) WITH TIME ZONE,
+    lease_owner             VARCHAR(128),
+    lease_expires_at        TIMESTAMP(6) WITH TIME ZONE,
+    encoding                VARCHAR(20),
+    udh                     VARCHAR(255),
+    created_at              TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at              TIMESTAMP(6) WITH TIME ZONE,
+    sent_at                 TIMESTAMP(6) WITH TIME ZONE,
+    submit_sm_status        INTEGER,
+    submit_sm_error         VARCHAR(255),
+    submit_response_time_ms BIGINT,
+    archived_at             TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Rows of months without a partition (the archiver creates them ahead of time)
+CREATE TABLE IF NOT EXISTS sms_outbound_history_default PARTITION OF sms_outbound_history DEFAULT;
+
+-- Tracking and idempotency lookups fall back to the history; indexes cascade to every partition
+CREATE INDEX IF NOT EXISTS idx_history_client_msg_id ON sms_outbound_history(client_msg_id);
+CREATE INDEX IF NOT EXISTS idx_history_request_id ON sms_outbound_history(request_id);
+CREATE INDEX IF NOT EXISTS idx_history_smsc_msg_id ON sms_outbound_history(smsc_msg_id);
+CREATE INDEX IF NOT EXISTS idx_history_msisdn ON sms_outbound_history(msisdn);
+CREATE INDEX IF NOT EXISTS idx_history_created_at ON sms_outbound_history(created_at DESC);
+
+-- Archive scan on the hot table: finished rows by last update
+CREATE INDEX IF NOT EXISTS idx_status_updated ON sms_outbound(status, updated_at);
+
+-- Reporting reads both tables through one view; archived_at is NULL for rows still in sms_outbound
+CREATE VIEW sms_outbound_all AS
+    SELECT id, client_msg_id, request_id, smsc_msg_id, msisdn, source_addr, message, priority, operator, session_id,
+           status, retry_count, next_retry_at, last_attempt_at, lease_owner, lease_expires_at, encoding, udh,
+           created_at, updated_at, sent_at, submit_sm_status, submit_sm_error, submit_response_time_ms,
+           CAST(NULL AS TIMESTAMP(6) WITH TIME ZONE) AS archived_at
+    FROM sms_outbound
+    UNION ALL
+    SELECT id, client_msg_id, request_id, smsc_msg_id, msisdn, source_addr, message, priority, operator, session_id,
+           status, retry_count, next_retry_at, last_attempt_at, lease_owner, lease_expires_at, encoding, udh,
+           created_at, updated_at, sent_at, submit_sm_status, submit_sm_error, submit_response_time_ms,
+           archived_at
+    FROM sms_outbound_history;
@@ -0,0 +1,47 @@
+package com.cascade.baseline;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Baseline for the insert batching test: same shape as the old IDENTITY-mapped outbound row.
+ * Lives outside com.cascade.smppmls so the default entity scan does not map it; only
+ * {@code SmsOutboundBatchInsertTest} registers it
+ */
+@Entity
+@Table(name = "sms_outbound_identity_baseline")
+public class IdentityOutboundEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "msisdn", length = 20)
+    private String msisdn;
+
+    @Column(name = "message", length = 4000)
+    private String message;
+
+    @Column(name = "status", length = 20)
+    private String status;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setMsisdn(String msisdn) {
+        this.msisdn = msisdn;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,72 @@
+package com.cascade.smppmls.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import com.cascade.smppmls.service.SubmissionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test cases for the bulk submit endpoints of SmsController
+ */
+@ExtendWith(MockitoExtension.class)
+class SmsControllerTest {
+
+    @Mock
+    private SubmissionService submissionService;
+
+    private SmsController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new SmsController(submissionService, new ObjectMapper());
+        lenient().when(submissionService.getMaxBatchSize()).thenReturn(2);
+        lenient().when(submissionService.submitBatch(anyList())).thenReturn(new BatchSubmitResponse());
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testJsonArrayIsSubmitted() throws Exception {
+        String json = "[{\"msisdn\":\"0701234567\",\"message\":\"a\"},{\"msisdn\":\"0701234568\",\"message\":\"b\"}]";
+
+        assertEquals(HttpStatus.OK, controller.submitBatch(body(json)).getStatusCode());
+
+        ArgumentCaptor<List<SubmitRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(submissionService).submitBatch(captor.capture());
+        assertEquals(List.of("0701234567", "0701234568"), captor.getValue().stream().map(SubmitRequest::getMsisdn).toList());
+    }
+
+    @Test
+    void testOversizedJsonArrayStopsAtMax() {
+        // the third item is never read: the limit trips before it is parsed
+        String json = "[{\"msisdn\":\"0701234567\"},{\"msisdn\":\"0701234568\"},{not json";
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> controller.submitBatch(body(json)));
+        assertEquals("Batch size exceeds maximum 2", ex.getMessage());
+        verify(submissionService, never()).submitBatch(anyList());
+    }
+
+    @Test
+    void testJsonBodyMustBeAnArray() {
+        assertThrows(IllegalArgumentException.class, () -> controller.submitBatch(body("{\"msisdn\":\"0701234567\"}")));
+        assertThrows(IllegalArgumentException.class, () -> controller.submitBatch(body("[{\"msisdn\":\"0701234567\"}")));
+    }
+}
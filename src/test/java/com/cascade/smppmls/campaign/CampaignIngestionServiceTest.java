@@ -0,0 +1,126 @@
+package com.cascade.smppmls.campaign;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cascade.smppmls.api.BatchSubmitResponse;
+import com.cascade.smppmls.api.SubmitRequest;
+import com.cascade.smppmls.service.SubmissionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test cases for streaming campaign ingestion
+ */
+@ExtendWith(MockitoExtension.class)
+class CampaignIngestionServiceTest {
+
+    @Mock
+    private SubmissionService submissionService;
+
+    @TempDir
+    Path spoolDir;
+
+    private CampaignIngestionService service;
+    private final List<Integer> chunkSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(submissionService.getMaxBatchSize()).thenReturn(10000);
+        // accept everything except msisdn "bad"
+        lenient().when(submissionService.submitBatch(anyList())).thenAnswer(inv -> {
+            List<SubmitRequest> chunk = inv.getArgument(0);
+            chunkSizes.add(chunk.size());
+            List<BatchSubmitResponse.Item> items = new ArrayList<>();
+            int accepted = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                if ("bad".equals(chunk.get(i).getMsisdn())) {
+                    items.add(BatchSubmitResponse.Item.rejected(i, null, "Invalid msisdn"));
+                } else {
+                    items.add(new BatchSubmitResponse.Item(i, null, "r", String.valueOf(i), "QUEUED", "AWCC", "s", null));
+                    accepted++;
+                }
+            }
+            return new BatchSubmitResponse(chunk.size(), accepted, chunk.size() - accepted, items);
+        });
+        service = new CampaignIngestionService(submissionService, new ObjectMapper(), 100, spoolDir.toString(), 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private IngestionJob ingestAndWait(String body, CampaignFormat format) throws Exception {
+        IngestionJob job = service.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(job.isFinished(), "job did not finish");
+        return job;
+    }
+
+    @Test
+    void testNdjsonIsSubmittedInChunks() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 250; i++) {
+            body.append("{\"msisdn\":\"07012345").append(String.format("%02d", i % 100)).append("\",\"message\":\"hi\",\"priority\":\"NORMAL\"}\n");
+        }
+
+        IngestionJob job = ingestAndWait(body.toString(), CampaignFormat.NDJSON);
+
+        assertEquals(IngestionJob.Status.COMPLETED, job.getStatus());
+        assertEquals(250, job.getLines());
+        assertEquals(250, job.getAccepted());
+        assertEquals(List.of(100, 100, 50), chunkSizes);
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count(), "spool file should be removed");
+        }
+    }
+
+    @Test
+    void testCsvRejectionsReportSourceLine() throws Exception {
+        String csv = "msisdn,message,priority\n"
+            + "0701234567,\"hello, world\",HIGH\n"
+            + "bad,hi,NORMAL\n"
+            + "\n"
+            + "0701234568,\"say \"\"hi\"\"\",\n"
+            + "0701234569,\"unterminated\n";
+
+        IngestionJob job = ingestAndWait(csv, CampaignFormat.CSV);
+
+        assertEquals(IngestionJob.Status.COMPLETED, job.getStatus());
+        assertEquals(4, job.getLines());
+        assertEquals(2, job.getAccepted());
+        assertEquals(2, job.getRejected());
+        assertEquals(3, job.getErrors().get(0).line());
+        assertEquals(6, job.getErrors().get(1).line());
+    }
+
+    @Test
+    void testCsvWithoutRequiredColumnsFailsJob() throws Exception {
+        IngestionJob job = ingestAndWait("phone,text\n0701234567,hi\n", CampaignFormat.CSV);
+
+        assertEquals(IngestionJob.Status.FAILED, job.getStatus());
+        verify(submissionService, never()).submitBatch(anyList());
+    }
+
+    @Test
+    void testCsvFieldParsing() {
+        assertEquals(List.of("a", "b, c", "d \"e\"", ""), CsvLineParser.parse("a,\"b, c\",\"d \"\"e\"\"\","));
+    }
+}
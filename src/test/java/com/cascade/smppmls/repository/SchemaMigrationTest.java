@@ -0,0 +1,113 @@
+package com.cascade.smppmls.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Test cases for upgrading a database created by Hibernate ddl-auto (the layout before the
+ * migrations) with the Flyway baseline: it must end up with the same schema as a fresh migration
+ */
+class SchemaMigrationTest {
+
+    // what ddl-auto=update created for the baseline entities (IDENTITY ids, no lease columns, no indexes)
+    private static final List<String> BASELINE_DDL = List.of(
+        "CREATE TABLE sms_outbound (id BIGINT GENERATED BY DEFAULT AS IDENTITY, client_msg_id VARCHAR(64), " +
+        "request_id VARCHAR(64), smsc_msg_id VARCHAR(64), msisdn VARCHAR(20), source_addr VARCHAR(20), message VARCHAR(4000), " +
+        "priority VARCHAR(10), operator VARCHAR(50), session_id VARCHAR(50), status VARCHAR(20), retry_count INTEGER, " +
+        "next_retry_at TIMESTAMP(6) WITH TIME ZONE, last_attempt_at TIMESTAMP(6) WITH TIME ZONE, encoding VARCHAR(20), " +
+        "udh VARCHAR(255), created_at TIMESTAMP(6) WITH TIME ZONE, updated_at TIMESTAMP(6) WITH TIME ZONE, " +
+        "sent_at TIMESTAMP(6) WITH TIME ZONE, submit_sm_status INTEGER, submit_sm_error VARCHAR(255), " +
+        "submit_response_time_ms BIGINT, PRIMARY KEY (id))",
+        "CREATE TABLE sms_dlr (id BIGINT GENERATED BY DEFAULT AS IDENTITY, sms_outbound_id BIGINT, smsc_msg_id VARCHAR(64), " +
+        "status VARCHAR(50), received_at TIMESTAMP(6) WITH TIME ZONE, PRIMARY KEY (id))");
+
+    private static final String COLUMNS_SQL =
+        "SELECT LOWER(table_name) || '.' || LOWER(column_name) || ' ' || LOWER(data_type) FROM information_schema.columns " +
+        "WHERE LOWER(table_name) IN ('sms_outbound', 'sms_dlr', 'sms_outbound_history') ORDER BY 1";
+
+    private static final String INDEXES_SQL_POSTGRES =
+        "SELECT indexname FROM pg_indexes WHERE tablename = 'sms_outbound' ORDER BY 1";
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        if (postgres != null) postgres.close();
+    }
+
+    private static void migrate(DataSource dataSource, String vendor) {
+        Flyway.configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/common", "classpath:db/migration/" + vendor)
+            .baselineOnMigrate(true) // as in application.yml
+            .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+            .load()
+            .migrate();
+    }
+
+    private static JdbcTemplate baseline(DataSource dataSource) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        BASELINE_DDL.forEach(jdbc::execute);
+        Timestamp created = Timestamp.from(Instant.parse("2024-10-16T10:00:00Z"));
+        for (int i = 0; i < 3; i++) {
+            jdbc.update("INSERT INTO sms_outbound (client_msg_id, msisdn, message, priority, status, retry_count, created_at, updated_at) " +
+                "VALUES (?, '+93770000001', 'hi', 'NORMAL', 'DELIVERED', 0, ?, ?)", "c" + i, created, created);
+        }
+        return jdbc;
+    }
+
+    private static DataSource postgresDatabase(String name) {
+        new JdbcTemplate(postgres.getPostgresDatabase()).execute("CREATE DATABASE " + name);
+        return postgres.getDatabase("postgres", name);
+    }
+
+    @Test
+    void testH2BaselineUpgradesToTheMigratedSchema() {
+        DataSource fresh = new DriverManagerDataSource("jdbc:h2:mem:migration-fresh;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource upgraded = new DriverManagerDataSource("jdbc:h2:mem:migration-baseline;DB_CLOSE_DELAY=-1", "sa", "");
+        migrate(fresh, "h2");
+        JdbcTemplate jdbc = baseline(upgraded);
+        migrate(upgraded, "h2");
+
+        assertEquals(new JdbcTemplate(fresh).queryForList(COLUMNS_SQL, String.class), jdbc.queryForList(COLUMNS_SQL, String.class));
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM sms_outbound_all", Integer.class));
+    }
+
+    @Test
+    void testPostgresBaselineUpgradesToTheMigratedSchema() {
+        DataSource fresh = postgresDatabase("migration_fresh");
+        DataSource upgraded = postgresDatabase("migration_baseline");
+        migrate(fresh, "postgresql");
+        JdbcTemplate jdbc = baseline(upgraded);
+        migrate(upgraded, "postgresql");
+
+        JdbcTemplate freshJdbc = new JdbcTemplate(fresh);
+        assertEquals(freshJdbc.queryForList(COLUMNS_SQL, String.class), jdbc.queryForList(COLUMNS_SQL, String.class));
+        assertEquals(freshJdbc.queryForList(INDEXES_SQL_POSTGRES, String.class), jdbc.queryForList(INDEXES_SQL_POSTGRES, String.class));
+        // ids continue after the rows the identity column handed out
+        assertTrue(jdbc.queryForObject("SELECT nextval('sms_outbound_seq')", Long.class) > 3);
+        jdbc.update("UPDATE sms_outbound SET status = 'IN_FLIGHT', lease_owner = 'sender-1', lease_expires_at = NOW() WHERE client_msg_id = 'c0'");
+        assertEquals("sender-1", jdbc.queryForObject("SELECT lease_owner FROM sms_outbound WHERE client_msg_id = 'c0'", String.class));
+    }
+}
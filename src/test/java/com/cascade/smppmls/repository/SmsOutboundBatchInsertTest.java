@@ -0,0 +1,107 @@
+package com.cascade.smppmls.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+
+import com.cascade.baseline.IdentityOutboundEntity;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Before/after insert throughput of the bulk submission path: IDENTITY ids (one INSERT round-trip
+ * per row) against pooled sequence ids with hibernate.jdbc.batch_size
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.hibernate.ddl-auto=update" // the IDENTITY baseline table is test-only, not in the migrations
+})
+class SmsOutboundBatchInsertTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SmsOutboundBatchInsertTest.class);
+    private static final int ROWS = 2000;
+
+    @Autowired
+    private SmsOutboundRepository outboundRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    // maps the IDENTITY baseline in this context only; every other context validates against the migrations
+    @TestConfiguration
+    @EntityScan(basePackageClasses = {SmsOutboundEntity.class, IdentityOutboundEntity.class})
+    static class BaselineEntities {
+    }
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testSequenceIdsBatchInserts() {
+        // before: IDENTITY forces an immediate INSERT per persist
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            IdentityOutboundEntity e = new IdentityOutboundEntity();
+            e.setMsisdn("+9377" + String.format("%07d", i));
+            e.setMessage("bulk message " + i);
+            e.setStatus("QUEUED");
+            entityManager.persist(e);
+        }
+        entityManager.flush();
+        long identityNanos = System.nanoTime() - start;
+        long identityStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        // after: pooled sequence ids, inserts go out as JDBC batches
+        statistics.clear();
+        start = System.nanoTime();
+        List<SmsOutboundEntity> batch = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            batch.add(SmsOutboundEntity.builder()
+                .msisdn("+9377" + String.format("%07d", i))
+                .message("bulk message " + i)
+                .priority("NORMAL")
+                .status("QUEUED")
+                .build());
+        }
+        outboundRepository.saveAll(batch);
+        entityManager.flush();
+        long sequenceNanos = System.nanoTime() - start;
+        long sequenceStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        log.info("IDENTITY: {} rows, {} statements, {} rows/s", ROWS, identityStatements, rate(identityNanos));
+        log.info("SEQUENCE: {} rows, {} statements, {} rows/s", ROWS, sequenceStatements, rate(sequenceNanos));
+
+        assertEquals(ROWS, outboundRepository.count());
+        assertTrue(identityStatements >= ROWS, "IDENTITY should need one INSERT per row");
+        // one statement per 50-row batch plus one sequence call per 50 ids
+        assertTrue(sequenceStatements <= 2L * ROWS / 50 + 4, "expected batched inserts, got " + sequenceStatements + " statements");
+    }
+
+    private static long rate(long nanos) {
+        return ROWS * 1_000_000_000L / Math.max(1, nanos);
+    }
+}
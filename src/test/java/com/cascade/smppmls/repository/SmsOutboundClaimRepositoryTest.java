@@ -0,0 +1,112 @@
+package com.cascade.smppmls.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+/**
+ * Test cases for claim/lease transitions on H2
+ */
+@DataJpaTest
+@Import(SmsOutboundClaimRepository.class)
+class SmsOutboundClaimRepositoryTest {
+
+    @Autowired
+    private SmsOutboundRepository outboundRepository;
+
+    @Autowired
+    private SmsOutboundClaimRepository claimRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long queued(String sessionId) {
+        SmsOutboundEntity e = SmsOutboundEntity.builder()
+            .msisdn("+93770000001")
+            .message("test")
+            .priority("NORMAL")
+            .sessionId(sessionId)
+            .status("QUEUED")
+            .build();
+        return outboundRepository.saveAndFlush(e).getId();
+    }
+
+    @Test
+    void testRowIsClaimedOnlyOnce() {
+        Long id1 = queued("mtn-primary-1");
+        Long id2 = queued("mtn-primary-1");
+        Instant expires = Instant.now().plusSeconds(60);
+
+        List<Long> first = claimRepository.claim(List.of(id1, id2), "node-a:mtn-primary-1#1", expires);
+        List<Long> second = claimRepository.claim(List.of(id1, id2), "node-b:mtn-primary-1#1", expires);
+
+        assertEquals(2, first.size());
+        assertTrue(second.isEmpty());
+    }
+
+    @Test
+    void testPartialClaimReturnsOnlyOwnRows() {
+        Long id1 = queued("mtn-primary-1");
+        Long id2 = queued("mtn-primary-1");
+        Instant expires = Instant.now().plusSeconds(60);
+
+        claimRepository.claim(List.of(id1), "node-a:mtn-primary-1#1", expires);
+        List<Long> claimed = claimRepository.claim(List.of(id1, id2), "node-b:mtn-primary-1#1", expires);
+
+        assertEquals(List.of(id2), claimed);
+    }
+
+    @Test
+    void testExpiredLeaseIsReclaimed() {
+        Long id = queued("awcc-primary-1");
+        claimRepository.claim(List.of(id), "node-a:awcc-primary-1#1", Instant.now().minusSeconds(1));
+
+        List<Long> reclaimed = claimRepository.reclaimExpired(Instant.now(), 100);
+
+        assertEquals(List.of(id), reclaimed);
+        List<Long> reclaimedAgain = claimRepository.reclaimExpired(Instant.now(), 100);
+        assertTrue(reclaimedAgain.isEmpty());
+        // row is claimable again
+        assertEquals(1, claimRepository.claim(List.of(id), "node-b:awcc-primary-1#1", Instant.now().plusSeconds(60)).size());
+    }
+
+    @Test
+    void testClaimBindsRowToClaimingSession() {
+        Long id = queued(null);
+
+        claimRepository.claim(List.of(id), "node-a:mtn-primary-2#1", Instant.now().plusSeconds(60), "mtn-primary-2");
+
+        // read the row itself; the persistence context still holds the entity as inserted
+        assertEquals("mtn-primary-2", jdbcTemplate.queryForObject("SELECT session_id FROM sms_outbound WHERE id = ?", String.class, id));
+        assertEquals("IN_FLIGHT", jdbcTemplate.queryForObject("SELECT status FROM sms_outbound WHERE id = ?", String.class, id));
+    }
+
+    @Test
+    void testReassignQueuedSpreadsRowsInOneUpdate() {
+        Long q1 = queued("awcc-primary-2");
+        Long q2 = queued("awcc-primary-2");
+        Long q3 = queued("awcc-primary-2");
+        Long inFlight = queued("awcc-primary-2");
+        claimRepository.claim(List.of(inFlight), "node-a:awcc-primary-2#1", Instant.now().plusSeconds(60));
+        List<String> targets = List.of("awcc-primary-1", "awcc-primary-3");
+
+        int moved = claimRepository.reassignQueued("awcc-primary-2", targets);
+
+        assertEquals(3, moved);
+        for (Long id : List.of(q1, q2, q3)) {
+            assertEquals(SmsOutboundClaimRepository.targetFor(id, targets),
+                jdbcTemplate.queryForObject("SELECT session_id FROM sms_outbound WHERE id = ?", String.class, id));
+        }
+        // rows already claimed stay with their sender
+        assertEquals("awcc-primary-2", jdbcTemplate.queryForObject("SELECT session_id FROM sms_outbound WHERE id = ?", String.class, inFlight));
+    }
+}
@@ -0,0 +1,99 @@
+package com.cascade.smppmls.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+/**
+ * Test cases for moving finished messages to sms_outbound_history on H2
+ */
+@DataJpaTest
+@Import(SmsOutboundHistoryRepository.class)
+class SmsOutboundHistoryRepositoryTest {
+
+    @Autowired
+    private SmsOutboundRepository outboundRepository;
+
+    @Autowired
+    private SmsOutboundHistoryRepository historyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SmsOutboundEntity message(String clientMsgId, String status, Instant updatedAt) {
+        SmsOutboundEntity e = outboundRepository.saveAndFlush(SmsOutboundEntity.builder()
+            .clientMsgId(clientMsgId)
+            .requestId("r-" + clientMsgId)
+            .msisdn("+93770000001")
+            .message("test")
+            .priority("NORMAL")
+            .status(status)
+            .build());
+        // @PreUpdate would overwrite updated_at
+        jdbcTemplate.update("UPDATE sms_outbound SET updated_at = ? WHERE id = ?", Timestamp.from(updatedAt), e.getId());
+        return e;
+    }
+
+    // native SQL: the persistence context still holds the saved entities
+    private boolean live(Long id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sms_outbound WHERE id = ?", Integer.class, id) > 0;
+    }
+
+    @Test
+    void testArchiveMovesOnlySettledRowsInTheGivenStatuses() {
+        Instant cutoff = Instant.now().minusSeconds(3600);
+        SmsOutboundEntity delivered = message("c-1", "DELIVERED", cutoff.minusSeconds(60));
+        SmsOutboundEntity recent = message("c-2", "DELIVERED", cutoff.plusSeconds(60));
+        SmsOutboundEntity queued = message("c-3", "QUEUED", cutoff.minusSeconds(60));
+
+        assertEquals(1, historyRepository.archive(List.of("DELIVERED", "FAILED"), cutoff, 100));
+
+        assertFalse(live(delivered.getId()));
+        assertTrue(live(recent.getId()));
+        assertTrue(live(queued.getId()));
+        SmsOutboundEntity archived = historyRepository.findById(delivered.getId()).orElseThrow();
+        assertEquals("DELIVERED", archived.getStatus());
+        assertEquals("r-c-1", archived.getRequestId());
+        assertNotNull(archived.getArchivedAt());
+        assertNotNull(archived.getCreatedAt());
+    }
+
+    @Test
+    void testArchiveHonoursTheBatchLimit() {
+        Instant old = Instant.now().minusSeconds(7200);
+        for (int i = 0; i < 5; i++) message("c-" + i, "FAILED", old.plusSeconds(i));
+
+        assertEquals(2, historyRepository.archive(List.of("FAILED"), Instant.now(), 2));
+        // oldest first
+        assertNotNull(historyRepository.findByClientMsgId("c-0"));
+        assertNotNull(historyRepository.findByClientMsgId("c-1"));
+        assertNull(historyRepository.findByClientMsgId("c-2"));
+
+        assertEquals(2, historyRepository.archive(List.of("FAILED"), Instant.now(), 2));
+        assertEquals(1, historyRepository.archive(List.of("FAILED"), Instant.now(), 2));
+        assertEquals(0, historyRepository.archive(List.of("FAILED"), Instant.now(), 2));
+        assertEquals(5, historyRepository.findByClientMsgIdIn(List.of("c-0", "c-1", "c-2", "c-3", "c-4")).size());
+    }
+
+    @Test
+    void testViewSpansLiveAndArchivedRows() {
+        Instant old = Instant.now().minusSeconds(7200);
+        message("c-1", "DELIVERED", old);
+        message("c-2", "SENT", old);
+        historyRepository.archive(List.of("DELIVERED"), Instant.now(), 100);
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sms_outbound_all", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sms_outbound_all WHERE archived_at IS NOT NULL", Integer.class));
+        assertEquals(1, historyRepository.findByMsisdn("+93770000001").size());
+    }
+}
@@ -0,0 +1,360 @@
+package com.cascade.smppmls.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cascade.smppmls.api.AdminDashboardController;
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.smpp.DeliveryReceiptWriter;
+import com.cascade.smppmls.smpp.DeliveryReceiptWriter.DeliveryReceipt;
+import com.cascade.smppmls.smpp.RetryPolicy;
+import com.cascade.smppmls.smpp.SmscMsgIdCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Query plan regression test for the sms_outbound access paths. Every repository method (and the
+ * dashboard count over sms_outbound_all) runs against H2 and PostgreSQL built by the Flyway
+ * migrations; the statements it prepares are captured, EXPLAINed with the same parameters and
+ * must use the index that exists for that path. Each path runs in a transaction that is rolled back.
+ */
+class SmsOutboundQueryPlanTest {
+
+    private static final int ROWS = 20_000;
+    private static final Instant NOW = Instant.parse("2024-10-16T10:00:00Z");
+    private static final RetryPolicy.SqlCondition EXHAUSTED = new RetryPolicy(new SmppProperties()).exhausted();
+    private static final String DASHBOARD_COUNT_SQL =
+        (String) ReflectionTestUtils.getField(AdminDashboardController.class, "COUNT_SINCE_SQL");
+
+    /**
+     * The repositories of one database, all preparing their statements on the recording connection
+     */
+    private record Repositories(SmsOutboundRepository outbound, SmsOutboundClaimRepository claims,
+                                SmsOutboundHistoryRepository history, DeliveryReceiptWriter receipts, JdbcTemplate jdbc) {
+    }
+
+    /**
+     * One access path: the call that issues it and the indexes its plan must use on each database
+     */
+    private record AccessPath(String method, Consumer<Repositories> call, List<String> postgres, List<String> h2) {
+
+        static AccessPath of(String method, Consumer<Repositories> call, String... indexes) {
+            return new AccessPath(method, call, List.of(indexes), List.of(indexes));
+        }
+    }
+
+    private static final List<AccessPath> PATHS = List.of(
+        AccessPath.of("findByClientMsgId", r -> r.outbound().findByClientMsgId("c100"), "idx_client_msg_id"),
+        AccessPath.of("findByClientMsgIdIn", r -> r.outbound().findByClientMsgIdIn(List.of("c1", "c2", "c3")), "idx_client_msg_id"),
+        AccessPath.of("findByRequestId", r -> r.outbound().findByRequestId("r10"), "idx_request_id"),
+        AccessPath.of("findByMsisdn", r -> r.outbound().findByMsisdn(msisdn(100)), "idx_msisdn"),
+        AccessPath.of("findBySmscMsgId", r -> r.outbound().findBySmscMsgId("m100"), "idx_smsc_msg_id"),
+        new AccessPath("findByStatusAndSessionId",
+            r -> r.outbound().findByStatusAndSessionId("QUEUED", "s1", PageRequest.of(0, 100)),
+            List.of("idx_queued_session"), List.of("idx_status_session_id")),
+        new AccessPath("findByStatusAndSessionIdAndPriority",
+            r -> r.outbound().findByStatusAndSessionIdAndPriority("QUEUED", "s1", "HIGH", PageRequest.of(0, 100)),
+            List.of("idx_queued_session"), List.of("idx_status_session_id")),
+        new AccessPath("findByStatusAndSessionIdAndIdGreaterThanOrderByIdAsc",
+            r -> r.outbound().findByStatusAndSessionIdAndIdGreaterThanOrderByIdAsc("QUEUED", "s1", 0L, PageRequest.of(0, 1000)),
+            List.of("idx_queued_session"), List.of("idx_status_session_id")),
+        AccessPath.of("findByStatusAndOperatorAndIdGreaterThanOrderByIdAsc",
+            r -> r.outbound().findByStatusAndOperatorAndIdGreaterThanOrderByIdAsc("QUEUED", "op1", 0L, PageRequest.of(0, 1000)),
+            "idx_status_operator_id"),
+        // PostgreSQL reads the few RETRY rows from the partial index and sorts them rather than walk (status, id)
+        new AccessPath("findByStatusAndIdGreaterThanOrderByIdAsc",
+            r -> r.outbound().findByStatusAndIdGreaterThanOrderByIdAsc("RETRY", 0L, PageRequest.of(0, 1000)),
+            List.of("idx_retry_due"), List.of("idx_status_id")),
+        new AccessPath("findByStatusAndNextRetryAtBefore",
+            r -> r.outbound().findByStatusAndNextRetryAtBefore("RETRY", NOW, PageRequest.of(0, 1000)),
+            List.of("idx_retry_due"), List.of("idx_status_next_retry")),
+        // H2 resolves the guarded id list (id IN (...) AND status = 'QUEUED') on the (status, id) index
+        new AccessPath("SmsOutboundClaimRepository.claim",
+            r -> r.claims().claim(List.of(100L, 101L, 200L), "sender-1", NOW.plusSeconds(30), "s2"),
+            List.of("sms_outbound_pkey"), List.of("idx_status_id")),
+        new AccessPath("SmsOutboundClaimRepository.reclaimExpired",
+            r -> r.claims().reclaimExpired(NOW, 1000),
+            List.of("idx_lease_expiry"), List.of("idx_status_lease_expiry")),
+        new AccessPath("SmsOutboundClaimRepository.requeueDueRetries",
+            r -> r.claims().requeueDueRetries(NOW, EXHAUSTED.sql(), EXHAUSTED.args(), 1000),
+            List.of("idx_retry_due"), List.of("idx_status_next_retry")),
+        new AccessPath("SmsOutboundClaimRepository.failDueRetries",
+            r -> r.claims().failDueRetries(NOW, EXHAUSTED.sql(), EXHAUSTED.args(), 1000),
+            List.of("idx_retry_due"), List.of("idx_status_next_retry")),
+        new AccessPath("SmsOutboundClaimRepository.reassignQueued",
+            r -> r.claims().reassignQueued("s1", List.of("s2", "s3")),
+            List.of("idx_queued_session"), List.of("idx_status_session_id")),
+        AccessPath.of("SmsOutboundHistoryRepository.archive",
+            r -> r.history().archive(List.of("FAILED", "DELIVERED"), NOW.minusSeconds(13 * 86_400), 5000),
+            "idx_status_updated"),
+        AccessPath.of("DeliveryReceiptWriter correlation",
+            r -> ReflectionTestUtils.invokeMethod(r.receipts(), "process", List.of(
+                new DeliveryReceipt("s1", "m-unknown-1", "DELIVERED", "DELIVRD", NOW),
+                new DeliveryReceipt("s1", "m-unknown-2", "DELIVERED", "DELIVRD", NOW)), false),
+            "idx_smsc_msg_id"),
+        // the child index of the default history partition stands for idx_history_created_at on PostgreSQL
+        new AccessPath("AdminDashboardController messages last hour",
+            r -> r.jdbc().queryForObject(DASHBOARD_COUNT_SQL, Long.class, Timestamp.from(NOW.minusSeconds(3600))),
+            List.of("idx_created_at", "sms_outbound_history_default_created_at_idx"), List.of("idx_created_at", "idx_history_created_at"))
+    );
+
+    private static EmbeddedPostgres postgres;
+    private static Recorder postgresRecorder;
+    private static Recorder h2Recorder;
+
+    @BeforeAll
+    static void setUp() throws IOException, SQLException {
+        h2Recorder = prepare(DriverManager.getConnection("jdbc:h2:mem:query-plans;DB_CLOSE_DELAY=-1", "sa", ""), "h2", "ANALYZE");
+
+        postgres = EmbeddedPostgres.start();
+        // the question is whether an index serves the path, not whether 20k rows fit in a seq scan;
+        // the recorder holds this one connection, so the setting applies to every statement and EXPLAIN
+        postgresRecorder = prepare(postgres.getPostgresDatabase().getConnection(), "postgresql",
+            "ANALYZE sms_outbound", "ANALYZE sms_outbound_history", "SET enable_seqscan = off");
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException, SQLException {
+        if (h2Recorder != null) h2Recorder.target.close();
+        if (postgresRecorder != null) postgresRecorder.target.close();
+        if (postgres != null) postgres.close();
+    }
+
+    // migrate, seed and run the setup statements, then switch the connection to the one transaction per path the recorder needs
+    private static Recorder prepare(Connection connection, String vendor, String... setup) throws SQLException {
+        DataSource dataSource = new SingleConnectionDataSource(connection, true);
+        Flyway.configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/common", "classpath:db/migration/" + vendor)
+            .configuration(Map.of("flyway.postgresql.transactional.lock", "false")) // as in application.yml
+            .load()
+            .migrate();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        seed(jdbc, "sms_outbound", 0);
+        seed(jdbc, "sms_outbound_history", ROWS);
+        for (String statement : setup) jdbc.execute(statement);
+        connection.setAutoCommit(false);
+        return new Recorder(connection);
+    }
+
+    private static String msisdn(int i) {
+        return "+9377" + String.format("%07d", i);
+    }
+
+    // mostly terminal rows, a few percent QUEUED / RETRY / IN_FLIGHT, like a live table
+    private static String status(int i) {
+        int bucket = i % 100;
+        if (bucket < 2) return "QUEUED";
+        if (bucket == 2) return "RETRY";
+        if (bucket == 3) return "IN_FLIGHT";
+        if (bucket < 10) return "FAILED";
+        if (bucket < 40) return "SENT";
+        return "DELIVERED";
+    }
+
+    // the history holds the ROWS minutes before the hot table, as the archive job leaves it
+    private static void seed(JdbcTemplate jdbc, String table, int age) {
+        boolean history = table.endsWith("history");
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 1; i <= ROWS; i++) {
+            String status = history ? "DELIVERED" : status(i);
+            Timestamp created = Timestamp.from(NOW.minusSeconds((ROWS + age - i) * 60L));
+            rows.add(new Object[] {
+                (long) (history ? ROWS + i : i), "c" + i, "r" + i, "m" + i, msisdn(i), i % 5 == 0 ? "HIGH" : "NORMAL",
+                "op" + (i % 4), "s" + (i % 12), status, i % 7,
+                status.equals("RETRY") ? Timestamp.from(NOW.plusSeconds(i - ROWS / 2)) : null,
+                status.equals("IN_FLIGHT") ? Timestamp.from(NOW.plusSeconds(i - ROWS / 2)) : null,
+                created, Timestamp.from(created.toInstant().plusSeconds(30)), history ? Timestamp.from(NOW) : null
+            });
+        }
+        jdbc.batchUpdate(
+            "INSERT INTO " + table + " (id, client_msg_id, request_id, smsc_msg_id, msisdn, priority, operator, session_id, " +
+            "status, retry_count, next_retry_at, lease_expires_at, created_at, updated_at" + (history ? ", archived_at" : "") + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?" + (history ? ", ?" : "") + ")",
+            history ? rows : rows.stream().map(row -> Arrays.copyOf(row, 14)).toList());
+    }
+
+    private static Repositories repositories(Recorder recorder) {
+        DataSource dataSource = recorder.dataSource();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setPackagesToScan("com.cascade.smppmls.entity");
+        factory.setJpaPropertyMap(Map.of(
+            "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName(),
+            "hibernate.jdbc.time_zone", "UTC")); // as in application.yml, no schema management
+        factory.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factory.getObject();
+        SmsOutboundRepository outbound = new JpaRepositoryFactory(entityManagerFactory.createEntityManager())
+            .getRepository(SmsOutboundRepository.class);
+
+        SmppProperties props = new SmppProperties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DeliveryReceiptWriter receipts = new DeliveryReceiptWriter(jdbc, transactionManager, null,
+            new SmscMsgIdCache(props, meterRegistry), props, meterRegistry);
+
+        return new Repositories(outbound, new SmsOutboundClaimRepository(jdbc, transactionManager),
+            new SmsOutboundHistoryRepository(jdbc, transactionManager), receipts, jdbc);
+    }
+
+    private static List<String> misses(Recorder recorder, boolean postgres) throws SQLException {
+        Repositories repositories = repositories(recorder);
+        List<String> misses = new ArrayList<>();
+        for (AccessPath path : PATHS) {
+            List<String> plans = recorder.plans(() -> path.call().accept(repositories));
+            String plan = String.join("\n", plans);
+            List<String> expected = postgres ? path.postgres() : path.h2();
+            List<String> missing = expected.stream()
+                .filter(index -> !Pattern.compile("\\b" + index + "\\b", Pattern.CASE_INSENSITIVE).matcher(plan).find())
+                .toList();
+            if (plans.isEmpty() || !missing.isEmpty()) {
+                misses.add(path.method() + ": expected " + expected + ", missing " + missing + "\n" + plan);
+            }
+        }
+        return misses;
+    }
+
+    @Test
+    void testH2PlansUseIndexes() throws SQLException {
+        List<String> misses = misses(h2Recorder, false);
+        assertTrue(misses.isEmpty(), () -> String.join("\n\n", misses));
+    }
+
+    @Test
+    void testPostgresPlansUseIndexes() throws SQLException {
+        List<String> misses = misses(postgresRecorder, true);
+        assertTrue(misses.isEmpty(), () -> String.join("\n\n", misses));
+    }
+
+    /**
+     * A statement as a repository prepared it: the SQL and the parameter setters it called
+     */
+    private record Captured(String sql, List<Setter> setters) {
+    }
+
+    private record Setter(Method method, Object[] args) {
+    }
+
+    /**
+     * Hands out one connection whose transaction the callers cannot commit or end, and records
+     * every statement prepared on it. {@link #plans} rolls the transaction back afterwards.
+     */
+    private static final class Recorder implements InvocationHandler {
+
+        private final Connection target;
+        private final List<Captured> captured = new ArrayList<>();
+
+        Recorder(Connection target) {
+            this.target = target;
+        }
+
+        DataSource dataSource() {
+            Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class}, this);
+            return new AbstractDataSource() {
+                @Override
+                public Connection getConnection() {
+                    return connection;
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) {
+                    return connection;
+                }
+            };
+        }
+
+        // run the call, then EXPLAIN what it prepared, with the parameters it bound
+        List<String> plans(Runnable call) throws SQLException {
+            captured.clear();
+            try {
+                call.run();
+                List<String> plans = new ArrayList<>();
+                for (Captured statement : captured) {
+                    plans.add("-- " + statement.sql());
+                    try (PreparedStatement explain = target.prepareStatement("EXPLAIN " + statement.sql())) {
+                        for (Setter setter : statement.setters()) call(explain, setter.method(), setter.args());
+                        try (ResultSet rs = explain.executeQuery()) {
+                            while (rs.next()) plans.add(rs.getString(1));
+                        }
+                    }
+                }
+                return plans;
+            } finally {
+                target.rollback();
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close", "commit", "setAutoCommit":
+                    return null;
+                case "isClosed", "getAutoCommit":
+                    return false;
+                case "prepareStatement":
+                    PreparedStatement statement = (PreparedStatement) call(target, method, args);
+                    Captured capture = new Captured((String) args[0], new ArrayList<>());
+                    captured.add(capture);
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class}, (p, m, a) -> {
+                        if (m.getName().startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer) {
+                            capture.setters().add(new Setter(m, a));
+                        }
+                        return call(statement, m, a);
+                    });
+                default:
+                    return call(target, method, args);
+            }
+        }
+
+        private static Object call(Object target, Method method, Object[] args) throws SQLException {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                if (ex.getCause() instanceof SQLException sql) throw sql;
+                throw new IllegalStateException(ex.getCause());
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
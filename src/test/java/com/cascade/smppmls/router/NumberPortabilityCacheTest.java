@@ -0,0 +1,131 @@
+package com.cascade.smppmls.router;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cascade.smppmls.config.SmppProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases for the MNP cache and its use by OperatorRouter
+ */
+class NumberPortabilityCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private SmppProperties smppProperties;
+    private Path file;
+    private Path delta;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smppProperties = new SmppProperties();
+        Map<String, SmppProperties.Operator> operators = new LinkedHashMap<>();
+        operators.put("roshan", operator("93-79", "roshan-primary"));
+        operators.put("awcc", operator("93-70", "awcc-primary"));
+        smppProperties.setOperators(operators);
+
+        file = dir.resolve("ported.csv");
+        delta = dir.resolve("delta.csv");
+        Files.writeString(file, "# msisdn,operator\n93791111111,awcc\n0701111111,roshan\n93792222222,unknown\n");
+        smppProperties.getMnp().setEnabled(true);
+        smppProperties.getMnp().setFile(file.toString());
+        smppProperties.getMnp().setDeltaFile(delta.toString());
+    }
+
+    private static SmppProperties.Operator operator(String prefix, String sessionId) {
+        SmppProperties.Operator operator = new SmppProperties.Operator();
+        operator.setPrefixes(List.of(prefix));
+        SmppProperties.Session session = new SmppProperties.Session();
+        session.setUuId(sessionId);
+        operator.setSessions(List.of(session));
+        return operator;
+    }
+
+    private NumberPortabilityCache newCache() {
+        NumberPortabilityCache cache = new NumberPortabilityCache(smppProperties, new SimpleMeterRegistry());
+        cache.init();
+        return cache;
+    }
+
+    @Test
+    void testFullFileLoad() {
+        NumberPortabilityCache cache = newCache();
+
+        assertEquals("awcc", cache.resolveOperator("+93791111111"));
+        assertEquals("roshan", cache.resolveOperator("+93701111111"));
+        assertNull(cache.resolveOperator("+93792222222"), "unknown operators are skipped");
+        assertNull(cache.resolveOperator("+93793333333"));
+        assertEquals(2, cache.getStats().get("entries"));
+        assertEquals(2L, cache.getStats().get("hits"));
+        assertEquals(2L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void testDeltaIsAppliedIncrementally() throws Exception {
+        NumberPortabilityCache cache = newCache();
+
+        Files.writeString(delta, "93793333333,awcc\n93791111111,-\n");
+        cache.reload();
+        assertEquals("awcc", cache.resolveOperator("+93793333333"));
+        assertNull(cache.resolveOperator("+93791111111"), "port removed by the delta");
+
+        // a partially written line is picked up once it is complete
+        Files.writeString(delta, "93794444444,roshan\n93795555555,aw", StandardOpenOption.APPEND);
+        cache.reload();
+        assertEquals("roshan", cache.resolveOperator("+93794444444"));
+        assertNull(cache.resolveOperator("+93795555555"));
+
+        Files.writeString(delta, "cc\n", StandardOpenOption.APPEND);
+        cache.reload();
+        assertEquals("awcc", cache.resolveOperator("+93795555555"));
+        assertEquals(4, cache.getStats().get("deltaEntries"));
+    }
+
+    @Test
+    void testChangedFullFileReplacesDataAndReplaysDelta() throws Exception {
+        Files.writeString(delta, "93793333333,awcc\n");
+        NumberPortabilityCache cache = newCache();
+        assertEquals("awcc", cache.resolveOperator("+93793333333"));
+
+        Files.writeString(file, "93796666666,awcc\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        cache.reload();
+
+        assertNull(cache.resolveOperator("+93791111111"));
+        assertEquals("awcc", cache.resolveOperator("+93796666666"));
+        assertEquals("awcc", cache.resolveOperator("+93793333333"));
+    }
+
+    @Test
+    void testRouterPrefersPortedOperator() {
+        NumberPortabilityCache cache = newCache();
+        OperatorRouter router = new OperatorRouter(smppProperties, cache, null);
+        router.init();
+
+        assertArrayEquals(new String[] {"awcc", "awcc-primary"}, router.resolve("+93791111111"));
+        assertArrayEquals(new String[] {"roshan", "roshan-primary"}, router.resolve("+93797777777"));
+        assertNotNull(router.getRoutingStats().get("mnp"));
+    }
+
+    @Test
+    void testKeyIgnoresNonDigits() {
+        assertEquals(93791234567L, NumberPortabilityCache.key("+93 79-123-4567"));
+        assertEquals(0L, NumberPortabilityCache.key(null));
+        assertEquals(0L, NumberPortabilityCache.key("1234567890123456789"));
+    }
+}
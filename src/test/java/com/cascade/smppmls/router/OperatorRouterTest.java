@@ -3,8 +3,10 @@ package com.cascade.smppmls.router;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -237,4 +239,113 @@ class OperatorRouterTest {
         assertEquals(1, sessions.size());
         assertEquals("test-session", sessions.get(0));
     }
+
+    @Test
+    void testOverlappingPrefixesResolveToLongestMatch() {
+        // Given: a country-wide prefix and a more specific range owned by another operator
+        Map<String, SmppProperties.Operator> operators = new HashMap<>();
+        SmppProperties.Operator wide = new SmppProperties.Operator();
+        wide.setPrefixes(List.of("93-7"));
+        SmppProperties.Session wideSession = new SmppProperties.Session();
+        wideSession.setUuId("awcc-primary");
+        wide.setSessions(List.of(wideSession));
+        operators.put("awcc", wide);
+
+        SmppProperties.Operator specific = new SmppProperties.Operator();
+        specific.setPrefixes(List.of("93-79"));
+        SmppProperties.Session specificSession = new SmppProperties.Session();
+        specificSession.setUuId("roshan-primary");
+        specific.setSessions(List.of(specificSession));
+        operators.put("roshan", specific);
+        smppProperties.setOperators(operators);
+
+        router.init();
+
+        // Then: the longest prefix wins regardless of map iteration order
+        assertEquals("roshan", router.resolve("+93791234567")[0]);
+        assertEquals("awcc", router.resolve("+93701234567")[0]);
+        assertNull(router.resolve("+92301234567"));
+        assertNull(router.resolve("+"));
+        assertEquals(2, router.getRoutingStats().get("totalPrefixes"));
+    }
+
+    private SmppProperties.Operator operatorWithBinds(String prefix, String uuId, int sessionCount) {
+        SmppProperties.Operator operator = new SmppProperties.Operator();
+        operator.setPrefixes(List.of(prefix));
+        SmppProperties.Session session = new SmppProperties.Session();
+        session.setUuId(uuId);
+        session.setSessionCount(sessionCount);
+        operator.setSessions(List.of(session));
+        return operator;
+    }
+
+    /**
+     * Load provider whose load is the number of messages routed to each session so far
+     */
+    private static class CountingLoadProvider implements SessionLoadProvider {
+        final Set<String> down = new HashSet<>();
+        final Map<String, Integer> routed = new HashMap<>();
+
+        @Override
+        public boolean isAvailable(String sessionId) {
+            return !down.contains(sessionId);
+        }
+
+        @Override
+        public double loadOf(String sessionId) {
+            return routed.getOrDefault(sessionId, 0);
+        }
+    }
+
+    @Test
+    void testLoadAwareSelectionSkipsUnboundSessions() {
+        smppProperties.setOperators(Map.of("awcc", operatorWithBinds("93-70", "awcc-primary", 4)));
+        CountingLoadProvider load = new CountingLoadProvider();
+        load.down.add("awcc-primary-2");
+        load.down.add("awcc-primary-3");
+        router = new OperatorRouter(smppProperties, null, load);
+        router.init();
+
+        for (int i = 0; i < 1000; i++) {
+            String sessionId = router.resolve("+93701234567")[1];
+            assertFalse(load.down.contains(sessionId), "routed to unbound session " + sessionId);
+            load.routed.merge(sessionId, 1, Integer::sum);
+        }
+
+        // power of two choices keeps the two bound replicas within one message of each other
+        int first = load.routed.get("awcc-primary-1");
+        int fourth = load.routed.get("awcc-primary-4");
+        assertEquals(1000, first + fourth);
+        assertTrue(Math.abs(first - fourth) <= 1, "unbalanced: " + load.routed);
+    }
+
+    @Test
+    void testLoadAwareSelectionFallsBackToRoundRobinWhenAllDown() {
+        smppProperties.setOperators(Map.of("mtn", operatorWithBinds("93-77", "mtn-primary", 2)));
+        CountingLoadProvider load = new CountingLoadProvider();
+        load.down.add("mtn-primary-1");
+        load.down.add("mtn-primary-2");
+        router = new OperatorRouter(smppProperties, null, load);
+        router.init();
+
+        assertEquals("mtn-primary-1", router.resolve("+93770000001")[1]);
+        assertEquals("mtn-primary-2", router.resolve("+93770000002")[1]);
+
+        load.down.remove("mtn-primary-2");
+        for (int i = 0; i < 20; i++) {
+            assertEquals("mtn-primary-2", router.resolve("+93770000003")[1]);
+        }
+    }
+
+    @Test
+    void testLateBindingLeavesSessionUnassigned() {
+        smppProperties.setOperators(Map.of("mtn", operatorWithBinds("93-77", "mtn-primary", 3)));
+        smppProperties.getDispatch().setLateBinding(true);
+        router.init();
+
+        String[] route = router.resolve("+93770000001");
+
+        assertEquals("mtn", route[0]);
+        assertNull(route[1]);
+    }
 }
@@ -0,0 +1,68 @@
+package com.cascade.smppmls.router;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test cases for the longest-prefix-match digit trie
+ */
+class PrefixTrieTest {
+
+    @Test
+    void testLongestMatchWins() {
+        PrefixTrie.Builder builder = PrefixTrie.builder();
+        builder.put("93", "country");
+        builder.put("937", "mobile");
+        builder.put("9379", "roshan");
+        PrefixTrie trie = builder.build();
+
+        assertEquals("roshan", trie.longestMatch("+93791234567"));
+        assertEquals("mobile", trie.longestMatch("+93771234567"));
+        assertEquals("country", trie.longestMatch("+93201234567"));
+        assertEquals("country", trie.longestMatch("93"));
+        assertNull(trie.longestMatch("9"));
+        assertNull(trie.longestMatch("+92301234567"));
+        assertNull(trie.longestMatch(null));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void testNonDigitsAreSkipped() {
+        PrefixTrie.Builder builder = PrefixTrie.builder();
+        builder.put("9379", "roshan");
+        PrefixTrie trie = builder.build();
+
+        assertEquals("roshan", trie.longestMatch("+93 79-123 4567"));
+    }
+
+    @Test
+    void testDuplicatePrefixKeepsFirstValue() {
+        PrefixTrie.Builder builder = PrefixTrie.builder();
+        assertTrue(builder.put("9379", "roshan"));
+        assertFalse(builder.put("9379", "awcc"));
+        PrefixTrie trie = builder.build();
+
+        assertEquals("roshan", trie.longestMatch("93791234567"));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    void testThousandsOfPrefixesGrowTheTrie() {
+        PrefixTrie.Builder builder = PrefixTrie.builder();
+        for (int i = 0; i < 5000; i++) {
+            builder.put("93" + String.format("%04d", i), "op" + (i % 7));
+        }
+        PrefixTrie trie = builder.build();
+
+        assertEquals(5000, trie.size());
+        assertEquals("op" + (1234 % 7), trie.longestMatch("+9312345678"));
+        assertEquals("op" + (4999 % 7), trie.longestMatch("+9349991111"));
+    }
+
+    @Test
+    void testRejectsNonDigitPrefix() {
+        assertThrows(IllegalArgumentException.class, () -> PrefixTrie.builder().put("93-79", "x"));
+        assertThrows(IllegalArgumentException.class, () -> PrefixTrie.builder().put("", "x"));
+    }
+}
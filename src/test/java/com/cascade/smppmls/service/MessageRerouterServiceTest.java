@@ -6,41 +6,51 @@ import static org.mockito.Mockito.*;
 
 import java.util.*;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
 
-import com.cascade.smppmls.entity.SmsOutboundEntity;
-import com.cascade.smppmls.repository.SmsOutboundRepository;
+import com.cascade.smppmls.repository.SmsOutboundClaimRepository;
 import com.cascade.smppmls.router.OperatorRouter;
+import com.cascade.smppmls.smpp.DispatchQueueRegistry;
+import com.cascade.smppmls.smpp.JsmppSessionManager.SessionState;
+import com.cascade.smppmls.smpp.SessionStateChangedEvent;
 import com.cascade.smppmls.smpp.SmppSessionManager;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 /**
  * Test cases for MessageRerouterService
  */
 @ExtendWith(MockitoExtension.class)
 class MessageRerouterServiceTest {
 
-    @Mock
-    private SmsOutboundRepository outboundRepository;
-
     @Mock
     private SmppSessionManager sessionManager;
 
     @Mock
     private OperatorRouter operatorRouter;
 
+    @Mock
+    private DispatchQueueRegistry dispatchQueues;
+
+    @Mock
+    private SmsOutboundClaimRepository claimRepository;
+
     private MessageRerouterService rerouterService;
 
     @BeforeEach
     void setUp() {
-        rerouterService = new MessageRerouterService(outboundRepository, sessionManager, operatorRouter);
+        rerouterService = new MessageRerouterService(sessionManager, operatorRouter, dispatchQueues, claimRepository,
+            new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        rerouterService.shutdown();
     }
 
     @Test
@@ -50,34 +60,28 @@ class MessageRerouterServiceTest {
         sessionHealth.put("awcc-primary-1", true);
         sessionHealth.put("awcc-primary-2", true);
         sessionHealth.put("awcc-primary-3", true);
-        
+
         when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
-        
+
         // When
         rerouterService.rerouteStoppedSessionMessages();
-        
-        // Then: No repository queries should be made
-        verify(outboundRepository, never()).findByStatusAndSessionId(anyString(), anyString(), any(Pageable.class));
-        verify(outboundRepository, never()).saveAll(anyList());
+
+        // Then: No rows should be moved
+        verify(claimRepository, never()).reassignQueued(anyString(), anyList());
     }
 
     @Test
-    void testStoppedSessionWithNoQueuedMessages() {
-        // Given: One stopped session with no queued messages
-        Map<String, Boolean> sessionHealth = new HashMap<>();
-        sessionHealth.put("awcc-primary-1", true);
-        sessionHealth.put("awcc-primary-2", false); // Stopped
-        sessionHealth.put("awcc-primary-3", true);
-        
-        when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
-        when(outboundRepository.findByStatusAndSessionId(eq("QUEUED"), eq("awcc-primary-2"), any(Pageable.class)))
-            .thenReturn(Page.empty());
-        
+    void testLateBindingSkipsRerouting() {
+        // Given: operator-level queues, drained by whichever sessions are bound
+        when(dispatchQueues.isLateBinding()).thenReturn(true);
+
         // When
         rerouterService.rerouteStoppedSessionMessages();
-        
-        // Then: No messages should be saved
-        verify(outboundRepository, never()).saveAll(anyList());
+        rerouterService.onSessionStateChanged(new SessionStateChangedEvent("awcc-primary-1", "awcc", SessionState.CONNECTED, SessionState.RETRYING));
+
+        // Then: nothing is read or moved
+        verify(sessionManager, never()).getSessionHealth();
+        verify(claimRepository, never()).reassignQueued(anyString(), anyList());
     }
 
     @Test
@@ -87,84 +91,34 @@ class MessageRerouterServiceTest {
         sessionHealth.put("awcc-primary-1", true);
         sessionHealth.put("awcc-primary-2", false); // Stopped
         sessionHealth.put("awcc-primary-3", true);
-        
-        // Create queued messages
-        List<SmsOutboundEntity> queuedMessages = new ArrayList<>();
-        for (int i = 0; i < 10; i++) {
-            SmsOutboundEntity msg = new SmsOutboundEntity();
-            msg.setId((long) i);
-            msg.setSessionId("awcc-primary-2");
-            msg.setOperator("awcc");
-            msg.setStatus("QUEUED");
-            queuedMessages.add(msg);
-        }
-        
+
         when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
-        when(outboundRepository.findByStatusAndSessionId(eq("QUEUED"), eq("awcc-primary-2"), any(Pageable.class)))
-            .thenReturn(new PageImpl<>(queuedMessages));
+        when(operatorRouter.getOperatorForSession("awcc-primary-2")).thenReturn("awcc");
         when(operatorRouter.getSessionsForOperator("awcc"))
             .thenReturn(List.of("awcc-primary-1", "awcc-primary-2", "awcc-primary-3"));
-        
+        when(claimRepository.reassignQueued(eq("awcc-primary-2"), anyList())).thenReturn(10);
+
         // When
         rerouterService.rerouteStoppedSessionMessages();
-        
-        // Then: Messages should be reassigned
-        ArgumentCaptor<List<SmsOutboundEntity>> captor = ArgumentCaptor.forClass(List.class);
-        verify(outboundRepository).saveAll(captor.capture());
-        
-        List<SmsOutboundEntity> savedMessages = captor.getValue();
-        assertEquals(10, savedMessages.size());
-        
-        // Verify messages are distributed to active sessions only
-        for (SmsOutboundEntity msg : savedMessages) {
-            assertTrue(msg.getSessionId().equals("awcc-primary-1") || 
-                      msg.getSessionId().equals("awcc-primary-3"));
-            assertNotEquals("awcc-primary-2", msg.getSessionId()); // Not reassigned to stopped session
-        }
+
+        // Then: one set-based move to the active sessions only, in memory as well
+        List<String> targets = List.of("awcc-primary-1", "awcc-primary-3");
+        verify(claimRepository).reassignQueued("awcc-primary-2", targets);
+        verify(dispatchQueues).redistribute("awcc-primary-2", targets);
     }
 
     @Test
-    void testRoundRobinDistribution() {
-        // Given: Stopped session with 6 messages, 2 active sessions
-        Map<String, Boolean> sessionHealth = new HashMap<>();
-        sessionHealth.put("mtn-primary-1", true);
-        sessionHealth.put("mtn-primary-2", false); // Stopped
-        sessionHealth.put("mtn-primary-3", true);
-        
-        List<SmsOutboundEntity> queuedMessages = new ArrayList<>();
-        for (int i = 0; i < 6; i++) {
-            SmsOutboundEntity msg = new SmsOutboundEntity();
-            msg.setId((long) i);
-            msg.setSessionId("mtn-primary-2");
-            msg.setOperator("mtn");
-            msg.setStatus("QUEUED");
-            queuedMessages.add(msg);
-        }
-        
-        when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
-        when(outboundRepository.findByStatusAndSessionId(eq("QUEUED"), eq("mtn-primary-2"), any(Pageable.class)))
-            .thenReturn(new PageImpl<>(queuedMessages));
-        when(operatorRouter.getSessionsForOperator("mtn"))
-            .thenReturn(List.of("mtn-primary-1", "mtn-primary-2", "mtn-primary-3"));
-        
-        // When
-        rerouterService.rerouteStoppedSessionMessages();
-        
-        // Then: Messages should be evenly distributed
-        ArgumentCaptor<List<SmsOutboundEntity>> captor = ArgumentCaptor.forClass(List.class);
-        verify(outboundRepository).saveAll(captor.capture());
-        
-        List<SmsOutboundEntity> savedMessages = captor.getValue();
-        
-        // Count messages per session
-        Map<String, Long> distribution = new HashMap<>();
-        for (SmsOutboundEntity msg : savedMessages) {
-            distribution.merge(msg.getSessionId(), 1L, Long::sum);
+    void testSpreadIsEvenAcrossTargets() {
+        // Given: 6 consecutive ids moved to 2 active sessions
+        List<String> targets = List.of("mtn-primary-1", "mtn-primary-3");
+        Map<String, Integer> distribution = new HashMap<>();
+        for (long id = 100; id < 106; id++) {
+            distribution.merge(SmsOutboundClaimRepository.targetFor(id, targets), 1, Integer::sum);
         }
-        
-        // Should be 3 messages each (6 messages / 2 active sessions)
-        assertEquals(3L, distribution.get("mtn-primary-1"));
-        assertEquals(3L, distribution.get("mtn-primary-3"));
+
+        // Then: 3 messages each
+        assertEquals(3, distribution.get("mtn-primary-1"));
+        assertEquals(3, distribution.get("mtn-primary-3"));
     }
 
     @Test
@@ -172,101 +126,99 @@ class MessageRerouterServiceTest {
         // Given: All sessions for operator are stopped
         Map<String, Boolean> sessionHealth = new HashMap<>();
         sessionHealth.put("awcc-primary-1", false);
-        sessionHealth.put("awcc-primary-2", false); // Stopped with messages
+        sessionHealth.put("awcc-primary-2", false);
         sessionHealth.put("awcc-primary-3", false);
-        
-        List<SmsOutboundEntity> queuedMessages = new ArrayList<>();
-        SmsOutboundEntity msg = new SmsOutboundEntity();
-        msg.setId(1L);
-        msg.setSessionId("awcc-primary-2");
-        msg.setOperator("awcc");
-        msg.setStatus("QUEUED");
-        queuedMessages.add(msg);
-        
+
         when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
-        when(outboundRepository.findByStatusAndSessionId(eq("QUEUED"), eq("awcc-primary-2"), any(Pageable.class)))
-            .thenReturn(new PageImpl<>(queuedMessages));
+        when(operatorRouter.getOperatorForSession(anyString())).thenReturn("awcc");
         when(operatorRouter.getSessionsForOperator("awcc"))
             .thenReturn(List.of("awcc-primary-1", "awcc-primary-2", "awcc-primary-3"));
-        
+
         // When
         rerouterService.rerouteStoppedSessionMessages();
-        
-        // Then: No messages should be saved (no active sessions to reroute to)
-        verify(outboundRepository, never()).saveAll(anyList());
+
+        // Then: Nothing is moved (no active sessions to reroute to)
+        verify(claimRepository, never()).reassignQueued(anyString(), anyList());
     }
 
     @Test
-    void testMessagesWithUnknownOperatorSkipped() {
-        // Given: Messages with null operator
+    void testSessionWithUnknownOperatorSkipped() {
+        // Given: a stopped session that is not in the routing configuration
         Map<String, Boolean> sessionHealth = new HashMap<>();
         sessionHealth.put("test-session-1", true);
         sessionHealth.put("test-session-2", false); // Stopped
-        
-        List<SmsOutboundEntity> queuedMessages = new ArrayList<>();
-        SmsOutboundEntity msg1 = new SmsOutboundEntity();
-        msg1.setId(1L);
-        msg1.setSessionId("test-session-2");
-        msg1.setOperator(null); // Unknown operator
-        msg1.setStatus("QUEUED");
-        queuedMessages.add(msg1);
-        
+
         when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
-        when(outboundRepository.findByStatusAndSessionId(eq("QUEUED"), eq("test-session-2"), any(Pageable.class)))
-            .thenReturn(new PageImpl<>(queuedMessages));
-        
+
         // When
         rerouterService.rerouteStoppedSessionMessages();
-        
-        // Then: No messages should be saved (unknown operator)
-        verify(outboundRepository, never()).saveAll(anyList());
+
+        // Then: Nothing is moved (unknown operator)
+        verify(claimRepository, never()).reassignQueued(anyString(), anyList());
     }
 
     @Test
     void testMultipleStoppedSessions() {
-        // Given: Two stopped sessions with messages
+        // Given: Two stopped sessions of different operators
         Map<String, Boolean> sessionHealth = new HashMap<>();
         sessionHealth.put("awcc-primary-1", true);
         sessionHealth.put("awcc-primary-2", false); // Stopped
         sessionHealth.put("mtn-primary-1", true);
         sessionHealth.put("mtn-primary-2", false); // Stopped
-        
-        // AWCC messages
-        List<SmsOutboundEntity> awccMessages = new ArrayList<>();
-        for (int i = 0; i < 5; i++) {
-            SmsOutboundEntity msg = new SmsOutboundEntity();
-            msg.setId((long) i);
-            msg.setSessionId("awcc-primary-2");
-            msg.setOperator("awcc");
-            msg.setStatus("QUEUED");
-            awccMessages.add(msg);
-        }
-        
-        // MTN messages
-        List<SmsOutboundEntity> mtnMessages = new ArrayList<>();
-        for (int i = 5; i < 10; i++) {
-            SmsOutboundEntity msg = new SmsOutboundEntity();
-            msg.setId((long) i);
-            msg.setSessionId("mtn-primary-2");
-            msg.setOperator("mtn");
-            msg.setStatus("QUEUED");
-            mtnMessages.add(msg);
-        }
-        
+
         when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
-        when(outboundRepository.findByStatusAndSessionId(eq("QUEUED"), eq("awcc-primary-2"), any(Pageable.class)))
-            .thenReturn(new PageImpl<>(awccMessages));
-        when(outboundRepository.findByStatusAndSessionId(eq("QUEUED"), eq("mtn-primary-2"), any(Pageable.class)))
-            .thenReturn(new PageImpl<>(mtnMessages));
+        when(operatorRouter.getOperatorForSession("awcc-primary-2")).thenReturn("awcc");
+        when(operatorRouter.getOperatorForSession("mtn-primary-2")).thenReturn("mtn");
         when(operatorRouter.getSessionsForOperator("awcc"))
             .thenReturn(List.of("awcc-primary-1", "awcc-primary-2"));
         when(operatorRouter.getSessionsForOperator("mtn"))
             .thenReturn(List.of("mtn-primary-1", "mtn-primary-2"));
-        
+
         // When
         rerouterService.rerouteStoppedSessionMessages();
-        
-        // Then: Both sets of messages should be rerouted
-        verify(outboundRepository, times(2)).saveAll(anyList());
+
+        // Then: Both sessions are drained
+        verify(claimRepository).reassignQueued("awcc-primary-2", List.of("awcc-primary-1"));
+        verify(claimRepository).reassignQueued("mtn-primary-2", List.of("mtn-primary-1"));
+    }
+
+    @Test
+    void testSessionDownEventReroutesImmediately() {
+        // Given: a bind of awcc just dropped
+        Map<String, Boolean> sessionHealth = Map.of("awcc-primary-1", true, "awcc-primary-2", false);
+        when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
+        when(operatorRouter.getSessionsForOperator("awcc")).thenReturn(List.of("awcc-primary-1", "awcc-primary-2"));
+
+        // When
+        rerouterService.onSessionStateChanged(
+            new SessionStateChangedEvent("awcc-primary-2", "awcc", SessionState.CONNECTED, SessionState.RETRYING));
+
+        // Then
+        verify(claimRepository, timeout(5000)).reassignQueued("awcc-primary-2", List.of("awcc-primary-1"));
+    }
+
+    @Test
+    void testSessionUpEventTakesOverStrandedSiblings() {
+        // Given: awcc-primary-1 just bound while its sibling is still down
+        Map<String, Boolean> sessionHealth = Map.of("awcc-primary-1", true, "awcc-primary-2", false);
+        when(sessionManager.getSessionHealth()).thenReturn(sessionHealth);
+        when(operatorRouter.getSessionsForOperator("awcc")).thenReturn(List.of("awcc-primary-1", "awcc-primary-2"));
+
+        // When
+        rerouterService.onSessionStateChanged(
+            new SessionStateChangedEvent("awcc-primary-1", "awcc", SessionState.STARTING, SessionState.CONNECTED));
+
+        // Then
+        verify(claimRepository, timeout(5000)).reassignQueued("awcc-primary-2", List.of("awcc-primary-1"));
+    }
+
+    @Test
+    void testIntermediateStatesAreIgnored() {
+        // When: a session that never bound retries again
+        rerouterService.onSessionStateChanged(
+            new SessionStateChangedEvent("awcc-primary-1", "awcc", SessionState.STARTING, SessionState.RETRYING));
+
+        // Then
+        verify(sessionManager, never()).getSessionHealth();
     }
 }
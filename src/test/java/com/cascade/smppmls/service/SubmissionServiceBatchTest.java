@@ -0,0 +1,142 @@
+package com.cascade.smppmls.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cascade.smppmls.api.BatchSubmitResponse;
+import com.cascade.smppmls.api.SubmitRequest;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+import com.cascade.smppmls.repository.SmsOutboundHistoryRepository;
+import com.cascade.smppmls.repository.SmsOutboundRepository;
+import com.cascade.smppmls.router.OperatorRouter;
+import com.cascade.smppmls.smpp.DispatchQueueRegistry;
+
+/**
+ * Test cases for SubmissionService batch submit
+ */
+@ExtendWith(MockitoExtension.class)
+class SubmissionServiceBatchTest {
+
+    @Mock
+    private SmsOutboundRepository outboundRepository;
+
+    @Mock
+    private SmsOutboundHistoryRepository historyRepository;
+
+    @Mock
+    private OperatorRouter router;
+
+    @Mock
+    private DispatchQueueRegistry dispatchQueues;
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private SubmissionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SubmissionService(outboundRepository, historyRepository, router, dispatchQueues, validator);
+        lenient().when(router.resolve(anyString())).thenReturn(new String[] {"AWCC", "awcc-primary-1"});
+        lenient().when(outboundRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<SmsOutboundEntity> rows = inv.getArgument(0);
+            long id = 100;
+            for (SmsOutboundEntity e : rows) e.setId(id++);
+            return new ArrayList<>(rows);
+        });
+    }
+
+    private static SubmitRequest req(String msisdn, String clientMsgId) {
+        SubmitRequest r = new SubmitRequest();
+        r.setMsisdn(msisdn);
+        r.setMessage("hello");
+        r.setPriority("NORMAL");
+        r.setClientMsgId(clientMsgId);
+        return r;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testValidItemsArePersistedInOneSaveAll() {
+        BatchSubmitResponse resp = service.submitBatch(List.of(req("0701234567", null), req("0791234567", null)));
+
+        assertEquals(2, resp.getAccepted());
+        assertEquals(0, resp.getRejected());
+        ArgumentCaptor<List<SmsOutboundEntity>> saved = ArgumentCaptor.forClass(List.class);
+        verify(outboundRepository, times(1)).saveAll(saved.capture());
+        assertEquals("+93701234567", saved.getValue().get(0).getMsisdn());
+        assertEquals("awcc-primary-1", resp.getResults().get(1).getSessionId());
+        verify(dispatchQueues, times(2)).enqueue(any());
+    }
+
+    @Test
+    void testInvalidItemsAreRejectedIndividually() {
+        SubmitRequest badPriority = req("0701234567", null);
+        badPriority.setPriority("URGENT");
+
+        BatchSubmitResponse resp = service.submitBatch(List.of(req("0701234567", null), req("abc", null), badPriority));
+
+        assertEquals(1, resp.getAccepted());
+        assertEquals(2, resp.getRejected());
+        assertEquals("QUEUED", resp.getResults().get(0).getStatus());
+        assertEquals("REJECTED", resp.getResults().get(1).getStatus());
+        assertEquals("Invalid msisdn", resp.getResults().get(1).getError());
+        assertEquals("REJECTED", resp.getResults().get(2).getStatus());
+        assertTrue(resp.getResults().get(2).getError().startsWith("priority"));
+    }
+
+    @Test
+    void testClientMsgIdIsIdempotentAcrossAndWithinBatch() {
+        SmsOutboundEntity existing = SmsOutboundEntity.builder()
+            .id(7L).clientMsgId("c-1").requestId("r-1").status("SENT").smscMsgId("smsc-7").build();
+        when(outboundRepository.findByClientMsgIdIn(anyCollection())).thenReturn(List.of(existing));
+
+        BatchSubmitResponse resp = service.submitBatch(List.of(
+            req("0701234567", "c-1"), req("0701234567", "c-2"), req("0701234567", "c-2")));
+
+        assertEquals(3, resp.getAccepted());
+        assertEquals("smsc-7", resp.getResults().get(0).getMessageId());
+        assertEquals("SENT", resp.getResults().get(0).getStatus());
+        assertEquals(resp.getResults().get(1).getMessageId(), resp.getResults().get(2).getMessageId());
+        verify(dispatchQueues, times(1)).enqueue(any());
+    }
+
+    @Test
+    void testArchivedClientMsgIdIsIdempotent() {
+        SmsOutboundEntity archived = SmsOutboundEntity.builder()
+            .id(7L).clientMsgId("c-1").status("DELIVERED").smscMsgId("smsc-7").archivedAt(Instant.now()).build();
+        when(historyRepository.findByClientMsgIdIn(List.of("c-1"))).thenReturn(List.of(archived));
+
+        BatchSubmitResponse resp = service.submitBatch(List.of(req("0701234567", "c-1")));
+
+        assertEquals("smsc-7", resp.getResults().get(0).getMessageId());
+        assertEquals("DELIVERED", resp.getResults().get(0).getStatus());
+        // archived rows are read-only, even without a request id
+        verify(outboundRepository, never()).saveAll(anyList());
+        verifyNoInteractions(dispatchQueues);
+    }
+
+    @Test
+    void testBatchAboveMaximumIsRefused() {
+        ReflectionTestUtils.setField(service, "maxBatchSize", 2);
+        List<SubmitRequest> batch = List.of(req("0701234567", null), req("0701234567", null), req("0701234567", null));
+
+        assertThrows(IllegalArgumentException.class, () -> service.submitBatch(batch));
+        verifyNoInteractions(outboundRepository);
+    }
+}
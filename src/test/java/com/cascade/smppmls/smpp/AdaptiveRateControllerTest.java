@@ -0,0 +1,92 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cascade.smppmls.config.SmppProperties;
+
+/**
+ * Test cases for the AIMD per-session rate controller
+ */
+class AdaptiveRateControllerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private final AtomicLong lastRate = new AtomicLong(-1);
+    private SmppProperties.Adaptive cfg;
+
+    @BeforeEach
+    void setUp() {
+        cfg = new SmppProperties.Adaptive();
+    }
+
+    private AdaptiveRateController controller(double tps) {
+        return new AdaptiveRateController(tps, cfg, rate -> lastRate.set(Math.round(rate)), clock::get);
+    }
+
+    @Test
+    void testThrottleHalvesRateOncePerCooldown() {
+        AdaptiveRateController controller = controller(200);
+
+        controller.onThrottle();
+        controller.onThrottle(); // within cooldown, ignored
+
+        assertEquals(100.0, controller.getEffectiveTps());
+        assertEquals(100, lastRate.get());
+        assertEquals(2, controller.getThrottleCount());
+
+        clock.addAndGet(1000 * MS);
+        controller.onThrottle();
+        assertEquals(50.0, controller.getEffectiveTps());
+    }
+
+    @Test
+    void testRateNeverDropsBelowFloor() {
+        AdaptiveRateController controller = controller(100);
+        for (int i = 0; i < 20; i++) {
+            controller.onThrottle();
+            clock.addAndGet(1000 * MS);
+        }
+        assertEquals(10.0, controller.getEffectiveTps());
+    }
+
+    @Test
+    void testProbesBackUpToCeiling() {
+        AdaptiveRateController controller = controller(200);
+        controller.onThrottle(); // 100
+
+        for (int i = 0; i < 30; i++) {
+            clock.addAndGet(1000 * MS);
+            controller.tick();
+        }
+        // +10 TPS per probe interval, capped at the configured ceiling
+        assertEquals(200.0, controller.getEffectiveTps());
+    }
+
+    @Test
+    void testHighLatencyBacksOff() {
+        AdaptiveRateController controller = controller(100);
+        controller.onResponse(5000);
+        assertEquals(90.0, controller.getEffectiveTps(), 0.001);
+
+        // no probing while latency stays above threshold
+        clock.addAndGet(5000 * MS);
+        controller.tick();
+        assertEquals(90.0, controller.getEffectiveTps(), 0.001);
+    }
+
+    @Test
+    void testDisabledControllerKeepsConfiguredRate() {
+        cfg.setEnabled(false);
+        AdaptiveRateController controller = controller(150);
+        controller.onThrottle();
+        assertEquals(150.0, controller.getEffectiveTps());
+        assertTrue(AdaptiveRateController.isThrottle(0x58));
+        assertFalse(AdaptiveRateController.isThrottle(0x0A));
+    }
+}
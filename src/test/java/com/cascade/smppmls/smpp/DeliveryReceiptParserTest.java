@@ -0,0 +1,166 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test cases for the delivery receipt text parser
+ */
+class DeliveryReceiptParserTest {
+
+    private final DeliveryReceiptFields fields = new DeliveryReceiptFields();
+
+    private boolean parse(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        return DeliveryReceiptParser.parse(bytes, 0, bytes.length, fields);
+    }
+
+    @Test
+    void testStandardReceipt() {
+        assertTrue(parse("id:0123456789 sub:001 dlvrd:001 submit date:2410161530 done date:2410161531 stat:DELIVRD err:000 text:Hello world"));
+
+        assertEquals("0123456789", fields.id());
+        assertEquals(1, fields.submitted());
+        assertEquals(1, fields.delivered());
+        assertEquals(2410161530L, fields.submitDate());
+        assertEquals(2410161531L, fields.doneDate());
+        assertEquals(ReceiptState.DELIVERED, fields.state());
+        assertEquals("DELIVRD err:000", fields.statusText());
+        assertEquals(0, fields.error());
+        assertEquals("Hello world", fields.text());
+    }
+
+    @Test
+    void testKeysAreCaseInsensitiveAndUnordered() {
+        assertTrue(parse("Stat:undeliv Err:034 ID:5F2A9C01 Submit Date:241016153012"));
+
+        assertEquals("5F2A9C01", fields.id());
+        assertEquals(ReceiptState.UNDELIVERABLE, fields.state());
+        assertEquals("undeliv err:034", fields.statusText());
+        assertEquals(34, fields.error());
+        assertEquals(241016153012L, fields.submitDate());
+        assertEquals(-1, fields.submitted());
+        assertNull(fields.text());
+    }
+
+    @Test
+    void testEveryStatToken() {
+        for (ReceiptState state : ReceiptState.values()) {
+            String stat = switch (state) {
+                case DELIVERED -> "DELIVRD";
+                case UNDELIVERABLE -> "UNDELIV";
+                case ACCEPTED -> "ACCEPTD";
+                case REJECTED -> "REJECTD";
+                default -> state.name();
+            };
+            assertTrue(parse("id:1 stat:" + stat));
+            assertEquals(state, fields.state(), stat);
+        }
+    }
+
+    @Test
+    void testTextRunsToTheEnd() {
+        assertTrue(parse("id:79 stat:UNDELIV err:001 text:id:fake stat:DELIVRD"));
+
+        assertEquals("79", fields.id());
+        assertEquals(ReceiptState.UNDELIVERABLE, fields.state());
+        assertEquals("id:fake stat:DELIVRD", fields.text());
+    }
+
+    @Test
+    void testUnknownStatKeepsRawToken() {
+        assertTrue(parse("id:80 stat:FAILED err:0x1F"));
+
+        assertNull(fields.state());
+        assertEquals("FAILED err:0x1F", fields.statusText());
+        assertEquals(-1, fields.error());
+    }
+
+    @Test
+    void testMalformedInput() {
+        assertFalse(parse(""));
+        assertFalse(parse("x"));
+        assertFalse(parse("idx:83 stats:DELIVRD error:000"));
+
+        assertTrue(parse("id: stat: err:"));
+        assertFalse(fields.hasId());
+        assertFalse(fields.hasStat());
+        assertNull(fields.statusText());
+
+        assertTrue(parse("id:81 sub:0000000001 dlvrd:1 err:99999999999 done date:9999999999999999999"));
+        assertEquals(-1, fields.submitted());
+        assertEquals(1, fields.delivered());
+        assertEquals(-1, fields.error());
+        assertEquals(-1, fields.doneDate());
+
+        assertFalse(DeliveryReceiptParser.parse(null, 0, 10, fields));
+        assertFalse(DeliveryReceiptParser.parse(new byte[4], 2, 4, fields));
+    }
+
+    @Test
+    void testFieldsAreResetBetweenReceipts() {
+        assertTrue(parse("id:1 stat:DELIVRD err:000 text:a"));
+        assertTrue(parse("id:2"));
+
+        assertEquals("2", fields.id());
+        assertNull(fields.state());
+        assertNull(fields.statusText());
+        assertNull(fields.text());
+    }
+
+    @Test
+    void testParsesInsideALargerBuffer() {
+        byte[] bytes = "XXid:42 stat:EXPIREDYY".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(DeliveryReceiptParser.parse(bytes, 2, bytes.length - 4, fields));
+
+        assertEquals("42", fields.id());
+        assertEquals(ReceiptState.EXPIRED, fields.state());
+    }
+
+    @Test
+    void testCorpusParsesAndSurvivesMutation() throws Exception {
+        List<byte[]> corpus = corpus();
+        assertFalse(corpus.isEmpty());
+
+        Random random = new Random(20241016L);
+        for (byte[] receipt : corpus) {
+            DeliveryReceiptParser.parse(receipt, 0, receipt.length, fields);
+            for (int n = 0; n < 2_000; n++) {
+                byte[] mutated = receipt.clone();
+                int edits = 1 + random.nextInt(4);
+                for (int e = 0; e < edits && mutated.length > 0; e++) {
+                    mutated[random.nextInt(mutated.length)] = (byte) random.nextInt(256);
+                }
+                int offset = mutated.length == 0 ? 0 : random.nextInt(mutated.length);
+                int length = random.nextInt(mutated.length - offset + 1);
+                DeliveryReceiptParser.parse(mutated, 0, mutated.length, fields);
+                DeliveryReceiptParser.parse(mutated, offset, length, fields);
+                fields.id();
+                fields.statusText();
+                fields.text();
+            }
+        }
+    }
+
+    private static List<byte[]> corpus() throws Exception {
+        List<byte[]> receipts = new ArrayList<>();
+        try (InputStream in = DeliveryReceiptParserTest.class.getResourceAsStream("/dlr/receipt-corpus.txt");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) continue;
+                receipts.add(line.getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+        return receipts;
+    }
+}
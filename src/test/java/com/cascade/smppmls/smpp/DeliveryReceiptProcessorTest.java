@@ -0,0 +1,110 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.OptionalParameter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Test cases for deliver_sm receipt extraction from TLVs and receipt text
+ */
+@ExtendWith(MockitoExtension.class)
+class DeliveryReceiptProcessorTest {
+
+    @Mock
+    private DeliveryReceiptWriter receiptWriter;
+
+    private DeliveryReceiptProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        processor = new DeliveryReceiptProcessor(receiptWriter);
+    }
+
+    private static DeliverSm deliverSm(String text, OptionalParameter... tlvs) {
+        DeliverSm deliverSm = new DeliverSm();
+        if (text != null) deliverSm.setShortMessage(text.getBytes(StandardCharsets.US_ASCII));
+        deliverSm.setOptionalParameters(tlvs);
+        return deliverSm;
+    }
+
+    private DeliveryReceiptWriter.DeliveryReceipt process(DeliverSm deliverSm) {
+        when(receiptWriter.enqueue(any())).thenReturn(true);
+        assertEquals(DeliveryReceiptProcessor.Outcome.QUEUED, processor.process("mtn-primary-1", deliverSm));
+        ArgumentCaptor<DeliveryReceiptWriter.DeliveryReceipt> captor = ArgumentCaptor.forClass(DeliveryReceiptWriter.DeliveryReceipt.class);
+        verify(receiptWriter).enqueue(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void testReceiptText() {
+        DeliveryReceiptWriter.DeliveryReceipt receipt = process(deliverSm(
+            "id:0123456789 sub:001 dlvrd:001 submit date:2410161530 done date:2410161531 stat:DELIVRD err:000 text:Hello"));
+
+        assertEquals("mtn-primary-1", receipt.sessionKey());
+        assertEquals("0123456789", receipt.smscMsgId());
+        assertEquals("DELIVERED", receipt.status());
+        assertEquals("DELIVRD err:000", receipt.rawStatus());
+    }
+
+    @Test
+    void testTlvsTakePrecedenceForTheId() {
+        DeliveryReceiptWriter.DeliveryReceipt receipt = process(deliverSm(
+            "id:0123456789 stat:UNDELIV err:034",
+            new OptionalParameter.OctetString(DeliveryReceiptTlvs.RECEIPTED_MESSAGE_ID, "5F2A9C01\0".getBytes(StandardCharsets.US_ASCII)),
+            new OptionalParameter.OctetString(DeliveryReceiptTlvs.NETWORK_ERROR_CODE, new byte[] { 3, 0, 34 })));
+
+        assertEquals("5F2A9C01", receipt.smscMsgId());
+        assertEquals("UNDELIVERABLE", receipt.status());
+        assertEquals("UNDELIV err:034 net:3/34", receipt.rawStatus());
+    }
+
+    @Test
+    void testTlvOnlyReceipt() {
+        DeliveryReceiptWriter.DeliveryReceipt receipt = process(deliverSm(null,
+            new OptionalParameter.OctetString(DeliveryReceiptTlvs.RECEIPTED_MESSAGE_ID, "abc-1\0".getBytes(StandardCharsets.US_ASCII)),
+            new OptionalParameter.Byte(DeliveryReceiptTlvs.MESSAGE_STATE, (byte) ReceiptState.EXPIRED.messageState())));
+
+        assertEquals("abc-1", receipt.smscMsgId());
+        assertEquals("EXPIRED", receipt.status());
+        assertEquals("STATE_3", receipt.rawStatus());
+    }
+
+    @Test
+    void testReceiptTextInMessagePayload() {
+        DeliveryReceiptWriter.DeliveryReceipt receipt = process(deliverSm(null,
+            new OptionalParameter.OctetString(DeliveryReceiptTlvs.MESSAGE_PAYLOAD,
+                "id:77 stat:REJECTD err:011".getBytes(StandardCharsets.US_ASCII))));
+
+        assertEquals("77", receipt.smscMsgId());
+        assertEquals("REJECTED", receipt.status());
+        assertEquals("REJECTD err:011", receipt.rawStatus());
+    }
+
+    @Test
+    void testFieldsOfThePreviousReceiptDoNotLeak() {
+        process(deliverSm("id:1 stat:DELIVRD err:000"));
+
+        assertEquals(DeliveryReceiptProcessor.Outcome.NO_ID, processor.process("mtn-primary-1", deliverSm(null)));
+        assertEquals(DeliveryReceiptProcessor.Outcome.NO_ID, processor.process("mtn-primary-1",
+            deliverSm(null, new OptionalParameter.OctetString(DeliveryReceiptTlvs.RECEIPTED_MESSAGE_ID, new byte[] { 0 }))));
+        verifyNoMoreInteractions(receiptWriter);
+    }
+
+    @Test
+    void testFullBufferIsRejected() {
+        when(receiptWriter.enqueue(any())).thenReturn(false);
+
+        assertEquals(DeliveryReceiptProcessor.Outcome.REJECTED, processor.process("mtn-primary-1", deliverSm("id:1 stat:DELIVRD")));
+    }
+}
@@ -0,0 +1,241 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+import com.cascade.smppmls.repository.SmsDlrRepository;
+import com.cascade.smppmls.repository.SmsOutboundRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases for batched DLR correlation and persistence on H2
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // consumers commit on their own threads
+class DeliveryReceiptWriterTest {
+
+    @Autowired
+    private SmsOutboundRepository outboundRepository;
+
+    @Autowired
+    private SmsDlrRepository dlrRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SmscMsgIdCache correlationCache;
+    private DeliveryReceiptWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        SmppProperties props = new SmppProperties();
+        props.getDlr().setBatchSize(100);
+        props.getDlr().setMaxDelayMs(20);
+        props.getDlr().setConsumers(2);
+        props.getDlr().setParkTtlMs(100);
+        meterRegistry = new SimpleMeterRegistry();
+        correlationCache = new SmscMsgIdCache(props, meterRegistry);
+        writer = new DeliveryReceiptWriter(jdbcTemplate, transactionManager, dlrRepository, correlationCache, props, meterRegistry);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+        dlrRepository.deleteAll();
+        outboundRepository.deleteAll();
+    }
+
+    private SmsOutboundEntity sent(String smscId) {
+        SmsOutboundEntity e = SmsOutboundEntity.builder()
+            .msisdn("+93770000001")
+            .message("test")
+            .priority("NORMAL")
+            .sessionId("mtn-primary-1")
+            .status("SENT")
+            .smscMsgId(smscId)
+            .build();
+        return outboundRepository.saveAndFlush(e);
+    }
+
+    private static DeliveryReceiptWriter.DeliveryReceipt receipt(String smscId, ReceiptState state) {
+        return new DeliveryReceiptWriter.DeliveryReceipt("mtn-primary-1", smscId, state.outboundStatus(),
+            state.name() + " err:000", Instant.now());
+    }
+
+    private String statusOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM sms_outbound WHERE id = ?", String.class, id);
+    }
+
+    @Test
+    void testReceiptUpdatesStatusAndStoresDlr() {
+        SmsOutboundEntity e = sent("smsc-1");
+
+        assertTrue(writer.enqueue(receipt("smsc-1", ReceiptState.DELIVERED)));
+        assertTrue(writer.drain(5000));
+
+        assertEquals("DELIVERED", statusOf(e.getId()));
+        assertEquals(1, dlrRepository.findBySmsOutboundId(e.getId()).size());
+        assertEquals("smsc-1", dlrRepository.findBySmsOutboundId(e.getId()).get(0).getSmscMsgId());
+    }
+
+    @Test
+    void testUnknownSmscIdIsParkedThenDroppedAfterTtl() throws Exception {
+        assertTrue(writer.enqueue(receipt("smsc-unknown", ReceiptState.DELIVERED)));
+        assertTrue(writer.drain(5000));
+        assertEquals(1, writer.parkedReceipts());
+
+        Thread.sleep(150);
+        writer.reconcileExpired();
+
+        assertEquals(0, writer.parkedReceipts());
+        assertEquals(0, dlrRepository.count());
+        assertEquals(1, meterRegistry.get("smpp.dlr.processed").tag("session", "mtn-primary-1").tag("result", "unmatched").counter().count());
+    }
+
+    @Test
+    void testEarlyReceiptIsAppliedWhenTheSubmitResultArrives() {
+        SmsOutboundEntity e = sent(null);
+        assertTrue(writer.enqueue(receipt("smsc-fast", ReceiptState.ENROUTE)));
+        assertTrue(writer.enqueue(receipt("smsc-fast", ReceiptState.DELIVERED)));
+        assertTrue(writer.drain(5000));
+        assertEquals(2, writer.parkedReceipts());
+
+        writer.onSubmitted("smsc-fast", e.getId());
+        assertTrue(writer.drain(5000));
+
+        assertEquals(0, writer.parkedReceipts());
+        assertEquals("DELIVERED", statusOf(e.getId()));
+        assertEquals(2, dlrRepository.findBySmsOutboundId(e.getId()).size());
+    }
+
+    @Test
+    void testReceiptParkedAsTheSubmitResultLandsIsReleased() {
+        SmsOutboundEntity e = sent(null);
+        SmppProperties props = new SmppProperties();
+        props.getDlr().setParkTtlMs(60_000);
+        // the submit result lands between the consumer's lookup and its park
+        AtomicBoolean looked = new AtomicBoolean();
+        SmscMsgIdCache racing = new SmscMsgIdCache(props, meterRegistry) {
+            @Override
+            public long get(String smscMsgId) {
+                if (looked.compareAndSet(false, true)) {
+                    put(smscMsgId, e.getId());
+                    return MISSING;
+                }
+                return super.get(smscMsgId);
+            }
+        };
+        DeliveryReceiptWriter racy = new DeliveryReceiptWriter(jdbcTemplate, transactionManager, dlrRepository, racing, props, meterRegistry);
+        racy.start();
+        try {
+            assertTrue(racy.enqueue(receipt("smsc-race", ReceiptState.DELIVERED)));
+            assertTrue(racy.drain(5000));
+            assertTrue(racy.drain(5000)); // the released receipt went back onto the buffer
+
+            assertEquals(0, racy.parkedReceipts());
+            assertEquals("DELIVERED", statusOf(e.getId()));
+        } finally {
+            racy.shutdown();
+        }
+    }
+
+    @Test
+    void testExpiredReceiptGetsALastLookup() throws Exception {
+        SmsOutboundEntity e = sent(null);
+        assertTrue(writer.enqueue(receipt("smsc-late-row", ReceiptState.DELIVERED)));
+        assertTrue(writer.drain(5000));
+
+        // the submit result reached the row by another path (e.g. written before a restart)
+        jdbcTemplate.update("UPDATE sms_outbound SET smsc_msg_id = 'smsc-late-row' WHERE id = ?", e.getId());
+        Thread.sleep(150);
+        writer.reconcileExpired();
+
+        assertEquals("DELIVERED", statusOf(e.getId()));
+    }
+
+    @Test
+    void testLateIntermediateReceiptDoesNotOverwriteFinalState() {
+        SmsOutboundEntity e = sent("smsc-final");
+        jdbcTemplate.update("UPDATE sms_outbound SET status = 'DELIVERED' WHERE id = ?", e.getId());
+
+        assertTrue(writer.enqueue(receipt("smsc-final", ReceiptState.ENROUTE)));
+        assertTrue(writer.drain(5000));
+
+        assertEquals("DELIVERED", statusOf(e.getId()));
+        assertEquals(1, dlrRepository.findBySmsOutboundId(e.getId()).size());
+    }
+
+    @Test
+    void testManyReceiptsAreAppliedInBatches() {
+        List<SmsOutboundEntity> rows = new ArrayList<>();
+        for (int i = 0; i < 250; i++) rows.add(sent("smsc-" + i));
+        for (int i = 0; i < rows.size(); i++) {
+            assertTrue(writer.enqueue(receipt("smsc-" + i, i % 2 == 0 ? ReceiptState.DELIVERED : ReceiptState.UNDELIVERABLE)));
+        }
+
+        assertTrue(writer.drain(10_000));
+        assertEquals(0, writer.pending());
+        assertEquals(250, dlrRepository.count());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(i % 2 == 0 ? "DELIVERED" : "UNDELIVERABLE", statusOf(rows.get(i).getId()));
+        }
+        assertEquals(250, meterRegistry.get("smpp.dlr.processed").tag("result", "matched").counter().count());
+    }
+
+    @Test
+    void testReceiptsOfOneMessageAreAppliedInOrder() {
+        SmsOutboundEntity e = sent("smsc-ordered");
+
+        assertTrue(writer.enqueue(receipt("smsc-ordered", ReceiptState.ENROUTE)));
+        assertTrue(writer.enqueue(receipt("smsc-ordered", ReceiptState.DELIVERED)));
+        assertTrue(writer.drain(5000));
+
+        assertEquals("DELIVERED", statusOf(e.getId()));
+        assertEquals(2, dlrRepository.findBySmsOutboundId(e.getId()).size());
+    }
+
+    @Test
+    void testCachedIdCorrelatesBeforeTheRowHasItsSmscId() {
+        // submit_sm_resp seen, write-behind not flushed yet
+        SmsOutboundEntity e = sent(null);
+        correlationCache.put("smsc-early", e.getId());
+
+        assertTrue(writer.enqueue(receipt("smsc-early", ReceiptState.DELIVERED)));
+        assertTrue(writer.drain(5000));
+
+        assertEquals("DELIVERED", statusOf(e.getId()));
+        assertEquals(1, meterRegistry.get("smpp.dlr.correlation").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testDatabaseMatchIsCachedForLaterReceipts() {
+        SmsOutboundEntity e = sent("smsc-db");
+
+        assertTrue(writer.enqueue(receipt("smsc-db", ReceiptState.ENROUTE)));
+        assertTrue(writer.drain(5000));
+
+        assertEquals(e.getId().longValue(), correlationCache.get("smsc-db"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+/**
+ * Test cases for the per-session in-memory DispatchQueue
+ */
+class DispatchQueueTest {
+
+    private SmsOutboundEntity message(long id, String priority) {
+        SmsOutboundEntity e = new SmsOutboundEntity();
+        e.setId(id);
+        e.setPriority(priority);
+        e.setStatus("QUEUED");
+        return e;
+    }
+
+    @Test
+    void testLanesAreSeparatedAndFifo() {
+        DispatchQueue queue = new DispatchQueue("mtn-primary-1", 100);
+        queue.offer(message(1, "NORMAL"));
+        queue.offer(message(2, "HIGH"));
+        queue.offer(message(3, "NORMAL"));
+        queue.offer(message(4, "HIGH"));
+
+        assertEquals(2, queue.highDepth());
+        assertEquals(2, queue.normalDepth());
+
+        assertEquals(2L, queue.pollHigh().getId());
+        assertEquals(4L, queue.pollHigh().getId());
+        assertNull(queue.pollHigh());
+        assertEquals(1L, queue.pollNormal().getId());
+        assertEquals(3L, queue.pollNormal().getId());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testDuplicateOfferIsIgnored() {
+        // Given: same row arrives from the API and from rehydration
+        DispatchQueue queue = new DispatchQueue("mtn-primary-1", 100);
+        assertTrue(queue.offer(message(7, "NORMAL")));
+        assertFalse(queue.offer(message(7, "NORMAL")));
+
+        // Then: it is only sent once
+        assertEquals(1, queue.size());
+        assertNotNull(queue.pollNormal());
+        assertNull(queue.pollNormal());
+    }
+
+    @Test
+    void testRemovedEntryIsSkipped() {
+        DispatchQueue queue = new DispatchQueue("awcc-primary-2", 100);
+        queue.offer(message(1, "NORMAL"));
+        queue.offer(message(2, "NORMAL"));
+
+        assertTrue(queue.remove(1L));
+        assertEquals(1, queue.normalDepth());
+        assertEquals(2L, queue.pollNormal().getId());
+        assertNull(queue.pollNormal());
+        assertEquals(0, queue.normalDepth());
+    }
+
+    @Test
+    void testFullQueueSpills() {
+        DispatchQueue queue = new DispatchQueue("roshan-primary", 2);
+        assertTrue(queue.offer(message(1, "NORMAL")));
+        assertTrue(queue.offer(message(2, "HIGH")));
+        assertFalse(queue.offer(message(3, "NORMAL")));
+
+        assertTrue(queue.clearSpilled());
+        assertFalse(queue.clearSpilled());
+        assertEquals(2, queue.size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.config.SmppProperties.RetryCurve;
+import com.cascade.smppmls.config.SmppProperties.RetryRule;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+/**
+ * Test cases for the per-operator, per-command_status retry policy
+ */
+class RetryPolicyTest {
+
+    private static final Instant NOW = Instant.parse("2024-10-16T10:00:00Z");
+    private static final int THROTTLED = AdaptiveRateController.ESME_RTHROTTLED;
+    private static final int SYSERR = 0x00000008;
+    private static final int INVDSTADR = 0x0000000B;
+
+    private static RetryRule rule(RetryCurve curve, Integer maxAttempts, Long baseDelayMs, Long maxDelayMs) {
+        RetryRule rule = new RetryRule();
+        rule.setCurve(curve);
+        rule.setMaxAttempts(maxAttempts);
+        rule.setBaseDelayMs(baseDelayMs);
+        rule.setMaxDelayMs(maxDelayMs);
+        return rule;
+    }
+
+    private static SmsOutboundEntity failed(String operator, int retryCount) {
+        return SmsOutboundEntity.builder().id(1L).operator(operator).retryCount(retryCount).createdAt(NOW.minusSeconds(60)).build();
+    }
+
+    private static SmppProperties properties() {
+        SmppProperties props = new SmppProperties();
+        props.getRetry().setJitterPercentage(0);
+        props.getRetry().setCodes(Map.of("0x00000058", rule(RetryCurve.IMMEDIATE, 20, null, null)));
+
+        SmppProperties.Operator mtn = new SmppProperties.Operator();
+        mtn.setRetry(rule(null, 2, 500L, null));
+        mtn.setRetryCodes(Map.of("8", rule(RetryCurve.EXPONENTIAL, null, 100L, 1000L)));
+        SmppProperties.Operator awcc = new SmppProperties.Operator();
+        props.setOperators(Map.of("mtn", mtn, "awcc", awcc));
+        return props;
+    }
+
+    @Test
+    void testExponentialDefaults() {
+        RetryPolicy policy = new RetryPolicy(properties(), () -> 0.5);
+
+        assertEquals(1000, policy.decide(failed("awcc", 0), SYSERR, NOW).delayMs());
+        assertEquals(4000, policy.decide(failed("awcc", 2), SYSERR, NOW).delayMs());
+        assertEquals(16_000, policy.decide(failed("awcc", 4), SYSERR, NOW).delayMs());
+        assertEquals("max_attempts", policy.decide(failed("awcc", 5), SYSERR, NOW).reason());
+    }
+
+    @Test
+    void testPermanentErrorsFailImmediately() {
+        RetryPolicy policy = new RetryPolicy(properties(), () -> 0.5);
+
+        RetryPolicy.Decision decision = policy.decide(failed("awcc", 0), INVDSTADR, NOW);
+        assertFalse(decision.retry());
+        assertEquals("permanent", decision.reason());
+    }
+
+    @Test
+    void testCodeRuleAppliesToEveryOperator() {
+        RetryPolicy policy = new RetryPolicy(properties(), () -> 0.5);
+
+        // throttling: immediate, 20 attempts, even for mtn whose own default allows 2
+        RetryPolicy.Decision decision = policy.decide(failed("mtn", 10), THROTTLED, NOW);
+        assertTrue(decision.retry());
+        assertEquals(0, decision.delayMs());
+        assertEquals(20, policy.maxAttempts("mtn", THROTTLED));
+        assertEquals(20, policy.maxAttempts("unknown-operator", THROTTLED));
+    }
+
+    @Test
+    void testOperatorRulesInherit() {
+        RetryPolicy policy = new RetryPolicy(properties(), () -> 0.5);
+
+        // mtn default: 2 attempts, base 500 ms
+        assertEquals(500, policy.decide(failed("mtn", 0), RetryPolicy.TRANSPORT_ERROR, NOW).delayMs());
+        assertEquals("max_attempts", policy.decide(failed("mtn", 2), RetryPolicy.TRANSPORT_ERROR, NOW).reason());
+        // mtn ESME_RSYSERR: own curve and delays, attempts from the mtn default
+        assertEquals(200, policy.decide(failed("mtn", 1), SYSERR, NOW).delayMs());
+        assertEquals(2, policy.maxAttempts("mtn", SYSERR));
+        assertEquals(2, policy.maxAttempts("mtn", null));
+    }
+
+    @Test
+    void testDecorrelatedJitterGrowsFromThePreviousGap() {
+        SmppProperties props = properties();
+        props.getRetry().setCurve(RetryCurve.DECORRELATED_JITTER);
+        RetryPolicy policy = new RetryPolicy(props, () -> 1.0);
+
+        // first retry: between base and 3x base
+        assertEquals(3000, policy.decide(failed("awcc", 0), SYSERR, NOW).delayMs());
+        SmsOutboundEntity e = failed("awcc", 1);
+        e.setLastAttemptAt(NOW.minusMillis(4000));
+        assertEquals(12_000, policy.decide(e, SYSERR, NOW).delayMs());
+        e.setLastAttemptAt(NOW.minusSeconds(3600));
+        assertEquals(60_000, policy.decide(e, SYSERR, NOW).delayMs());
+    }
+
+    @Test
+    void testNoRetryPastValidity() {
+        SmppProperties props = properties();
+        props.getRetry().setValidityMs(65_000);
+        RetryPolicy policy = new RetryPolicy(props, () -> 0.5);
+
+        // created 60 s ago: a 1 s backoff fits, an 8 s one ends past the validity
+        assertTrue(policy.decide(failed("awcc", 0), SYSERR, NOW).retry());
+        assertEquals("expired", policy.decide(failed("awcc", 3), SYSERR, NOW).reason());
+    }
+}
@@ -0,0 +1,213 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.config.SmppProperties.RetryRule;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+import com.cascade.smppmls.repository.SmsOutboundClaimRepository;
+import com.cascade.smppmls.repository.SmsOutboundRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases for firing retries from the timing wheel on H2
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the write-behind commits on its own thread
+class RetrySchedulerTest {
+
+    @Autowired
+    private SmsOutboundRepository outboundRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SubmitResultWriter resultWriter;
+    private DispatchQueueRegistry dispatchQueues;
+    private RetryScheduler scheduler;
+    private SmppProperties props;
+
+    @BeforeEach
+    void setUp() {
+        props = new SmppProperties();
+        props.getRetry().setTickMs(10);
+        props.getRetry().setMaxAttempts(3);
+        resultWriter = new SubmitResultWriter(jdbcTemplate, transactionManager, props, meterRegistry);
+        resultWriter.start();
+        dispatchQueues = new DispatchQueueRegistry(outboundRepository, props, meterRegistry);
+        scheduler = new RetryScheduler(outboundRepository, dispatchQueues, new SmsOutboundClaimRepository(jdbcTemplate, transactionManager),
+            resultWriter, new RetryPolicy(props), props, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resultWriter.shutdown();
+        outboundRepository.deleteAll();
+    }
+
+    private SmsOutboundEntity retry(int retryCount, Instant nextRetryAt) {
+        return retry(null, null, retryCount, nextRetryAt);
+    }
+
+    private SmsOutboundEntity retry(String operator, Integer submitSmStatus, int retryCount, Instant nextRetryAt) {
+        SmsOutboundEntity e = SmsOutboundEntity.builder()
+            .operator(operator)
+            .submitSmStatus(submitSmStatus)
+            .msisdn("+93770000001")
+            .message("test")
+            .priority("NORMAL")
+            .sessionId("mtn-primary-1")
+            .status("RETRY")
+            .retryCount(retryCount)
+            .nextRetryAt(nextRetryAt)
+            .build();
+        return outboundRepository.saveAndFlush(e);
+    }
+
+    private String statusOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM sms_outbound WHERE id = ?", String.class, id);
+    }
+
+    @Test
+    void testRehydrateAndFireDueRetries() {
+        Instant now = Instant.now();
+        SmsOutboundEntity due = retry(1, now.minusSeconds(1));
+        SmsOutboundEntity later = retry(1, now.plusSeconds(30));
+        SmsOutboundEntity exhausted = retry(4, now.minusSeconds(1));
+
+        assertEquals(3, scheduler.rehydrate());
+        assertEquals(1, scheduler.fire(now.toEpochMilli() + 100));
+
+        assertEquals("QUEUED", statusOf(due.getId()));
+        assertEquals("RETRY", statusOf(later.getId()));
+        assertEquals("FAILED", statusOf(exhausted.getId()));
+        assertEquals(1, dispatchQueues.queueFor("mtn-primary-1").size());
+        assertEquals(1, scheduler.scheduled());
+        assertEquals(1, meterRegistry.get("smpp.retry.fired").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    void testRetryWrittenBehindIsRequeued() {
+        SmsOutboundEntity e = retry(0, null);
+        jdbcTemplate.update("UPDATE sms_outbound SET status = 'IN_FLIGHT' WHERE id = ?", e.getId());
+
+        // the sender's RETRY transition and the schedule happen together; the row is still IN_FLIGHT
+        e.setRetryCount(1);
+        e.setNextRetryAt(Instant.now());
+        resultWriter.submit(e);
+        assertTrue(scheduler.schedule(e));
+
+        assertEquals(1, scheduler.fire(System.currentTimeMillis() + 100));
+        assertEquals("QUEUED", statusOf(e.getId()));
+    }
+
+    @Test
+    void testRetryStillBufferedIsRearmed() {
+        // flusher not started yet: the barrier times out after one tick
+        SubmitResultWriter stalled = new SubmitResultWriter(jdbcTemplate, transactionManager, props, meterRegistry);
+        RetryScheduler scheduler = new RetryScheduler(outboundRepository, dispatchQueues, new SmsOutboundClaimRepository(jdbcTemplate, transactionManager),
+            stalled, new RetryPolicy(props), props, meterRegistry);
+        SmsOutboundEntity e = retry(0, null);
+        jdbcTemplate.update("UPDATE sms_outbound SET status = 'IN_FLIGHT' WHERE id = ?", e.getId());
+        e.setRetryCount(1);
+        e.setNextRetryAt(Instant.now());
+        stalled.submit(e);
+        assertTrue(scheduler.schedule(e));
+
+        long now = System.currentTimeMillis();
+        assertEquals(0, scheduler.fire(now + 100));
+        assertEquals("IN_FLIGHT", statusOf(e.getId()));
+        assertEquals(1, scheduler.scheduled());
+
+        stalled.start();
+        try {
+            assertTrue(stalled.flush(5000));
+            assertEquals(1, scheduler.fire(now + 1000));
+            assertEquals("QUEUED", statusOf(e.getId()));
+            assertEquals(0, scheduler.scheduled());
+        } finally {
+            stalled.shutdown();
+        }
+    }
+
+    @Test
+    void testRowThatLeftRetryIsSkipped() {
+        Instant now = Instant.now();
+        SmsOutboundEntity e = retry(1, now.minusSeconds(1));
+        scheduler.rehydrate();
+        jdbcTemplate.update("UPDATE sms_outbound SET status = 'DELIVERED' WHERE id = ?", e.getId());
+
+        assertEquals(0, scheduler.fire(now.toEpochMilli() + 100));
+        assertEquals("DELIVERED", statusOf(e.getId()));
+        assertTrue(dispatchQueues.queueFor("mtn-primary-1").isEmpty());
+    }
+
+    @Test
+    void testSweepAdaptsPassSize() {
+        props.getRetry().setBatchSize(2);
+        props.getRetry().setSweepMaxBatchSize(4);
+        scheduler = new RetryScheduler(outboundRepository, dispatchQueues, new SmsOutboundClaimRepository(jdbcTemplate, transactionManager),
+            resultWriter, new RetryPolicy(props), props, meterRegistry);
+        Instant now = Instant.now();
+        for (int i = 0; i < 7; i++) retry(1, now.minusSeconds(120 + i));
+        SmsOutboundEntity exhausted = retry(4, now.minusSeconds(120));
+        SmsOutboundEntity notDue = retry(1, now.minusSeconds(1));
+
+        // not rehydrated: none of the rows is in the wheel
+        assertEquals(7, scheduler.sweep(now.minusSeconds(60)));
+
+        assertEquals("FAILED", statusOf(exhausted.getId()));
+        assertEquals("RETRY", statusOf(notDue.getId()));
+        assertEquals(7, dispatchQueues.queueFor("mtn-primary-1").size());
+        // passes of 2, 4 and 4 rows
+        assertEquals(3, meterRegistry.get("smpp.retry.sweep").timer().count());
+        assertEquals(0, scheduler.sweep(now.minusSeconds(60)));
+    }
+
+    @Test
+    void testExhaustedFollowsOperatorAndCodeRules() {
+        SmppProperties policyProps = new SmppProperties();
+        policyProps.getRetry().setMaxAttempts(3);
+        RetryRule throttled = new RetryRule();
+        throttled.setMaxAttempts(20);
+        policyProps.getRetry().setCodes(Map.of("0x00000058", throttled));
+        RetryRule strict = new RetryRule();
+        strict.setMaxAttempts(1);
+        SmppProperties.Operator mtn = new SmppProperties.Operator();
+        mtn.setRetry(strict);
+        policyProps.setOperators(Map.of("mtn", mtn));
+        scheduler = new RetryScheduler(outboundRepository, dispatchQueues, new SmsOutboundClaimRepository(jdbcTemplate, transactionManager),
+            resultWriter, new RetryPolicy(policyProps), props, meterRegistry);
+
+        Instant due = Instant.now().minusSeconds(120);
+        SmsOutboundEntity mtnExhausted = retry("mtn", 0x00000008, 2, due);
+        SmsOutboundEntity mtnThrottled = retry("mtn", 0x00000058, 10, due);
+        SmsOutboundEntity otherOperator = retry("awcc", null, 2, due);
+        SmsOutboundEntity otherExhausted = retry("awcc", 0x00000008, 4, due);
+
+        assertEquals(2, scheduler.sweep(Instant.now()));
+
+        assertEquals("FAILED", statusOf(mtnExhausted.getId()));
+        assertEquals("QUEUED", statusOf(mtnThrottled.getId()));
+        assertEquals("QUEUED", statusOf(otherOperator.getId()));
+        assertEquals("FAILED", statusOf(otherExhausted.getId()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+
+/**
+ * Test cases for the retry timing wheel
+ */
+class RetryWheelTest {
+
+    private static final long T0 = 1_000_000L;
+
+    private static SmsOutboundEntity message(long id) {
+        return SmsOutboundEntity.builder().id(id).status("RETRY").build();
+    }
+
+    private static List<Long> ids(List<SmsOutboundEntity> messages) {
+        return messages.stream().map(SmsOutboundEntity::getId).sorted().toList();
+    }
+
+    @Test
+    void testFiresAtOrAfterDeadline() {
+        RetryWheel wheel = new RetryWheel(100, 8, 1000, T0);
+        wheel.schedule(message(1), T0 + 250);
+        wheel.schedule(message(2), T0 + 1000);
+
+        assertTrue(wheel.advance(T0 + 200).isEmpty());
+        assertTrue(wheel.advance(T0 + 299).isEmpty());
+        assertEquals(List.of(1L), ids(wheel.advance(T0 + 300)));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(2L), ids(wheel.advance(T0 + 1000)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testDeadlinesBeyondOneRevolution() {
+        // 8 buckets of 100 ms: 5_000 ms out shares a bucket with nearer deadlines
+        RetryWheel wheel = new RetryWheel(100, 8, 1000, T0);
+        wheel.schedule(message(1), T0 + 5_000);
+        wheel.schedule(message(2), T0 + 200);
+
+        for (long now = T0; now < T0 + 5_000; now += 100) {
+            for (SmsOutboundEntity fired : wheel.advance(now)) {
+                assertEquals(2L, fired.getId(), "fired at " + (now - T0));
+            }
+        }
+        assertEquals(List.of(1L), ids(wheel.advance(T0 + 5_000)));
+    }
+
+    @Test
+    void testCatchesUpAfterALongPause() {
+        RetryWheel wheel = new RetryWheel(100, 8, 1000, T0);
+        for (long id = 1; id <= 20; id++) wheel.schedule(message(id), T0 + id * 150);
+
+        assertEquals(20, wheel.advance(T0 + 60_000).size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testRescheduleReplacesAndCancelRemoves() {
+        RetryWheel wheel = new RetryWheel(100, 8, 1000, T0);
+        wheel.schedule(message(1), T0 + 100);
+        wheel.schedule(message(1), T0 + 700);
+        wheel.schedule(message(2), T0 + 100);
+
+        assertTrue(wheel.cancel(2L));
+        assertFalse(wheel.cancel(2L));
+        assertTrue(wheel.advance(T0 + 600).isEmpty());
+        assertEquals(List.of(1L), ids(wheel.advance(T0 + 700)));
+    }
+
+    @Test
+    void testPastDeadlineFiresOnNextTick() {
+        RetryWheel wheel = new RetryWheel(100, 8, 1000, T0);
+        wheel.advance(T0 + 500);
+        wheel.schedule(message(1), T0);
+
+        assertEquals(List.of(1L), ids(wheel.advance(T0 + 600)));
+    }
+
+    @Test
+    void testCapacity() {
+        RetryWheel wheel = new RetryWheel(100, 8, 2, T0);
+
+        assertTrue(wheel.schedule(message(1), T0 + 100));
+        assertTrue(wheel.schedule(message(2), T0 + 100));
+        assertFalse(wheel.schedule(message(3), T0 + 100));
+        assertTrue(wheel.schedule(message(2), T0 + 200)); // reschedule does not count twice
+        assertEquals(2, wheel.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.extra.ProcessRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases for per-bind DLR attribution
+ */
+@ExtendWith(MockitoExtension.class)
+class SessionReceiverListenerTest {
+
+    @Mock
+    private DeliveryReceiptProcessor processor;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private double received(String session, String result) {
+        return meterRegistry.get("smpp.dlr.received").tag("session", session).tag("result", result).counter().count();
+    }
+
+    @Test
+    void testReceiptsAreAttributedToTheirOwnBind() throws Exception {
+        SessionReceiverListener first = new SessionReceiverListener("mtn-primary-1", processor, meterRegistry);
+        SessionReceiverListener second = new SessionReceiverListener("mtn-primary-2", processor, meterRegistry);
+        when(processor.process(anyString(), any())).thenReturn(DeliveryReceiptProcessor.Outcome.QUEUED);
+
+        second.onAcceptDeliverSm(new DeliverSm());
+        second.onAcceptDeliverSm(new DeliverSm());
+        first.onAcceptDeliverSm(new DeliverSm());
+
+        verify(processor, times(1)).process(eq("mtn-primary-1"), any());
+        verify(processor, times(2)).process(eq("mtn-primary-2"), any());
+        assertEquals(1, received("mtn-primary-1", "queued"));
+        assertEquals(2, received("mtn-primary-2", "queued"));
+    }
+
+    @Test
+    void testOutcomesAreCountedPerSession() throws Exception {
+        SessionReceiverListener listener = new SessionReceiverListener("awcc-primary-1", processor, meterRegistry);
+        when(processor.process(eq("awcc-primary-1"), any()))
+            .thenReturn(DeliveryReceiptProcessor.Outcome.QUEUED, DeliveryReceiptProcessor.Outcome.NO_ID);
+
+        listener.onAcceptDeliverSm(new DeliverSm());
+        listener.onAcceptDeliverSm(new DeliverSm());
+
+        assertEquals(1, received("awcc-primary-1", "queued"));
+        assertEquals(1, received("awcc-primary-1", "no_id"));
+    }
+
+    @Test
+    void testFullBufferAsksTheSmscToRedeliver() {
+        SessionReceiverListener listener = new SessionReceiverListener("awcc-primary-1", processor, meterRegistry);
+        when(processor.process(anyString(), any())).thenReturn(DeliveryReceiptProcessor.Outcome.REJECTED);
+
+        ProcessRequestException ex = assertThrows(ProcessRequestException.class, () -> listener.onAcceptDeliverSm(new DeliverSm()));
+        assertEquals(AdaptiveRateController.ESME_RMSGQFUL, ex.getErrorCode());
+        assertEquals(1, received("awcc-primary-1", "rejected"));
+    }
+
+    @Test
+    void testProcessingErrorIsReportedToTheSmsc() {
+        SessionReceiverListener listener = new SessionReceiverListener("awcc-primary-1", processor, meterRegistry);
+        when(processor.process(anyString(), any())).thenThrow(new IllegalStateException("db down"));
+
+        assertThrows(ProcessRequestException.class, () -> listener.onAcceptDeliverSm(new DeliverSm()));
+        assertEquals(1, received("awcc-primary-1", "error"));
+    }
+}
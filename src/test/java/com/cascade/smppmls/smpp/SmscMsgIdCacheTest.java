@@ -0,0 +1,82 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.cascade.smppmls.config.SmppProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases for the smsc_msg_id correlation cache
+ */
+class SmscMsgIdCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private SmscMsgIdCache cache(int size, long ttlMs) {
+        SmppProperties.Dlr config = new SmppProperties.Dlr();
+        config.setCorrelationCacheSize(size);
+        config.setCorrelationTtlMs(ttlMs);
+        return new SmscMsgIdCache(config, meterRegistry, now::get);
+    }
+
+    @Test
+    void testPutGetAndReplace() {
+        SmscMsgIdCache cache = cache(1000, 60_000);
+        cache.put("5f2a9c01", 42L);
+        cache.put("5f2a9c02", 43L);
+        cache.put("5f2a9c01", 44L);
+
+        assertEquals(44L, cache.get("5f2a9c01"));
+        assertEquals(43L, cache.get("5f2a9c02"));
+        assertEquals(SmscMsgIdCache.MISSING, cache.get("5f2a9c03"));
+        assertEquals(SmscMsgIdCache.MISSING, cache.get(null));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testEntriesLiveAtLeastTheTtl() {
+        SmscMsgIdCache cache = cache(1000, 30_000);
+        cache.put("a", 1L);
+
+        // rotations every ttl / 3; the entry survives until its generation is the fourth
+        for (int i = 0; i < 3; i++) {
+            now.addAndGet(10_000);
+            cache.put("filler-" + i, 100L + i);
+            assertEquals(1L, cache.get("a"));
+        }
+        now.addAndGet(10_000);
+        cache.put("filler-3", 103L);
+        assertEquals(SmscMsgIdCache.MISSING, cache.get("a"));
+        assertEquals(103L, cache.get("filler-3"));
+    }
+
+    @Test
+    void testSizeStaysBoundedWhenFull() {
+        SmscMsgIdCache cache = cache(400, 3_600_000);
+        for (int i = 0; i < 10_000; i++) cache.put("id-" + i, i);
+
+        assertTrue(cache.size() <= 400, "size " + cache.size());
+        assertEquals(9_999L, cache.get("id-9999"));
+        assertEquals(SmscMsgIdCache.MISSING, cache.get("id-0"));
+        assertTrue(meterRegistry.get("smpp.dlr.correlation.evicted.early").counter().count() > 0);
+    }
+
+    @Test
+    void testHitRatio() {
+        SmscMsgIdCache cache = cache(1000, 60_000);
+        cache.put("a", 1L);
+        cache.get("a");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(0.75, meterRegistry.get("smpp.dlr.correlation.hit.ratio").gauge().value(), 1e-9);
+        assertEquals(3, meterRegistry.get("smpp.dlr.correlation").tag("result", "hit").counter().count());
+    }
+}
@@ -0,0 +1,131 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cascade.smppmls.config.SmppProperties;
+import com.cascade.smppmls.entity.SmsOutboundEntity;
+import com.cascade.smppmls.repository.SmsOutboundRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test cases for batched write-behind of submit results on H2
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the flusher commits on its own thread
+class SubmitResultWriterTest {
+
+    @Autowired
+    private SmsOutboundRepository outboundRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SubmitResultWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        SmppProperties props = new SmppProperties();
+        props.getWriteBehind().setBatchSize(100);
+        props.getWriteBehind().setMaxDelayMs(20);
+        writer = new SubmitResultWriter(jdbcTemplate, transactionManager, props, new SimpleMeterRegistry());
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+        outboundRepository.deleteAll();
+    }
+
+    private SmsOutboundEntity inFlight() {
+        SmsOutboundEntity e = SmsOutboundEntity.builder()
+            .msisdn("+93770000001")
+            .message("test")
+            .priority("NORMAL")
+            .sessionId("mtn-primary-1")
+            .status("IN_FLIGHT")
+            .leaseOwner("node-a:mtn-primary-1#1")
+            .leaseExpiresAt(Instant.now().plusSeconds(60))
+            .build();
+        return outboundRepository.saveAndFlush(e);
+    }
+
+    private static void markSent(SmsOutboundEntity e, String smscId) {
+        e.setStatus("SENT");
+        e.setSmscMsgId(smscId);
+        e.setSubmitSmStatus(0);
+        e.setSubmitResponseTimeMs(12L);
+        e.setSentAt(Instant.now());
+    }
+
+    @Test
+    void testFlushPersistsResultAndClearsLease() {
+        SmsOutboundEntity e = inFlight();
+        markSent(e, "smsc-1");
+
+        writer.submit(e);
+        assertTrue(writer.flush(5000));
+
+        SmsOutboundEntity stored = outboundRepository.findById(e.getId()).orElseThrow();
+        assertEquals("SENT", stored.getStatus());
+        assertEquals("smsc-1", stored.getSmscMsgId());
+        assertEquals(12L, stored.getSubmitResponseTimeMs());
+        assertNull(stored.getLeaseOwner());
+        assertNull(stored.getLeaseExpiresAt());
+    }
+
+    @Test
+    void testLateSubmitResultDoesNotOverwriteDeliveryState() {
+        SmsOutboundEntity e = inFlight();
+        jdbcTemplate.update("UPDATE sms_outbound SET status = 'DELIVERED' WHERE id = ?", e.getId());
+        markSent(e, "smsc-2");
+
+        writer.submit(e);
+        assertTrue(writer.flush(5000));
+
+        SmsOutboundEntity stored = outboundRepository.findById(e.getId()).orElseThrow();
+        assertEquals("DELIVERED", stored.getStatus());
+        assertEquals("smsc-2", stored.getSmscMsgId());
+    }
+
+    @Test
+    void testManyResultsAreFlushedInBatches() {
+        List<SmsOutboundEntity> rows = new ArrayList<>();
+        for (int i = 0; i < 250; i++) rows.add(inFlight());
+        for (int i = 0; i < rows.size(); i++) {
+            SmsOutboundEntity e = rows.get(i);
+            if (i % 2 == 0) {
+                markSent(e, "smsc-" + i);
+            } else {
+                e.setStatus("RETRY");
+                e.setRetryCount(1);
+                e.setNextRetryAt(Instant.now().plusSeconds(1));
+            }
+            writer.submit(e);
+        }
+
+        assertTrue(writer.flush(10_000));
+        assertEquals(0, writer.pending());
+        assertEquals(125, outboundRepository.findByStatusAndSessionId("SENT", "mtn-primary-1", Pageable.unpaged()).getTotalElements());
+        assertEquals(125, outboundRepository.findByStatusAndSessionId("RETRY", "mtn-primary-1", Pageable.unpaged()).getTotalElements());
+    }
+}
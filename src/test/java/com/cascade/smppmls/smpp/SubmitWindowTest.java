@@ -0,0 +1,52 @@
+package com.cascade.smppmls.smpp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test cases for the per-bind submit_sm window
+ */
+class SubmitWindowTest {
+
+    @Test
+    void testWindowCapsOutstandingSubmits() {
+        SubmitWindow window = new SubmitWindow(2, 10_000);
+
+        int s1 = window.tryAcquire(1L);
+        int s2 = window.tryAcquire(2L);
+
+        assertTrue(s1 > 0);
+        assertTrue(s2 > 0);
+        assertNotEquals(s1, s2);
+        assertEquals(-1, window.tryAcquire(3L));
+        assertEquals(2, window.occupancy());
+        assertEquals(0, window.available());
+    }
+
+    @Test
+    void testReleaseBySequenceFreesSlot() {
+        SubmitWindow window = new SubmitWindow(1, 10_000);
+        int seq = window.tryAcquire(1L);
+
+        assertTrue(window.release(seq) >= 0);
+        // second release of the same sequence is a no-op
+        assertEquals(-1, window.release(seq));
+        assertEquals(1, window.available());
+        assertTrue(window.tryAcquire(2L) > 0);
+    }
+
+    @Test
+    void testOverdueSlotExpiresIndividually() throws InterruptedException {
+        SubmitWindow window = new SubmitWindow(2, 1);
+        int stale = window.tryAcquire(1L);
+        Thread.sleep(5);
+
+        assertEquals(1, window.expireOverdue());
+        assertEquals(2, window.available());
+        assertEquals(1, window.expiredCount());
+        // late response for the expired slot does not over-release the window
+        assertEquals(-1, window.release(stale));
+        assertEquals(2, window.available());
+    }
+}
@@ -0,0 +1,59 @@
+package com.cascade.smppmls.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class GcraRateLimiterTest {
+
+    private static final long TICK_NANOS = 10_000_000L; // 10 ms
+
+    @Test
+    public void testSpreadsRateAcrossTicks() {
+        AtomicLong clock = new AtomicLong(0);
+        GcraRateLimiter limiter = new GcraRateLimiter(200, TICK_NANOS, clock::get);
+
+        // 200 TPS with a 10 ms tolerance: first tick gets a small burst, not the whole second
+        assertEquals(3, limiter.acquireUpTo(1000));
+        assertEquals(0, limiter.acquireUpTo(1000));
+
+        int total = 3;
+        for (int i = 1; i <= 100; i++) {
+            clock.set(i * TICK_NANOS);
+            int granted = limiter.acquireUpTo(1000);
+            assertEquals(2, granted);
+            total += granted;
+        }
+        // one second of ticks ~= configured rate
+        assertEquals(203, total);
+    }
+
+    @Test
+    public void testRefundReturnsUnusedPermits() {
+        AtomicLong clock = new AtomicLong(0);
+        GcraRateLimiter limiter = new GcraRateLimiter(100, TICK_NANOS, clock::get);
+
+        int granted = limiter.acquireUpTo(10);
+        assertEquals(2, granted);
+        limiter.refund(granted);
+        assertEquals(2, limiter.acquireUpTo(10));
+    }
+
+    @Test
+    public void testIdleTimeDoesNotAccumulateBurst() {
+        AtomicLong clock = new AtomicLong(0);
+        GcraRateLimiter limiter = new GcraRateLimiter(100, TICK_NANOS, clock::get);
+        limiter.acquireUpTo(10);
+
+        clock.set(5_000_000_000L); // 5 s idle
+        assertEquals(2, limiter.acquireUpTo(1000));
+    }
+
+    @Test
+    public void testZeroRateGrantsNothing() {
+        GcraRateLimiter limiter = new GcraRateLimiter(0, TICK_NANOS);
+        assertEquals(0, limiter.acquireUpTo(10));
+    }
+}
@@ -0,0 +1,58 @@
+package com.cascade.smppmls.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test cases for the primitive long-to-int hash map
+ */
+class LongIntHashMapTest {
+
+    @Test
+    void testPutGetAndReplace() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(93791234567L, 1);
+        map.put(93701234567L, 2);
+        map.put(93791234567L, 3);
+
+        assertEquals(3, map.get(93791234567L, -1));
+        assertEquals(2, map.get(93701234567L, -1));
+        assertEquals(-1, map.get(93771234567L, -1));
+        assertEquals(-1, map.get(0L, -1));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void testGrowsBeyondExpectedSize() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (long i = 1; i <= 200_000; i++) {
+            map.put(93700000000L + i, (int) (i % 4));
+        }
+
+        assertEquals(200_000, map.size());
+        for (long i = 1; i <= 200_000; i += 997) {
+            assertEquals((int) (i % 4), map.get(93700000000L + i, -1));
+        }
+        assertEquals(-1, map.get(93700000000L, -1));
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        map.put(1L, 1);
+        LongIntHashMap copy = map.copy();
+        copy.put(1L, 5);
+        copy.put(2L, 2);
+
+        assertEquals(1, map.get(1L, -1));
+        assertEquals(-1, map.get(2L, -1));
+        assertEquals(5, copy.get(1L, -1));
+        assertEquals(2, copy.size());
+    }
+
+    @Test
+    void testZeroKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LongIntHashMap(16).put(0L, 1));
+    }
+}